@@ -6,8 +6,11 @@ package example;
 
 import java.awt.*;
 import java.awt.image.BufferedImage;
-import java.awt.image.ConvolveOp;
-import java.awt.image.Kernel;
+import java.awt.image.WritableRaster;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.stream.Stream;
 import javax.swing.*;
@@ -72,12 +75,11 @@ public final class MainPanel extends JPanel {
 // 9. Blur Disabled Components
 // http://code.google.com/p/filthy-rich-clients/source/browse/trunk/swing-hacks-examples-20060109/Ch01-JComponents/09/swinghacks/ch01/JComponents/hack09/BlurJButton.java?r=11
 class BlurJButton extends JButton {
-  private static final ConvolveOp CONVOLVE_OP = new ConvolveOp(new Kernel(3, 3, new float[] {
-      .05f, .05f, .05f,
-      .05f, .60f, .05f,
-      .05f, .05f, .05f
-  }));
-  private transient BufferedImage buf;
+  // private static final ConvolveOp CONVOLVE_OP = new ConvolveOp(new Kernel(3, 3, new float[] {
+  //     .05f, .05f, .05f,
+  //     .05f, .60f, .05f,
+  //     .05f, .05f, .05f
+  // }));
 
   protected BlurJButton(String label) {
     super(label);
@@ -88,30 +90,17 @@ class BlurJButton extends JButton {
     if (isEnabled()) {
       super.paintComponent(g);
     } else {
-      // if (Objects.isNull(buf) || iw != getWidth() || ih != getHeight()) {
-      //   iw = getWidth();
-      //   ih = getHeight();
-      //   buf = new BufferedImage(iw, ih, BufferedImage.TYPE_INT_ARGB);
-      // }
-      buf = Optional.ofNullable(buf)
-        .filter(bi -> bi.getWidth() == getWidth() && bi.getHeight() == getHeight())
-        .orElseGet(() -> new BufferedImage(getWidth(), getHeight(), BufferedImage.TYPE_INT_ARGB));
-      Graphics2D g2 = buf.createGraphics();
-      g2.setFont(g.getFont()); // pointed out by 八ツ玉舘
-      super.paintComponent(g2);
-      g2.dispose();
-      g.drawImage(CONVOLVE_OP.filter(buf, null), 0, 0, this);
+      g.drawImage(BlurEffectCache.getInstance().getBlurredImage(this, g, false, super::paintComponent), 0, 0, this);
     }
   }
 }
 
 class BlurButton extends JButton {
-  private static final ConvolveOp CONVOLVE_OP = new ConvolveOp(new Kernel(3, 3, new float[] {
-      .05f, .05f, .05f,
-      .05f, .60f, .05f,
-      .05f, .05f, .05f
-  }), ConvolveOp.EDGE_NO_OP, null);
-  private transient BufferedImage buf;
+  // private static final ConvolveOp CONVOLVE_OP = new ConvolveOp(new Kernel(3, 3, new float[] {
+  //     .05f, .05f, .05f,
+  //     .05f, .60f, .05f,
+  //     .05f, .05f, .05f
+  // }), ConvolveOp.EDGE_NO_OP, null);
 
   protected BlurButton(String label) {
     super(label);
@@ -122,14 +111,7 @@ class BlurButton extends JButton {
     if (isEnabled()) {
       super.paintComponent(g);
     } else {
-      buf = Optional.ofNullable(buf)
-        .filter(bi -> bi.getWidth() == getWidth() && bi.getHeight() == getHeight())
-        .orElseGet(() -> new BufferedImage(getWidth(), getHeight(), BufferedImage.TYPE_INT_ARGB));
-      Graphics2D g2 = buf.createGraphics();
-      g2.setFont(g.getFont()); // pointed out by 八ツ玉舘
-      super.paintComponent(g2);
-      g2.dispose();
-      g.drawImage(CONVOLVE_OP.filter(buf, null), 0, 0, this);
+      g.drawImage(BlurEffectCache.getInstance().getBlurredImage(this, g, true, super::paintComponent), 0, 0, this);
     }
   }
 
@@ -139,3 +121,118 @@ class BlurButton extends JButton {
   //   return d;
   // }
 }
+
+// The blurred images of the disabled buttons, shared by all buttons and keyed by
+// everything that changes how a button looks, so a repaint without a change is a drawImage.
+// The 3x3 kernel {.05, .05, .05, .05, .60, .05, .05, .05, .05} is .05 * (3x3 box sum) + .55 * center,
+// and the box sum is done as a horizontal and a vertical pass of 3 on premultiplied int arrays.
+// Only used on the EDT.
+final class BlurEffectCache {
+  private static final int MAX_ENTRIES = 128;
+  private static final BlurEffectCache INSTANCE = new BlurEffectCache();
+  private final Map<Object, BufferedImage> cache = new LinkedHashMap<Object, BufferedImage>(MAX_ENTRIES, .75f, true) {
+    @Override protected boolean removeEldestEntry(Map.Entry<Object, BufferedImage> eldest) {
+      boolean remove = size() > MAX_ENTRIES;
+      if (remove) {
+        recycled = eldest.getValue();
+      }
+      return remove;
+    }
+  };
+  private BufferedImage recycled;
+  private BufferedImage source;
+  private int[] src = new int[0];
+  private int[] dst = new int[0];
+  private int[] sum = new int[0];
+
+  private BlurEffectCache() {
+    /* Singleton */
+  }
+
+  public static BlurEffectCache getInstance() {
+    return INSTANCE;
+  }
+
+  public interface Painter {
+    void paint(Graphics g);
+  }
+
+  public BufferedImage getBlurredImage(AbstractButton b, Graphics g, boolean edgeNoOp, Painter painter) {
+    int w = b.getWidth();
+    int h = b.getHeight();
+    // a copy of the margin, the Insets of the button may be changed in place
+    Object margin = Optional.ofNullable(b.getMargin()).map(Insets::clone).orElse(null);
+    Object key = Arrays.asList(
+        b.getText(), w, h, g.getFont(), b.getForeground(), b.getBackground(), b.getIcon(),
+        b.getDisabledIcon(), b.getBorder(), margin, b.isSelected(), b.isContentAreaFilled(),
+        b.isBorderPainted(), b.isFocusPainted(), b.getHorizontalAlignment(), b.getVerticalAlignment(),
+        b.getHorizontalTextPosition(), b.getVerticalTextPosition(), b.getIconTextGap(),
+        b.getDisplayedMnemonicIndex(), UIManager.getLookAndFeel().getID(), edgeNoOp);
+    BufferedImage image = cache.get(key);
+    if (Objects.nonNull(image)) {
+      return image;
+    }
+    source = Optional.ofNullable(source)
+        .filter(bi -> bi.getWidth() >= w && bi.getHeight() >= h)
+        .orElseGet(() -> new BufferedImage(w, h, BufferedImage.TYPE_INT_ARGB_PRE));
+    Graphics2D g2 = source.createGraphics();
+    g2.setComposite(AlphaComposite.Clear);
+    g2.fillRect(0, 0, w, h);
+    g2.setComposite(AlphaComposite.SrcOver);
+    g2.setFont(g.getFont()); // pointed out by 八ツ玉舘
+    painter.paint(g2);
+    g2.dispose();
+
+    int size = w * h;
+    if (src.length < size) {
+      src = new int[size];
+      dst = new int[size];
+      sum = new int[size];
+    }
+    source.getRaster().getDataElements(0, 0, w, h, src);
+    blur(w, h, edgeNoOp);
+
+    image = Optional.ofNullable(recycled)
+        .filter(bi -> bi.getWidth() == w && bi.getHeight() == h)
+        .orElseGet(() -> new BufferedImage(w, h, BufferedImage.TYPE_INT_ARGB_PRE));
+    recycled = null;
+    WritableRaster raster = image.getRaster();
+    raster.setDataElements(0, 0, w, h, dst);
+    cache.put(key, image);
+    return image;
+  }
+
+  private void blur(int w, int h, boolean edgeNoOp) {
+    Arrays.fill(dst, 0, w * h, 0);
+    for (int shift = 0; shift < 32; shift += 8) {
+      // horizontal pass
+      for (int y = 0; y < h; y++) {
+        int row = y * w;
+        for (int x = 1; x < w - 1; x++) {
+          int i = row + x;
+          sum[i] = (src[i - 1] >>> shift & 0xFF) + (src[i] >>> shift & 0xFF) + (src[i + 1] >>> shift & 0xFF);
+        }
+      }
+      // vertical pass, the edge pixels are left as they are (EDGE_NO_OP) or zero (EDGE_ZERO_FILL)
+      for (int y = 1; y < h - 1; y++) {
+        int row = y * w;
+        for (int x = 1; x < w - 1; x++) {
+          int i = row + x;
+          int box = sum[i - w] + sum[i] + sum[i + w];
+          int v = (box * 5 + (src[i] >>> shift & 0xFF) * 55 + 50) / 100;
+          dst[i] |= Math.min(v, 0xFF) << shift;
+        }
+      }
+    }
+    if (edgeNoOp) {
+      for (int x = 0; x < w; x++) {
+        dst[x] = src[x];
+        dst[(h - 1) * w + x] = src[(h - 1) * w + x];
+      }
+      for (int y = 0; y < h; y++) {
+        dst[y * w] = src[y * w];
+        dst[y * w + w - 1] = src[y * w + w - 1];
+      }
+    }
+  }
+}
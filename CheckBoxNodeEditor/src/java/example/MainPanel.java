@@ -5,11 +5,17 @@
 package example;
 
 import java.awt.*;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Enumeration;
+import java.util.List;
 import java.util.Objects;
 import javax.swing.*;
+import javax.swing.event.TreeModelEvent;
+import javax.swing.event.TreeModelListener;
 import javax.swing.tree.DefaultMutableTreeNode;
+import javax.swing.tree.DefaultTreeModel;
 import javax.swing.tree.TreeModel;
 
 public final class MainPanel extends JPanel {
@@ -33,7 +39,22 @@ public final class MainPanel extends JPanel {
       .map(DefaultMutableTreeNode.class::cast)
       .forEach(n -> n.setUserObject(new CheckBoxNode(Objects.toString(n.getUserObject(), ""), Status.DESELECTED)));
 
-    model.addTreeModelListener(new CheckBoxStatusUpdateListener());
+    JLabel label = new JLabel(" ");
+    addStatusUpdateListener(model, label);
+
+    // 500 x 1000 leaves, and a binary tree of depth 19
+    JButton wide = new JButton("wide");
+    wide.addActionListener(e -> setLargeModel(tree, label, makeTree(new int[] {500, 1000})));
+    JButton deep = new JButton("deep");
+    deep.addActionListener(e -> {
+      int[] branches = new int[19];
+      Arrays.fill(branches, 2);
+      setLargeModel(tree, label, makeTree(branches));
+    });
+    JPanel p = new JPanel();
+    p.add(wide);
+    p.add(deep);
+    p.add(label);
 
     tree.setEditable(true);
     tree.setBorder(BorderFactory.createEmptyBorder(4, 4, 4, 4));
@@ -43,9 +64,47 @@ public final class MainPanel extends JPanel {
 
     setBorder(BorderFactory.createEmptyBorder(5, 5, 5, 5));
     add(new JScrollPane(tree));
+    add(p, BorderLayout.SOUTH);
     setPreferredSize(new Dimension(320, 240));
   }
 
+  private static void setLargeModel(JTree tree, JLabel label, DefaultMutableTreeNode root) {
+    DefaultTreeModel model = new DefaultTreeModel(root);
+    addStatusUpdateListener(model, label);
+    tree.setModel(model);
+    tree.expandRow(0);
+  }
+
+  private static void addStatusUpdateListener(TreeModel model, JLabel label) {
+    CheckBoxStatusUpdateListener listener = new CheckBoxStatusUpdateListener();
+    // the listeners are notified last to first, the label is updated after the status
+    model.addTreeModelListener(new TreeModelAdapter() {
+      @Override public void treeNodesChanged(TreeModelEvent e) {
+        label.setText(String.format("update: %.3fms", listener.getLastUpdateNanos() / 1_000_000d));
+      }
+    });
+    model.addTreeModelListener(listener);
+  }
+
+  // Each level i has branches[i] children per node.
+  public static DefaultMutableTreeNode makeTree(int[] branches) {
+    DefaultMutableTreeNode root = new DefaultMutableTreeNode(new CheckBoxNode("root", Status.DESELECTED));
+    List<DefaultMutableTreeNode> level = Collections.singletonList(root);
+    int count = 1;
+    for (int b: branches) {
+      List<DefaultMutableTreeNode> next = new ArrayList<>(level.size() * b);
+      for (DefaultMutableTreeNode parent: level) {
+        for (int i = 0; i < b; i++) {
+          DefaultMutableTreeNode child = new DefaultMutableTreeNode(new CheckBoxNode("node" + count++, Status.DESELECTED));
+          parent.add(child);
+          next.add(child);
+        }
+      }
+      level = next;
+    }
+    return root;
+  }
+
   public static void main(String[] args) {
     EventQueue.invokeLater(MainPanel::createAndShowGui);
   }
@@ -102,3 +161,21 @@ class IndeterminateIcon implements Icon {
     return icon.getIconHeight();
   }
 }
+
+class TreeModelAdapter implements TreeModelListener {
+  @Override public void treeNodesChanged(TreeModelEvent e) {
+    /* not needed */
+  }
+
+  @Override public void treeNodesInserted(TreeModelEvent e) {
+    /* not needed */
+  }
+
+  @Override public void treeNodesRemoved(TreeModelEvent e) {
+    /* not needed */
+  }
+
+  @Override public void treeStructureChanged(TreeModelEvent e) {
+    /* not needed */
+  }
+}
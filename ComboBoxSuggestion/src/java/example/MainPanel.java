@@ -5,12 +5,19 @@
 package example;
 
 import java.awt.*;
+import java.awt.event.ItemEvent;
 import java.awt.event.KeyAdapter;
 import java.awt.event.KeyEvent;
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.Collection;
 import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import javax.swing.*;
+import javax.swing.event.ListDataEvent;
+import javax.swing.event.ListDataListener;
 
 public final class MainPanel extends JPanel {
   private MainPanel() {
@@ -23,7 +30,47 @@ public final class MainPanel extends JPanel {
     combo.setSelectedIndex(-1);
     JTextField field = (JTextField) combo.getEditor().getEditorComponent();
     field.setText("");
-    field.addKeyListener(new ComboKeyHandler(combo));
+    ComboKeyHandler handler = new ComboKeyHandler(combo);
+    field.addKeyListener(handler);
+
+    JLabel status = new JLabel(" ");
+    SuggestionModel model = handler.getModel();
+    model.addListDataListener(new ListDataListener() {
+      @Override public void intervalAdded(ListDataEvent e) {
+        updateStatus();
+      }
+
+      @Override public void intervalRemoved(ListDataEvent e) {
+        updateStatus();
+      }
+
+      @Override public void contentsChanged(ListDataEvent e) {
+        /* not needed */
+      }
+
+      private void updateStatus() {
+        status.setText(String.format("%d/%d suggestions, %.3fms",
+            model.getSize(), model.getIndexSize(), model.getFilterNanos() / 1_000_000d));
+      }
+    });
+
+    JComboBox<SuggestionIndex.MatchMode> mode = new JComboBox<>(SuggestionIndex.MatchMode.values());
+    mode.addItemListener(e -> {
+      if (e.getStateChange() == ItemEvent.SELECTED) {
+        handler.setMatchMode((SuggestionIndex.MatchMode) e.getItem());
+      }
+    });
+
+    JCheckBox ignoreCase = new JCheckBox("ignore case");
+    ignoreCase.addActionListener(e -> handler.setIgnoreCase(ignoreCase.isSelected()));
+
+    JButton button = new JButton("+500k");
+    button.addActionListener(e -> handler.addAll(makeHistory(500_000)));
+
+    JPanel op = new JPanel(new FlowLayout(FlowLayout.LEADING, 2, 2));
+    op.add(mode);
+    op.add(ignoreCase);
+    op.add(button);
 
     // InputMap im = combo.getInputMap(JComponent.WHEN_ANCESTOR_OF_FOCUSED_COMPONENT);
     // im.put(KeyStroke.getKeyStroke(KeyEvent.VK_ENTER, 0), "enterPressed2");
@@ -48,11 +95,25 @@ public final class MainPanel extends JPanel {
     box.add(makeHelpPanel());
     box.add(Box.createVerticalStrut(5));
     box.add(p);
+    box.add(op);
     add(box, BorderLayout.NORTH);
+    add(status, BorderLayout.SOUTH);
     setBorder(BorderFactory.createEmptyBorder(5, 5, 5, 5));
     setPreferredSize(new Dimension(320, 240));
   }
 
+  private static List<String> makeHistory(int size) {
+    String chars = "abcdeABCDE12";
+    return Stream.generate(() -> {
+      ThreadLocalRandom r = ThreadLocalRandom.current();
+      StringBuilder sb = new StringBuilder();
+      for (int i = r.nextInt(3, 13); i > 0; i--) {
+        sb.append(chars.charAt(r.nextInt(chars.length())));
+      }
+      return sb.toString();
+    }).limit(size).collect(Collectors.toList());
+  }
+
   private static JComboBox<String> makeComboBox(String... model) {
     return new JComboBox<>(model);
     // // Test: Remove ArrowButtn(look like a JTextField)
@@ -138,32 +199,62 @@ public final class MainPanel extends JPanel {
 }
 
 class ComboKeyHandler extends KeyAdapter {
+  private static final int MAX_SUGGESTIONS = 100;
   private final JComboBox<String> comboBox;
-  private final List<String> list = new ArrayList<>();
+  private final SuggestionIndex index = new SuggestionIndex();
+  private final SuggestionModel model = new SuggestionModel(index);
+  private SuggestionIndex.MatchMode matchMode = SuggestionIndex.MatchMode.PREFIX;
   private boolean shouldHide;
 
   protected ComboKeyHandler(JComboBox<String> combo) {
     super();
     this.comboBox = combo;
+    List<String> list = new ArrayList<>();
     for (int i = 0; i < comboBox.getModel().getSize(); i++) {
       list.add(comboBox.getItemAt(i));
     }
+    index.addAll(list);
+    comboBox.setModel(model);
+    setSuggestions(comboBox, model, "", matchMode);
+  }
+
+  public SuggestionModel getModel() {
+    return model;
+  }
+
+  public void setMatchMode(SuggestionIndex.MatchMode matchMode) {
+    this.matchMode = matchMode;
+    update();
+  }
+
+  public void setIgnoreCase(boolean ignoreCase) {
+    index.setIgnoreCase(ignoreCase);
+    update();
+  }
+
+  public void addAll(Collection<String> items) {
+    index.addAll(items);
+    update();
+  }
+
+  private void update() {
+    JTextField textField = (JTextField) comboBox.getEditor().getEditorComponent();
+    setSuggestions(comboBox, model, textField.getText(), matchMode);
   }
 
   @Override public void keyTyped(KeyEvent e) {
     EventQueue.invokeLater(() -> {
       String text = ((JTextField) e.getComponent()).getText();
-      ComboBoxModel<String> m;
       if (text.isEmpty()) {
-        m = new DefaultComboBoxModel<>(list.toArray(new String[0]));
-        setSuggestionModel(comboBox, m, "");
+        setSuggestions(comboBox, model, "", matchMode);
+        comboBox.hidePopup();
+      } else if (shouldHide) {
         comboBox.hidePopup();
       } else {
-        m = getSuggestedModel(list, text);
-        if (m.getSize() == 0 || shouldHide) {
+        setSuggestions(comboBox, model, text, matchMode);
+        if (model.getSize() == 0) {
           comboBox.hidePopup();
         } else {
-          setSuggestionModel(comboBox, m, text);
           comboBox.showPopup();
         }
       }
@@ -176,19 +267,15 @@ class ComboKeyHandler extends KeyAdapter {
     shouldHide = false;
     switch (e.getKeyCode()) {
       case KeyEvent.VK_RIGHT:
-        for (String s: list) {
-          if (s.startsWith(text)) {
-            textField.setText(s);
-            return;
-          }
+        int[] range = index.prefixRange(text);
+        if (range[0] < range[1]) {
+          textField.setText(index.get(range[0]));
+          return;
         }
         break;
       case KeyEvent.VK_ENTER:
-        if (!list.contains(text)) {
-          list.add(text);
-          Collections.sort(list);
-          // setSuggestionModel(comboBox, new DefaultComboBoxModel(list), text);
-          setSuggestionModel(comboBox, getSuggestedModel(list, text), text);
+        if (index.add(text)) {
+          setSuggestions(comboBox, model, text, matchMode);
         }
         shouldHide = true;
         break;
@@ -200,20 +287,76 @@ class ComboKeyHandler extends KeyAdapter {
     }
   }
 
-  private static void setSuggestionModel(JComboBox<String> comboBox, ComboBoxModel<String> mdl, String str) {
-    comboBox.setModel(mdl);
+  private static void setSuggestions(JComboBox<String> comboBox, SuggestionModel model, String str, SuggestionIndex.MatchMode mode) {
+    model.filter(str, mode, MAX_SUGGESTIONS);
     comboBox.setSelectedIndex(-1);
     ((JTextField) comboBox.getEditor().getEditorComponent()).setText(str);
   }
+}
 
-  private static ComboBoxModel<String> getSuggestedModel(List<String> list, String text) {
-    DefaultComboBoxModel<String> m = new DefaultComboBoxModel<>();
-    for (String s: list) {
-      if (s.startsWith(text)) {
-        m.addElement(s);
-      }
+// A view of a range or of some positions of the SuggestionIndex, the items are not copied.
+// The index is only changed on the EDT and the view is filtered again after each change.
+class SuggestionModel extends AbstractListModel<String> implements ComboBoxModel<String> {
+  private static final long serialVersionUID = 1L;
+  private final transient SuggestionIndex index;
+  private int from;
+  private int[] positions;
+  private int size;
+  private Object selectedItem;
+  private long filterNanos;
+
+  protected SuggestionModel(SuggestionIndex index) {
+    super();
+    this.index = index;
+  }
+
+  public void filter(String text, SuggestionIndex.MatchMode mode, int limit) {
+    long start = System.nanoTime();
+    int oldSize = size;
+    if (mode == SuggestionIndex.MatchMode.PREFIX || text.isEmpty()) {
+      int[] range = index.prefixRange(text);
+      from = range[0];
+      positions = null;
+      size = Math.min(range[1] - range[0], limit);
+    } else {
+      from = 0;
+      positions = index.scan(text, mode, limit);
+      size = positions.length;
+    }
+    filterNanos = System.nanoTime() - start;
+    if (oldSize > 0) {
+      fireIntervalRemoved(this, 0, oldSize - 1);
+    }
+    if (size > 0) {
+      fireIntervalAdded(this, 0, size - 1);
+    }
+  }
+
+  public long getFilterNanos() {
+    return filterNanos;
+  }
+
+  public int getIndexSize() {
+    return index.size();
+  }
+
+  @Override public int getSize() {
+    return size;
+  }
+
+  @Override public String getElementAt(int i) {
+    return index.get(Objects.isNull(positions) ? from + i : positions[i]);
+  }
+
+  @Override public Object getSelectedItem() {
+    return selectedItem;
+  }
+
+  @Override public void setSelectedItem(Object item) {
+    if (!Objects.equals(selectedItem, item)) {
+      selectedItem = item;
+      fireContentsChanged(this, -1, -1);
     }
-    return m;
   }
 }
 
@@ -0,0 +1,188 @@
+// -*- mode:java; encoding:utf-8 -*-
+// vim:set fileencoding=utf-8:
+// @homepage@
+
+package example;
+
+import java.util.AbstractMap;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+// The suggestions in a sorted array. The items that start with a prefix are a range
+// of the array that is found with two binary searches, so the first N matches of a
+// prefix cost O(|prefix| log n + N) and nothing is copied.
+// With ignoreCase the items are sorted by a lower case key that is kept next to them.
+class SuggestionIndex {
+  public enum MatchMode { PREFIX, SUBSTRING, SUBSEQUENCE }
+
+  private static final Comparator<Map.Entry<String, String>> ORDER =
+      Map.Entry.<String, String>comparingByKey().thenComparing(Map.Entry.comparingByValue());
+  private String[] items = new String[16];
+  // the same array as items when the case is not ignored
+  private String[] keys = items;
+  private int size;
+  private boolean ignoreCase;
+
+  public int size() {
+    return size;
+  }
+
+  public String get(int index) {
+    return items[index];
+  }
+
+  public boolean isIgnoreCase() {
+    return ignoreCase;
+  }
+
+  public void setIgnoreCase(boolean ignoreCase) {
+    if (this.ignoreCase != ignoreCase) {
+      this.ignoreCase = ignoreCase;
+      rebuild(Arrays.stream(items, 0, size));
+    }
+  }
+
+  public boolean contains(String item) {
+    return indexOf(item) >= 0;
+  }
+
+  // Returns the position of the item, or (-(insertion point) - 1).
+  public int indexOf(String item) {
+    String key = fold(item);
+    int lo = 0;
+    int hi = size - 1;
+    while (lo <= hi) {
+      int mid = (lo + hi) >>> 1;
+      int c = keys[mid].compareTo(key);
+      if (c == 0) {
+        c = items[mid].compareTo(item);
+      }
+      if (c < 0) {
+        lo = mid + 1;
+      } else if (c > 0) {
+        hi = mid - 1;
+      } else {
+        return mid;
+      }
+    }
+    return -(lo + 1);
+  }
+
+  // Inserts the item at its place, the following items are moved with one arraycopy.
+  public boolean add(String item) {
+    int i = indexOf(item);
+    if (i >= 0) {
+      return false;
+    }
+    int pos = -(i + 1);
+    if (size == items.length) {
+      items = Arrays.copyOf(items, size * 2);
+      keys = ignoreCase ? Arrays.copyOf(keys, size * 2) : items;
+    }
+    System.arraycopy(items, pos, items, pos + 1, size - pos);
+    items[pos] = item;
+    if (ignoreCase) {
+      System.arraycopy(keys, pos, keys, pos + 1, size - pos);
+      keys[pos] = fold(item);
+    }
+    size++;
+    return true;
+  }
+
+  // Many items are merged with one sort instead of one insertion each.
+  public void addAll(Collection<String> c) {
+    rebuild(Stream.concat(Arrays.stream(items, 0, size), c.stream()));
+  }
+
+  private void rebuild(Stream<String> stream) {
+    List<Map.Entry<String, String>> entries = stream.parallel()
+        .map(s -> new AbstractMap.SimpleImmutableEntry<>(fold(s), s))
+        .sorted(ORDER)
+        .collect(Collectors.toList());
+    int length = Math.max(16, entries.size());
+    String[] newItems = new String[length];
+    String[] newKeys = ignoreCase ? new String[length] : newItems;
+    int n = 0;
+    for (Map.Entry<String, String> e: entries) {
+      if (n == 0 || !newItems[n - 1].equals(e.getValue())) {
+        newItems[n] = e.getValue();
+        newKeys[n] = e.getKey();
+        n++;
+      }
+    }
+    items = newItems;
+    keys = newKeys;
+    size = n;
+  }
+
+  // Returns {from, to}, the items in [from, to) start with the prefix.
+  public int[] prefixRange(String prefix) {
+    String key = fold(prefix);
+    int lo = 0;
+    int hi = size;
+    while (lo < hi) {
+      int mid = (lo + hi) >>> 1;
+      if (keys[mid].compareTo(key) < 0) {
+        lo = mid + 1;
+      } else {
+        hi = mid;
+      }
+    }
+    int from = lo;
+    hi = size;
+    while (lo < hi) {
+      int mid = (lo + hi) >>> 1;
+      if (keys[mid].startsWith(key)) {
+        lo = mid + 1;
+      } else {
+        hi = mid;
+      }
+    }
+    return new int[] {from, lo};
+  }
+
+  // Returns the positions of the first matches in the order of the index.
+  // Only PREFIX has a range, the other modes scan the keys and stop after the limit.
+  public int[] scan(String text, MatchMode mode, int limit) {
+    String key = fold(text);
+    int[] positions = new int[Math.min(size, limit)];
+    int n = 0;
+    for (int i = 0; i < size && n < positions.length; i++) {
+      if (matches(keys[i], key, mode)) {
+        positions[n++] = i;
+      }
+    }
+    return Arrays.copyOf(positions, n);
+  }
+
+  private static boolean matches(String s, String key, MatchMode mode) {
+    switch (mode) {
+      case SUBSTRING:
+        return s.contains(key);
+      case SUBSEQUENCE:
+        return isSubsequence(key, s);
+      default:
+        return s.startsWith(key);
+    }
+  }
+
+  private static boolean isSubsequence(String pattern, String s) {
+    int j = 0;
+    for (int i = 0; i < s.length() && j < pattern.length(); i++) {
+      if (s.charAt(i) == pattern.charAt(j)) {
+        j++;
+      }
+    }
+    return j == pattern.length();
+  }
+
+  private String fold(String s) {
+    return ignoreCase ? s.toLowerCase(Locale.ROOT) : s;
+  }
+}
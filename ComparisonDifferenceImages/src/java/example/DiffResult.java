@@ -0,0 +1,40 @@
+// -*- mode:java; encoding:utf-8 -*-
+// vim:set fileencoding=utf-8:
+// @homepage@
+
+package example;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.util.List;
+
+class DiffResult {
+  private final List<Rectangle> regions;
+  private final BufferedImage mask;
+  private final long changedPixels;
+  private final long nanos;
+
+  protected DiffResult(List<Rectangle> regions, BufferedImage mask, long changedPixels, long nanos) {
+    this.regions = regions;
+    this.mask = mask;
+    this.changedPixels = changedPixels;
+    this.nanos = nanos;
+  }
+
+  public List<Rectangle> getRegions() {
+    return regions;
+  }
+
+  // 1 bit per pixel, 1 is changed, or null when the mask was not requested.
+  public BufferedImage getMask() {
+    return mask;
+  }
+
+  public long getChangedPixels() {
+    return changedPixels;
+  }
+
+  public long getNanos() {
+    return nanos;
+  }
+}
@@ -7,29 +7,25 @@ package example;
 import java.awt.*;
 import java.awt.event.ItemEvent;
 import java.awt.image.BufferedImage;
-import java.awt.image.DataBufferInt;
-import java.awt.image.MemoryImageSource;
+import java.io.IOException;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
 import java.util.stream.Stream;
+import javax.imageio.ImageIO;
 import javax.swing.*;
 
 public final class MainPanel extends JPanel {
   private final ImageIcon iia = new ImageIcon(getClass().getResource("a.png"));
   private final ImageIcon iib = new ImageIcon(getClass().getResource("b.png"));
   private final JLabel label = new JLabel(iia);
+  private final JLabel status = new JLabel(" ");
+  private final JRadioButton rr = new JRadioButton("diff");
+  private transient SwingWorker<BufferedImage, Void> worker;
+  private transient Icon diffIcon;
 
   private MainPanel() {
     super(new BorderLayout());
 
-    int w = iia.getIconWidth();
-    int h = iia.getIconHeight();
-    int[] pixelsA = getData(iia, w, h);
-    int[] pixelsB = getData(iib, w, h);
-    for (int i = 0; i < pixelsA.length; i++) {
-      if (pixelsA[i] == pixelsB[i]) {
-        pixelsA[i] = pixelsA[i] & 0x44_FF_FF_FF;
-      }
-    }
-
     JRadioButton ra = new JRadioButton("a.png", true);
     ra.addItemListener(e -> {
       if (e.getStateChange() == ItemEvent.SELECTED) {
@@ -44,25 +40,96 @@ public final class MainPanel extends JPanel {
       }
     });
 
-    MemoryImageSource source = new MemoryImageSource(w, h, pixelsA, 0, w);
-    JRadioButton rr = new JRadioButton("diff");
     rr.addItemListener(e -> {
-      if (e.getStateChange() == ItemEvent.SELECTED) {
-        label.setIcon(new ImageIcon(createImage(source)));
+      if (e.getStateChange() == ItemEvent.SELECTED && Objects.nonNull(diffIcon)) {
+        label.setIcon(diffIcon);
       }
     });
 
+    SpinnerNumberModel tolerance = new SpinnerNumberModel(0, 0, 255, 1);
+    tolerance.addChangeListener(e -> startDiff(tolerance.getNumber().intValue()));
+    startDiff(0);
+
     JPanel p = new JPanel();
     ButtonGroup bg = new ButtonGroup();
     Stream.of(ra, rb, rr).forEach(r -> {
       bg.add(r);
       p.add(r);
     });
+    p.add(new JLabel("tolerance:"));
+    p.add(new JSpinner(tolerance));
+
+    JPanel south = new JPanel(new BorderLayout());
+    south.add(p);
+    south.add(status, BorderLayout.SOUTH);
 
     add(label);
-    add(p, BorderLayout.SOUTH);
+    add(south, BorderLayout.SOUTH);
     setPreferredSize(new Dimension(320, 240));
   }
+
+  private void startDiff(int tolerance) {
+    if (Objects.nonNull(worker)) {
+      worker.cancel(true);
+    }
+    worker = new SwingWorker<BufferedImage, Void>() {
+      private DiffResult result;
+
+      @Override protected BufferedImage doInBackground() throws IOException {
+        BufferedImage a = ImageIO.read(MainPanel.class.getResource("a.png"));
+        BufferedImage b = ImageIO.read(MainPanel.class.getResource("b.png"));
+        result = PixelDiff.compare(a, b, tolerance, true);
+        return makeDiffImage(a, result);
+      }
+
+      @Override protected void done() {
+        if (isCancelled()) {
+          return;
+        }
+        try {
+          diffIcon = new ImageIcon(get());
+          status.setText(String.format("%d regions, %d pixels, %.2fms",
+              result.getRegions().size(), result.getChangedPixels(), result.getNanos() / 1_000_000d));
+          if (rr.isSelected()) {
+            label.setIcon(diffIcon);
+          }
+        } catch (InterruptedException ex) {
+          Thread.currentThread().interrupt();
+        } catch (ExecutionException ex) {
+          ex.printStackTrace();
+          status.setText(ex.getMessage());
+        }
+      }
+    };
+    worker.execute();
+  }
+
+  // The unchanged pixels are faded and the changed regions are outlined.
+  private static BufferedImage makeDiffImage(BufferedImage a, DiffResult result) {
+    int w = a.getWidth();
+    int h = a.getHeight();
+    BufferedImage image = new BufferedImage(w, h, BufferedImage.TYPE_INT_ARGB);
+    BufferedImage mask = result.getMask();
+    int[] row = new int[w];
+    int[] bits = new int[w];
+    for (int y = 0; y < h; y++) {
+      a.getRGB(0, y, w, 1, row, 0, w);
+      if (Objects.nonNull(mask)) {
+        mask.getRaster().getSamples(0, y, w, 1, 0, bits);
+      }
+      for (int x = 0; x < w; x++) {
+        if (bits[x] == 0) {
+          row[x] = row[x] & 0x44_FF_FF_FF;
+        }
+      }
+      image.setRGB(0, y, w, 1, row, 0, w);
+    }
+    Graphics2D g2 = image.createGraphics();
+    g2.setPaint(Color.RED);
+    result.getRegions().forEach(r -> g2.drawRect(r.x, r.y, r.width - 1, r.height - 1));
+    g2.dispose();
+    return image;
+  }
   // private BufferedImage makeBI(String str) {
   //   BufferedImage image;
   //   try {
@@ -74,22 +141,6 @@ public final class MainPanel extends JPanel {
   //   return image;
   // }
 
-  private static int[] getData(ImageIcon imageIcon, int w, int h) {
-    Image img = imageIcon.getImage();
-    BufferedImage image = new BufferedImage(w, h, BufferedImage.TYPE_INT_RGB);
-    Graphics g = image.createGraphics();
-    g.drawImage(img, 0, 0, null);
-    g.dispose();
-    return ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
-    // int[] pixels = new int[w * h];
-    // try {
-    //   new PixelGrabber(image, 0, 0, width, height, pixels, 0, width).grabPixels();
-    // } catch (InterruptedException ex) {
-    //   ex.printStackTrace();
-    // }
-    // return pixels;
-  }
-
   public static void main(String[] args) {
     EventQueue.invokeLater(MainPanel::createAndShowGui);
   }
@@ -0,0 +1,225 @@
+// -*- mode:java; encoding:utf-8 -*-
+// vim:set fileencoding=utf-8:
+// @homepage@
+
+package example;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.awt.image.SampleModel;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.awt.image.WritableRaster;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+import javax.imageio.ImageIO;
+
+// Compares two images in bands of rows on the common ForkJoinPool.
+// A pixel is changed when any of its ARGB channels differs by more than the tolerance.
+// The changed pixels are marked in a 1 bit mask and in a grid of tiles,
+// the connected changed tiles are merged into the bounding boxes of the changed regions.
+final class PixelDiff {
+  public static final int TILE_SIZE = 32;
+  private static final int BAND_ROWS = TILE_SIZE * 2;
+
+  private PixelDiff() {
+    /* Singleton */
+  }
+
+  public static boolean differs(int p, int q, int tolerance) {
+    if (p == q) {
+      return false;
+    }
+    if (tolerance == 0) {
+      return true;
+    }
+    for (int shift = 0; shift < 32; shift += 8) {
+      if (Math.abs((p >>> shift & 0xFF) - (q >>> shift & 0xFF)) > tolerance) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  public static DiffResult compare(BufferedImage a, BufferedImage b, int tolerance, boolean createMask) {
+    long start = System.nanoTime();
+    int w = a.getWidth();
+    int h = a.getHeight();
+    if (w != b.getWidth() || h != b.getHeight()) {
+      Rectangle r = new Rectangle(Math.max(w, b.getWidth()), Math.max(h, b.getHeight()));
+      long all = (long) r.width * r.height;
+      return new DiffResult(Collections.singletonList(r), null, all, System.nanoTime() - start);
+    }
+    BufferedImage mask = createMask ? new BufferedImage(w, h, BufferedImage.TYPE_BYTE_BINARY) : null;
+    int tilesX = (w + TILE_SIZE - 1) / TILE_SIZE;
+    int tilesY = (h + TILE_SIZE - 1) / TILE_SIZE;
+    boolean[] tiles = new boolean[tilesX * tilesY];
+    LongAdder changed = new LongAdder();
+    DiffAction action = new DiffAction(a, b, tolerance, mask, tiles, changed, 0, h);
+    ForkJoinPool.commonPool().invoke(action);
+    List<Rectangle> regions = mergeTiles(tiles, tilesX, tilesY, w, h);
+    return new DiffResult(regions, mask, changed.sum(), System.nanoTime() - start);
+  }
+
+  // Compares the images with the same file name in two directories, one pair at a time,
+  // so only the images of the current pair and the (optional) masks are kept in memory.
+  public static void compareDirectories(Path dirA, Path dirB, int tolerance, boolean createMask, BiConsumer<Path, DiffResult> consumer) throws IOException {
+    List<Path> names = new ArrayList<>();
+    try (DirectoryStream<Path> ds = Files.newDirectoryStream(dirA)) {
+      ds.forEach(p -> names.add(p.getFileName()));
+    }
+    Collections.sort(names);
+    for (Path name: names) {
+      Path pb = dirB.resolve(name.toString());
+      if (!Files.isRegularFile(pb)) {
+        continue;
+      }
+      BufferedImage a = ImageIO.read(dirA.resolve(name).toFile());
+      BufferedImage b = ImageIO.read(pb.toFile());
+      if (Objects.nonNull(a) && Objects.nonNull(b)) {
+        consumer.accept(name, compare(a, b, tolerance, createMask));
+      }
+    }
+  }
+
+  // Returns the pixel array when the image is a plain int packed raster, otherwise null.
+  protected static int[] getDirectPixels(BufferedImage image) {
+    int type = image.getType();
+    if (type != BufferedImage.TYPE_INT_RGB && type != BufferedImage.TYPE_INT_ARGB) {
+      return null;
+    }
+    WritableRaster raster = image.getRaster();
+    SampleModel sm = raster.getSampleModel();
+    boolean packed = sm instanceof SinglePixelPackedSampleModel
+        && ((SinglePixelPackedSampleModel) sm).getScanlineStride() == image.getWidth();
+    boolean translated = raster.getSampleModelTranslateX() != 0 || raster.getSampleModelTranslateY() != 0;
+    if (!packed || translated || !(raster.getDataBuffer() instanceof DataBufferInt)) {
+      return null;
+    }
+    return ((DataBufferInt) raster.getDataBuffer()).getData();
+  }
+
+  private static List<Rectangle> mergeTiles(boolean[] tiles, int tilesX, int tilesY, int w, int h) {
+    List<Rectangle> regions = new ArrayList<>();
+    boolean[] visited = new boolean[tiles.length];
+    Deque<Integer> stack = new ArrayDeque<>();
+    for (int i = 0; i < tiles.length; i++) {
+      if (!tiles[i] || visited[i]) {
+        continue;
+      }
+      int minX = tilesX;
+      int minY = tilesY;
+      int maxX = 0;
+      int maxY = 0;
+      visited[i] = true;
+      stack.push(i);
+      while (!stack.isEmpty()) {
+        int t = stack.pop();
+        int tx = t % tilesX;
+        int ty = t / tilesX;
+        minX = Math.min(minX, tx);
+        minY = Math.min(minY, ty);
+        maxX = Math.max(maxX, tx);
+        maxY = Math.max(maxY, ty);
+        int[] neighbours = {
+            tx > 0 ? t - 1 : -1, tx < tilesX - 1 ? t + 1 : -1,
+            ty > 0 ? t - tilesX : -1, ty < tilesY - 1 ? t + tilesX : -1};
+        for (int n: neighbours) {
+          if (n >= 0 && tiles[n] && !visited[n]) {
+            visited[n] = true;
+            stack.push(n);
+          }
+        }
+      }
+      Rectangle r = new Rectangle(minX * TILE_SIZE, minY * TILE_SIZE,
+          (maxX - minX + 1) * TILE_SIZE, (maxY - minY + 1) * TILE_SIZE);
+      regions.add(r.intersection(new Rectangle(w, h)));
+    }
+    return regions;
+  }
+
+  // The bands start at multiples of TILE_SIZE, so no two bands write the same tile or mask row.
+  private static final class DiffAction extends RecursiveAction {
+    private static final long serialVersionUID = 1L;
+    private final transient BufferedImage a;
+    private final transient BufferedImage b;
+    private final int tolerance;
+    private final transient BufferedImage mask;
+    private final boolean[] tiles;
+    private final LongAdder changed;
+    private final int y0;
+    private final int y1;
+
+    protected DiffAction(BufferedImage a, BufferedImage b, int tolerance, BufferedImage mask, boolean[] tiles, LongAdder changed, int y0, int y1) {
+      super();
+      this.a = a;
+      this.b = b;
+      this.tolerance = tolerance;
+      this.mask = mask;
+      this.tiles = tiles;
+      this.changed = changed;
+      this.y0 = y0;
+      this.y1 = y1;
+    }
+
+    @Override protected void compute() {
+      if (y1 - y0 <= BAND_ROWS) {
+        compareRows();
+        return;
+      }
+      int mid = y0 + (y1 - y0) / 2 / TILE_SIZE * TILE_SIZE;
+      if (mid <= y0) {
+        mid = y0 + TILE_SIZE;
+      }
+      invokeAll(new DiffAction(a, b, tolerance, mask, tiles, changed, y0, mid),
+                new DiffAction(a, b, tolerance, mask, tiles, changed, mid, y1));
+    }
+
+    private void compareRows() {
+      int w = a.getWidth();
+      int tilesX = (w + TILE_SIZE - 1) / TILE_SIZE;
+      int[] da = getDirectPixels(a);
+      int[] db = getDirectPixels(b);
+      boolean direct = Objects.nonNull(da) && Objects.nonNull(db) && a.getType() == b.getType();
+      int[] rowA = direct ? da : new int[w];
+      int[] rowB = direct ? db : new int[w];
+      byte[] bits = Objects.nonNull(mask) ? ((DataBufferByte) mask.getRaster().getDataBuffer()).getData() : null;
+      int maskStride = (w + 7) / 8;
+      long count = 0;
+      for (int y = y0; y < y1; y++) {
+        int off;
+        if (direct) {
+          off = y * w;
+        } else {
+          a.getRGB(0, y, w, 1, rowA, 0, w);
+          b.getRGB(0, y, w, 1, rowB, 0, w);
+          off = 0;
+        }
+        int tileRow = y / TILE_SIZE * tilesX;
+        for (int x = 0; x < w; x++) {
+          if (differs(rowA[off + x], rowB[off + x], tolerance)) {
+            count++;
+            tiles[tileRow + x / TILE_SIZE] = true;
+            if (Objects.nonNull(bits)) {
+              bits[y * maskStride + (x >> 3)] |= (byte) (0x80 >>> (x & 7));
+            }
+          }
+        }
+      }
+      changed.add(count);
+    }
+  }
+}
@@ -7,14 +7,27 @@ package example;
 import java.awt.*;
 import java.awt.geom.Ellipse2D;
 import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.awt.image.IndexColorModel;
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import javax.imageio.IIOImage;
 import javax.imageio.ImageIO;
 import javax.imageio.ImageTypeSpecifier;
@@ -27,13 +40,13 @@ import javax.swing.*;
 import org.w3c.dom.Node;
 
 public final class MainPanel extends JPanel {
-  private static final int DELAY = 10;
+  public static final int DELAY = 10;
   private static final Color ELLIPSE_COLOR = new Color(0x80_80_80);
   private static final double R = 20d;
   private static final double SX = 20d;
   private static final double SY = 20d;
-  private static final int WIDTH = (int) (R * 8 + SX * 2);
-  private static final int HEIGHT = (int) (R * 8 + SY * 2);
+  public static final int WIDTH = (int) (R * 8 + SX * 2);
+  public static final int HEIGHT = (int) (R * 8 + SY * 2);
   private final List<Shape> list = new ArrayList<>(Arrays.asList(
       new Ellipse2D.Double(SX + 3 * R, SY + 0 * R, 2 * R, 2 * R),
       new Ellipse2D.Double(SX + 5 * R, SY + 1 * R, 2 * R, 2 * R),
@@ -43,6 +56,7 @@ public final class MainPanel extends JPanel {
       new Ellipse2D.Double(SX + 1 * R, SY + 5 * R, 2 * R, 2 * R),
       new Ellipse2D.Double(SX + 0 * R, SY + 3 * R, 2 * R, 2 * R),
       new Ellipse2D.Double(SX + 1 * R, SY + 1 * R, 2 * R, 2 * R)));
+  private transient SwingWorker<String, Void> worker;
 
   private MainPanel() {
     super(new BorderLayout());
@@ -55,76 +69,68 @@ public final class MainPanel extends JPanel {
     label.setHorizontalTextPosition(SwingConstants.CENTER);
 
     // File file = new File(System.getProperty("user.dir"), "anime.gif");
+    JProgressBar progress = new JProgressBar();
+    JButton cancel = new JButton("cancel");
+    cancel.setEnabled(false);
+    cancel.addActionListener(e -> Optional.ofNullable(worker).ifPresent(w -> w.cancel(true)));
     JButton button = new JButton("make");
     button.addActionListener(e -> {
-      BufferedImage image = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_ARGB);
-      Iterator<ImageWriter> it = ImageIO.getImageWritersByFormatName("gif");
+      File file;
       try {
-        ImageWriter writer = it.hasNext() ? it.next() : null;
-        if (Objects.isNull(writer)) {
-          throw new IOException();
-        }
-
-        File file = File.createTempFile("anime", ".gif");
+        file = File.createTempFile("anime", ".gif");
         file.deleteOnExit();
-        ImageOutputStream stream = ImageIO.createImageOutputStream(file);
-        writer.setOutput(stream);
-        writer.prepareWriteSequence(null);
-
-        IIOMetadataNode gce = new IIOMetadataNode("GraphicControlExtension");
-        gce.setAttribute("disposalMethod", "none");
-        gce.setAttribute("userInputFlag", "FALSE");
-        gce.setAttribute("transparentColorFlag", "FALSE");
-        gce.setAttribute("transparentColorIndex", "0");
-        gce.setAttribute("delayTime", Objects.toString(DELAY));
-
-        IIOMetadataNode ae = new IIOMetadataNode("ApplicationExtension");
-        ae.setAttribute("applicationID", "NETSCAPE");
-        ae.setAttribute("authenticationCode", "2.0");
-        // last two bytes is an unsigned short (little endian) that
-        // indicates the the number of times to loop.
-        // 0 means loop forever.
-        ae.setUserObject(new byte[] {0x1, 0x0, 0x0});
-
-        IIOMetadataNode aes = new IIOMetadataNode("ApplicationExtensions");
-        aes.appendChild(ae);
-
-        // Create animated GIF using imageio | Oracle Community
-        // https://community.oracle.com/thread/1264385
-        ImageWriteParam iwp = writer.getDefaultWriteParam();
-        IIOMetadata metadata = writer.getDefaultImageMetadata(new ImageTypeSpecifier(image), iwp);
-        String metaFormat = metadata.getNativeMetadataFormatName();
-        Node root = metadata.getAsTree(metaFormat);
-        root.appendChild(gce);
-        root.appendChild(aes);
-        metadata.setFromTree(metaFormat, root);
-
-        // make frame
-        for (int i = 0; i < list.size() * DELAY; i++) {
-          paintFrame(image, list);
-          Collections.rotate(list, 1);
-          writeToSequence(writer, image, metadata);
-          metadata = null;
-        }
-        writer.endWriteSequence();
-        stream.close();
-
-        String path = file.getAbsolutePath();
-        label.setText(path);
-        label.setIcon(new ImageIcon(path));
       } catch (IOException ex) {
         ex.printStackTrace();
         label.setText(ex.getMessage());
         label.setIcon(null);
+        return;
       }
+      worker = new GifExportTask(file, list, list.size() * DELAY) {
+        @Override protected void done() {
+          button.setEnabled(true);
+          cancel.setEnabled(false);
+          if (isCancelled()) {
+            label.setText("Cancelled");
+            label.setIcon(null);
+            return;
+          }
+          try {
+            String path = file.getAbsolutePath();
+            label.setText(get());
+            label.setIcon(new ImageIcon(path));
+          } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+          } catch (ExecutionException ex) {
+            ex.printStackTrace();
+            label.setText(ex.getMessage());
+            label.setIcon(null);
+          }
+        }
+      };
+      worker.addPropertyChangeListener(ev -> {
+        if ("progress".equals(ev.getPropertyName())) {
+          progress.setValue((Integer) ev.getNewValue());
+        }
+      });
+      button.setEnabled(false);
+      cancel.setEnabled(true);
+      progress.setValue(0);
+      worker.execute();
     });
 
+    Box box = Box.createHorizontalBox();
+    box.add(progress);
+    box.add(Box.createHorizontalStrut(2));
+    box.add(cancel);
+    box.add(Box.createHorizontalStrut(2));
+    box.add(button);
+
     add(label);
-    add(button, BorderLayout.SOUTH);
+    add(box, BorderLayout.SOUTH);
     setPreferredSize(new Dimension(320, 240));
   }
 
-  private static void paintFrame(BufferedImage image, List<Shape> list) {
+  public static void paintFrame(BufferedImage image, List<Shape> list) {
     Graphics2D g2 = image.createGraphics();
     g2.setPaint(Color.WHITE);
     g2.fillRect(0, 0, WIDTH, HEIGHT);
@@ -139,10 +145,6 @@ public final class MainPanel extends JPanel {
     g2.dispose();
   }
 
-  private static void writeToSequence(ImageWriter writer, BufferedImage image, IIOMetadata meta) throws IOException {
-    writer.writeToSequence(new IIOImage(image, null, meta), null);
-  }
-
   public static void main(String[] args) {
     EventQueue.invokeLater(MainPanel::createAndShowGui);
   }
@@ -162,3 +164,204 @@ public final class MainPanel extends JPanel {
     frame.setVisible(true);
   }
 }
+
+// Renders and quantizes the frames on a thread pool, the frames are written
+// in order by the worker thread. All frames share one palette that becomes
+// the global color table, and each frame after the first only contains the
+// rectangle that changed from the previous frame.
+class GifExportTask extends SwingWorker<String, Void> {
+  private static final int PALETTE_SAMPLES = 16;
+  private final File file;
+  private final List<Shape> shapes;
+  private final int frameCount;
+  private final int threads = Runtime.getRuntime().availableProcessors();
+
+  protected GifExportTask(File file, List<Shape> shapes, int frameCount) {
+    super();
+    this.file = file;
+    this.shapes = new ArrayList<>(shapes);
+    this.frameCount = frameCount;
+  }
+
+  @Override protected String doInBackground() throws IOException, InterruptedException, ExecutionException {
+    Iterator<ImageWriter> it = ImageIO.getImageWritersByFormatName("gif");
+    ImageWriter writer = it.hasNext() ? it.next() : null;
+    if (Objects.isNull(writer)) {
+      throw new IOException("Can not write image format!");
+    }
+    long start = System.nanoTime();
+    ExecutorService pool = Executors.newFixedThreadPool(threads);
+    try (ImageOutputStream stream = ImageIO.createImageOutputStream(file)) {
+      IndexColorModel palette = createPalette(pool);
+      byte[] lookup = createLookupTable(palette);
+      writer.setOutput(stream);
+      writer.prepareWriteSequence(null);
+      Deque<Future<byte[]>> window = new ArrayDeque<>();
+      int submitted = 0;
+      byte[] previous = null;
+      for (int i = 0; i < frameCount && !isCancelled(); i++) {
+        while (submitted < frameCount && window.size() < threads * 2) {
+          int index = submitted++;
+          window.add(pool.submit(() -> quantize(render(index), lookup)));
+        }
+        byte[] pixels = window.remove().get();
+        writeFrame(writer, palette, pixels, previous);
+        previous = pixels;
+        setProgress(100 * (i + 1) / frameCount);
+      }
+      writer.endWriteSequence();
+    } finally {
+      pool.shutdownNow();
+      writer.dispose();
+    }
+    return String.format("%s (%dms)", file.getAbsolutePath(), (System.nanoTime() - start) / 1_000_000L);
+  }
+
+  private BufferedImage render(int index) {
+    List<Shape> list = new ArrayList<>(shapes);
+    Collections.rotate(list, index);
+    BufferedImage image = new BufferedImage(MainPanel.WIDTH, MainPanel.HEIGHT, BufferedImage.TYPE_INT_RGB);
+    MainPanel.paintFrame(image, list);
+    return image;
+  }
+
+  // The most frequent colors of a few frames, rendered in parallel.
+  private IndexColorModel createPalette(ExecutorService pool) throws InterruptedException, ExecutionException {
+    List<Future<int[]>> samples = new ArrayList<>();
+    int step = Math.max(1, frameCount / PALETTE_SAMPLES);
+    for (int i = 0; i < frameCount; i += step) {
+      int index = i;
+      samples.add(pool.submit(() -> getPixels(render(index))));
+    }
+    Map<Integer, Integer> histogram = new HashMap<>();
+    for (Future<int[]> f: samples) {
+      for (int rgb: f.get()) {
+        histogram.merge(rgb & 0xFF_FF_FF, 1, Integer::sum);
+      }
+    }
+    int[] colors = histogram.entrySet().stream()
+        .sorted(Map.Entry.<Integer, Integer>comparingByValue().reversed())
+        .limit(256)
+        .mapToInt(Map.Entry::getKey)
+        .toArray();
+    int[] cmap = Arrays.copyOf(colors, 256);
+    return new IndexColorModel(8, cmap.length, cmap, 0, false, -1, DataBuffer.TYPE_BYTE);
+  }
+
+  // The nearest palette index for each color with 6 bits per channel.
+  private static byte[] createLookupTable(IndexColorModel palette) {
+    int size = palette.getMapSize();
+    int[] rgb = new int[size];
+    palette.getRGBs(rgb);
+    byte[] table = new byte[1 << 18];
+    for (int key = 0; key < table.length; key++) {
+      int r = (key >> 12 << 2) | 2;
+      int g = (key >> 6 & 0x3F) << 2 | 2;
+      int b = (key & 0x3F) << 2 | 2;
+      int best = 0;
+      int bestDistance = Integer.MAX_VALUE;
+      for (int i = 0; i < size; i++) {
+        int dr = (rgb[i] >> 16 & 0xFF) - r;
+        int dg = (rgb[i] >> 8 & 0xFF) - g;
+        int db = (rgb[i] & 0xFF) - b;
+        int d = dr * dr + dg * dg + db * db;
+        if (d < bestDistance) {
+          bestDistance = d;
+          best = i;
+        }
+      }
+      table[key] = (byte) best;
+    }
+    return table;
+  }
+
+  private static int[] getPixels(BufferedImage image) {
+    return ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+  }
+
+  private static byte[] quantize(BufferedImage image, byte[] lookup) {
+    int[] rgb = getPixels(image);
+    byte[] pixels = new byte[rgb.length];
+    for (int i = 0; i < rgb.length; i++) {
+      int c = rgb[i];
+      pixels[i] = lookup[(c >> 18 & 0x3F) << 12 | (c >> 10 & 0x3F) << 6 | (c >> 2 & 0x3F)];
+    }
+    return pixels;
+  }
+
+  private static Rectangle getChangedBounds(byte[] pixels, byte[] previous, int width, int height) {
+    if (Objects.isNull(previous)) {
+      return new Rectangle(width, height);
+    }
+    int minX = width;
+    int minY = height;
+    int maxX = -1;
+    int maxY = -1;
+    for (int y = 0; y < height; y++) {
+      int row = y * width;
+      for (int x = 0; x < width; x++) {
+        if (pixels[row + x] != previous[row + x]) {
+          minX = Math.min(minX, x);
+          maxX = Math.max(maxX, x);
+          minY = Math.min(minY, y);
+          maxY = y;
+        }
+      }
+    }
+    if (maxX < 0) {
+      return new Rectangle(1, 1); // nothing changed, but the frame keeps its delay
+    }
+    return new Rectangle(minX, minY, maxX - minX + 1, maxY - minY + 1);
+  }
+
+  private static void writeFrame(ImageWriter writer, IndexColorModel palette, byte[] pixels, byte[] previous) throws IOException {
+    int width = MainPanel.WIDTH;
+    Rectangle r = getChangedBounds(pixels, previous, width, MainPanel.HEIGHT);
+    BufferedImage image = new BufferedImage(r.width, r.height, BufferedImage.TYPE_BYTE_INDEXED, palette);
+    byte[] data = ((DataBufferByte) image.getRaster().getDataBuffer()).getData();
+    for (int y = 0; y < r.height; y++) {
+      System.arraycopy(pixels, (r.y + y) * width + r.x, data, y * r.width, r.width);
+    }
+    IIOMetadata metadata = createMetadata(writer, image, r, Objects.isNull(previous));
+    writer.writeToSequence(new IIOImage(image, null, metadata), null);
+  }
+
+  private static IIOMetadata createMetadata(ImageWriter writer, BufferedImage image, Rectangle r, boolean first) throws IOException {
+    IIOMetadataNode gce = new IIOMetadataNode("GraphicControlExtension");
+    gce.setAttribute("disposalMethod", "doNotDispose");
+    gce.setAttribute("userInputFlag", "FALSE");
+    gce.setAttribute("transparentColorFlag", "FALSE");
+    gce.setAttribute("transparentColorIndex", "0");
+    gce.setAttribute("delayTime", Objects.toString(MainPanel.DELAY));
+
+    // Create animated GIF using imageio | Oracle Community
+    // https://community.oracle.com/thread/1264385
+    ImageWriteParam iwp = writer.getDefaultWriteParam();
+    IIOMetadata metadata = writer.getDefaultImageMetadata(new ImageTypeSpecifier(image), iwp);
+    String metaFormat = metadata.getNativeMetadataFormatName();
+    Node root = metadata.getAsTree(metaFormat);
+    IIOMetadataNode descriptor = new IIOMetadataNode("ImageDescriptor");
+    descriptor.setAttribute("imageLeftPosition", Objects.toString(r.x));
+    descriptor.setAttribute("imageTopPosition", Objects.toString(r.y));
+    descriptor.setAttribute("imageWidth", Objects.toString(r.width));
+    descriptor.setAttribute("imageHeight", Objects.toString(r.height));
+    descriptor.setAttribute("interlaceFlag", "FALSE");
+    root.appendChild(descriptor);
+    root.appendChild(gce);
+    if (first) {
+      IIOMetadataNode ae = new IIOMetadataNode("ApplicationExtension");
+      ae.setAttribute("applicationID", "NETSCAPE");
+      ae.setAttribute("authenticationCode", "2.0");
+      // last two bytes is an unsigned short (little endian) that
+      // indicates the the number of times to loop.
+      // 0 means loop forever.
+      ae.setUserObject(new byte[] {0x1, 0x0, 0x0});
+
+      IIOMetadataNode aes = new IIOMetadataNode("ApplicationExtensions");
+      aes.appendChild(ae);
+      root.appendChild(aes);
+    }
+    metadata.setFromTree(metaFormat, root);
+    return metadata;
+  }
+}
@@ -0,0 +1,174 @@
+// -*- mode:java; encoding:utf-8 -*-
+// vim:set fileencoding=utf-8:
+// @homepage@
+
+package example;
+
+import java.awt.EventQueue;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+// The sub directories of the recently listed directories, in a LRU cache.
+// Each cached directory is watched, a change removes it from the cache and
+// the listener is called on the EDT with the directory that should be listed again.
+// A pinned directory, e.g. one that is shown in a tree, stays watched when the LRU drops its listing.
+class DirectoryListingCache implements Closeable {
+  private static final int MAX_PREFETCH = 32;
+  private final Map<Path, List<Path>> cache;
+  private final Set<Path> pinned = new HashSet<>();
+  private final Map<Path, WatchKey> watchKeys = new ConcurrentHashMap<>();
+  private final Map<WatchKey, Path> watchDirs = new ConcurrentHashMap<>();
+  private final ExecutorService prefetcher = Executors.newSingleThreadExecutor(r -> {
+    Thread t = new Thread(r, "DirectoryListingCache");
+    t.setDaemon(true);
+    return t;
+  });
+  private final Consumer<Path> invalidated;
+  private WatchService watcher;
+
+  protected DirectoryListingCache(int maxEntries, Consumer<Path> invalidated) {
+    this.invalidated = invalidated;
+    this.cache = new LinkedHashMap<Path, List<Path>>(maxEntries * 2, .75f, true) {
+      @Override protected boolean removeEldestEntry(Map.Entry<Path, List<Path>> eldest) {
+        boolean remove = size() > maxEntries;
+        if (remove && !pinned.contains(eldest.getKey())) {
+          unwatch(eldest.getKey());
+        }
+        return remove;
+      }
+    };
+    try {
+      watcher = FileSystems.getDefault().newWatchService();
+      Thread watchThread = new Thread(this::processEvents, "DirectoryListingCache-watcher");
+      watchThread.setDaemon(true);
+      watchThread.start();
+    } catch (IOException ex) {
+      // without a WatchService the cached listings are only replaced by the LRU
+      ex.printStackTrace();
+    }
+  }
+
+  // Returns the cached listing or null, never touches the disk.
+  public synchronized List<Path> getCached(Path dir) {
+    return cache.get(dir);
+  }
+
+  public List<Path> list(Path dir) throws IOException {
+    List<Path> list = getCached(dir);
+    if (Objects.nonNull(list)) {
+      return list;
+    }
+    watch(dir);
+    List<Path> dirs = new ArrayList<>();
+    try (DirectoryStream<Path> ds = Files.newDirectoryStream(dir, p -> Files.isDirectory(p) && !Files.isHidden(p))) {
+      ds.forEach(dirs::add);
+    }
+    dirs.sort(Comparator.comparing(p -> p.getFileName().toString()));
+    List<Path> result = Collections.unmodifiableList(dirs);
+    synchronized (this) {
+      cache.put(dir, result);
+    }
+    return result;
+  }
+
+  // Lists the first sub directories in the background, they are likely to be opened next.
+  public void prefetch(Collection<Path> dirs) {
+    dirs.stream().limit(MAX_PREFETCH).forEach(dir -> prefetcher.execute(() -> {
+      try {
+        list(dir);
+      } catch (IOException ex) {
+        // not readable, the listing is reported when the directory is opened
+      }
+    }));
+  }
+
+  // Keeps the directory watched until it is unpinned.
+  public void pin(Path dir) {
+    synchronized (this) {
+      pinned.add(dir);
+    }
+    watch(dir);
+  }
+
+  public synchronized void unpin(Path dir) {
+    if (pinned.remove(dir) && !cache.containsKey(dir)) {
+      unwatch(dir);
+    }
+  }
+
+  private void watch(Path dir) {
+    if (Objects.isNull(watcher) || watchKeys.containsKey(dir)) {
+      return;
+    }
+    try {
+      WatchKey key = dir.register(watcher, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_DELETE);
+      watchKeys.put(dir, key);
+      watchDirs.put(key, dir);
+    } catch (IOException | ClosedWatchServiceException ex) {
+      // not watchable, the LRU still replaces the listing
+    }
+  }
+
+  private void unwatch(Path dir) {
+    WatchKey key = watchKeys.remove(dir);
+    if (Objects.nonNull(key)) {
+      watchDirs.remove(key);
+      key.cancel();
+    }
+  }
+
+  private void processEvents() {
+    try {
+      for (;;) {
+        WatchKey key = watcher.take();
+        Path dir = watchDirs.get(key);
+        // any event, also OVERFLOW, means the listing has to be read again
+        List<WatchEvent<?>> events = key.pollEvents();
+        if (Objects.nonNull(dir) && !events.isEmpty()) {
+          synchronized (this) {
+            cache.remove(dir);
+          }
+          EventQueue.invokeLater(() -> invalidated.accept(dir));
+        }
+        if (!key.reset() && Objects.nonNull(dir)) {
+          watchKeys.remove(dir);
+          watchDirs.remove(key);
+        }
+      }
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+    } catch (ClosedWatchServiceException ex) {
+      // closed
+    }
+  }
+
+  @Override public void close() throws IOException {
+    prefetcher.shutdownNow();
+    if (Objects.nonNull(watcher)) {
+      watcher.close();
+    }
+  }
+}
@@ -5,23 +5,39 @@
 package example;
 
 import java.awt.*;
+import java.awt.event.HierarchyEvent;
 import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import javax.swing.*;
+import javax.swing.event.TreeExpansionEvent;
 import javax.swing.event.TreeSelectionEvent;
 import javax.swing.event.TreeSelectionListener;
+import javax.swing.event.TreeWillExpandListener;
 import javax.swing.filechooser.FileSystemView;
 import javax.swing.tree.DefaultMutableTreeNode;
 import javax.swing.tree.DefaultTreeCellRenderer;
 import javax.swing.tree.DefaultTreeModel;
+import javax.swing.tree.TreeNode;
 
 public final class MainPanel extends JPanel {
   private MainPanel() {
     super(new BorderLayout());
     FileSystemView fileSystemView = FileSystemView.getFileSystemView();
     DefaultMutableTreeNode root = new DefaultMutableTreeNode();
-    DefaultTreeModel treeModel = new DefaultTreeModel(root);
+    DefaultTreeModel treeModel = new DefaultTreeModel(root, true);
     Stream.of(fileSystemView.getRoots()).forEach(fileSystemRoot -> {
       DefaultMutableTreeNode node = new DefaultMutableTreeNode(fileSystemRoot);
       root.add(node);
@@ -65,7 +81,15 @@ public final class MainPanel extends JPanel {
     tree.setRootVisible(false);
     // java - File Browser GUI - Stack Overflow
     // https://stackoverflow.com/questions/6182110/file-browser-gui
-    tree.addTreeSelectionListener(new FolderSelectionListener(fileSystemView));
+    FolderSelectionListener listener = new FolderSelectionListener(tree);
+    tree.addTreeSelectionListener(listener);
+    tree.addTreeWillExpandListener(listener);
+    tree.addHierarchyListener(e -> {
+      boolean b = (e.getChangeFlags() & HierarchyEvent.DISPLAYABILITY_CHANGED) != 0;
+      if (b && !e.getComponent().isDisplayable()) {
+        listener.close();
+      }
+    });
     tree.expandRow(0);
     // tree.setToggleClickCount(1);
 
@@ -95,76 +119,157 @@ public final class MainPanel extends JPanel {
   }
 }
 
-class FolderSelectionListener implements TreeSelectionListener {
-  // private JFrame frame = null;
-  private final FileSystemView fileSystemView;
+// Lists a directory when it is selected or expanded, the sub directories are
+// added with a single nodesWereInserted event. The listings come from a
+// DirectoryListingCache, so opening a directory again does not read the disk,
+// and a directory that changes on disk is listed again and merged into the tree.
+class FolderSelectionListener implements TreeSelectionListener, TreeWillExpandListener {
+  private static final int CACHE_SIZE = 256;
+  private final JTree tree;
+  private final DirectoryListingCache cache = new DirectoryListingCache(CACHE_SIZE, this::reload);
+  private final Map<Path, DefaultMutableTreeNode> loadedNodes = new HashMap<>();
 
-  protected FolderSelectionListener(FileSystemView fileSystemView) {
-    this.fileSystemView = fileSystemView;
+  protected FolderSelectionListener(JTree tree) {
+    this.tree = tree;
   }
 
   @Override public void valueChanged(TreeSelectionEvent e) {
-    DefaultMutableTreeNode node = (DefaultMutableTreeNode) e.getPath().getLastPathComponent();
-    if (!node.isLeaf()) {
+    load((DefaultMutableTreeNode) e.getPath().getLastPathComponent());
+  }
+
+  @Override public void treeWillExpand(TreeExpansionEvent e) {
+    load((DefaultMutableTreeNode) e.getPath().getLastPathComponent());
+  }
+
+  @Override public void treeWillCollapse(TreeExpansionEvent e) {
+    /* not needed */
+  }
+
+  public void close() {
+    try {
+      cache.close();
+    } catch (IOException ex) {
+      ex.printStackTrace();
+    }
+  }
+
+  private void load(DefaultMutableTreeNode node) {
+    Object o = node.getUserObject();
+    if (!(o instanceof File) || !((File) o).isDirectory()) {
       return;
     }
-    File parent = (File) node.getUserObject();
-    if (!parent.isDirectory()) {
+    Path dir = ((File) o).toPath();
+    if (loadedNodes.containsKey(dir) || node.getChildCount() > 0) {
       return;
     }
+    loadedNodes.put(dir, node);
+    cache.pin(dir);
+    List<Path> cached = cache.getCached(dir);
+    if (Objects.nonNull(cached)) {
+      setChildren(node, cached);
+    } else {
+      list(dir, node);
+    }
+  }
 
-    JTree tree = (JTree) e.getSource();
-    // if (frame == null) {
-    //   frame = (JFrame) SwingUtilities.getWindowAncestor(tree);
-    //   frame.setGlassPane(new LockingGlassPane());
-    // }
-    // frame.getGlassPane().setVisible(true);
+  private void reload(Path dir) {
+    DefaultMutableTreeNode node = loadedNodes.get(dir);
+    if (Objects.nonNull(node) && tree.isDisplayable()) {
+      list(dir, node);
+    }
+  }
 
-    DefaultTreeModel model = (DefaultTreeModel) tree.getModel();
-    new BackgroundTask(fileSystemView, parent) {
-      @Override protected void process(List<File> chunks) {
-        if (isCancelled()) {
+  private void list(Path dir, DefaultMutableTreeNode node) {
+    new BackgroundTask(cache, dir) {
+      @Override protected void done() {
+        if (isCancelled() || !tree.isDisplayable()) {
           return;
         }
-        if (!tree.isDisplayable()) {
-          cancel(true);
-          return;
+        try {
+          setChildren(node, get());
+        } catch (InterruptedException ex) {
+          Thread.currentThread().interrupt();
+        } catch (ExecutionException ex) {
+          // not readable
+          loadedNodes.remove(dir);
+          cache.unpin(dir);
         }
-        chunks.stream().map(DefaultMutableTreeNode::new)
-            .forEach(child -> model.insertNodeInto(child, node, node.getChildCount()));
-        // model.reload(parent); // = model.nodeStructureChanged(parent);
-        // tree.expandPath(path);
       }
     }.execute();
   }
+
+  // Removes the children that are gone and appends the new ones, one event for each.
+  private void setChildren(DefaultMutableTreeNode node, List<Path> dirs) {
+    DefaultTreeModel model = (DefaultTreeModel) tree.getModel();
+    Set<File> files = dirs.stream().map(Path::toFile).collect(Collectors.toSet());
+    Set<File> existing = new HashSet<>();
+    List<Integer> removedIndices = new ArrayList<>();
+    List<Object> removedNodes = new ArrayList<>();
+    for (int i = 0; i < node.getChildCount(); i++) {
+      DefaultMutableTreeNode child = (DefaultMutableTreeNode) node.getChildAt(i);
+      Object file = child.getUserObject();
+      if (files.contains(file)) {
+        existing.add((File) file);
+      } else {
+        removedIndices.add(i);
+        removedNodes.add(child);
+      }
+    }
+    if (!removedIndices.isEmpty()) {
+      for (int i = removedIndices.size() - 1; i >= 0; i--) {
+        node.remove(removedIndices.get(i));
+      }
+      removedNodes.forEach(n -> unload((TreeNode) n));
+      model.nodesWereRemoved(node, removedIndices.stream().mapToInt(Integer::intValue).toArray(), removedNodes.toArray());
+    }
+    int first = node.getChildCount();
+    dirs.stream().map(Path::toFile).filter(f -> !existing.contains(f))
+        .map(DefaultMutableTreeNode::new)
+        .forEach(node::add);
+    int count = node.getChildCount() - first;
+    if (count > 0) {
+      int[] indices = new int[count];
+      for (int i = 0; i < count; i++) {
+        indices[i] = first + i;
+      }
+      model.nodesWereInserted(node, indices);
+    }
+    cache.prefetch(dirs);
+  }
+
+  // Forgets the removed node and its loaded descendants, they are no longer watched.
+  private void unload(TreeNode removed) {
+    Deque<TreeNode> stack = new ArrayDeque<>();
+    stack.push(removed);
+    while (!stack.isEmpty()) {
+      TreeNode n = stack.pop();
+      Object o = ((DefaultMutableTreeNode) n).getUserObject();
+      if (o instanceof File) {
+        Path dir = ((File) o).toPath();
+        if (loadedNodes.get(dir) == n) {
+          loadedNodes.remove(dir);
+          cache.unpin(dir);
+        }
+      }
+      for (int i = 0; i < n.getChildCount(); i++) {
+        stack.push(n.getChildAt(i));
+      }
+    }
+  }
 }
 
-class BackgroundTask extends SwingWorker<String, File> {
-  private final FileSystemView fileSystemView;
-  private final File parent;
+class BackgroundTask extends SwingWorker<List<Path>, Void> {
+  private final DirectoryListingCache cache;
+  private final Path parent;
 
-  protected BackgroundTask(FileSystemView fileSystemView, File parent) {
+  protected BackgroundTask(DirectoryListingCache cache, Path parent) {
     super();
-    this.fileSystemView = fileSystemView;
+    this.cache = cache;
     this.parent = parent;
   }
 
-  @Override public String doInBackground() {
-    Stream.of(fileSystemView.getFiles(parent, true))
-        .filter(File::isDirectory)
-        .forEach(this::publish);
-    // File[] children = fileSystemView.getFiles(parent, true);
-    // for (File child: children) {
-    //   if (child.isDirectory()) {
-    //     publish(child);
-    //     // try { // Test
-    //     //   Thread.sleep(500);
-    //     // } catch (InterruptedException ex) {
-    //     //   return "Interrupted";
-    //     // }
-    //   }
-    // }
-    return "done";
+  @Override public List<Path> doInBackground() throws IOException {
+    return cache.list(parent);
   }
 }
 
@@ -5,10 +5,24 @@
 package example;
 
 import java.awt.*;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.Deque;
 import java.util.Enumeration;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import javax.swing.*;
+import javax.swing.tree.DefaultMutableTreeNode;
+import javax.swing.tree.DefaultTreeModel;
+import javax.swing.tree.ExpandVetoException;
+import javax.swing.tree.TreeModel;
 import javax.swing.tree.TreeNode;
 import javax.swing.tree.TreePath;
 
@@ -16,38 +30,94 @@ public final class MainPanel extends JPanel {
   private MainPanel() {
     super(new BorderLayout());
 
-    JTree tree = new JTree();
+    BulkExpandTree tree = new BulkExpandTree();
     // tree.setModel(makeModel());
+    JLabel label = new JLabel(" ");
 
     JButton button1 = new JButton("expand A");
-    button1.addActionListener(e -> expandAll(tree));
+    button1.addActionListener(e -> timed(label, () -> expandAll(tree)));
 
     JButton button2 = new JButton("collapse A");
-    button2.addActionListener(e -> collapseAll(tree));
+    button2.addActionListener(e -> timed(label, () -> collapseAll(tree)));
 
     JButton button3 = new JButton("expand B");
-    button3.addActionListener(e -> {
+    button3.addActionListener(e -> timed(label, () -> {
       TreeNode root = (TreeNode) tree.getModel().getRoot();
       visitAll(tree, new TreePath(root), true);
       // expandAPath(new TreePath(root));
-    });
+    }));
 
     JButton button4 = new JButton("collapse B");
-    button4.addActionListener(e -> {
+    button4.addActionListener(e -> timed(label, () -> {
       TreeNode root = (TreeNode) tree.getModel().getRoot();
       visitAll(tree, new TreePath(root), false);
+    }));
+
+    // 0: no limit
+    JSpinner depth = new JSpinner(new SpinnerNumberModel(0, 0, 99, 1));
+    JButton button5 = new JButton("expand C");
+    button5.addActionListener(e -> {
+      long start = System.nanoTime();
+      button5.setEnabled(false);
+      new ExpandTask(tree.getModel(), (Integer) depth.getValue()) {
+        @Override protected void done() {
+          button5.setEnabled(true);
+          try {
+            tree.setExpandedPaths(get());
+            label.setText(String.format("%d rows: %dms", tree.getRowCount(), (System.nanoTime() - start) / 1_000_000L));
+          } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+          } catch (ExecutionException ex) {
+            label.setText(ex.getMessage());
+          }
+        }
+      }.execute();
+    });
+
+    JButton button6 = new JButton("collapse C");
+    button6.addActionListener(e -> timed(label, tree::collapseAllPaths));
+
+    JButton button7 = new JButton("200k nodes");
+    button7.addActionListener(e -> {
+      tree.setModel(makeLargeModel(200, 1000));
+      // the rows of a large model are laid out on demand with a fixed row height
+      tree.setRowHeight(tree.getFont().getSize() + 4);
+      tree.setLargeModel(true);
     });
 
     JPanel p = new JPanel(new GridLayout(0, 1, 2, 2));
-    Stream.of(button1, button2, button3, button4).forEach(p::add);
+    Stream.of(button1, button2, button3, button4, depth, button5, button6, button7).forEach(p::add);
 
     JPanel panel = new JPanel(new BorderLayout());
     panel.add(p, BorderLayout.NORTH);
     add(panel, BorderLayout.EAST);
     add(new JScrollPane(tree));
+    add(label, BorderLayout.SOUTH);
     setPreferredSize(new Dimension(320, 240));
   }
 
+  private static void timed(JLabel label, Runnable r) {
+    long start = System.nanoTime();
+    r.run();
+    label.setText(String.format("%dms", (System.nanoTime() - start) / 1_000_000L));
+  }
+
+  private static DefaultTreeModel makeLargeModel(int sets, int items) {
+    DefaultMutableTreeNode root = new DefaultMutableTreeNode("Root");
+    for (int i = 0; i < sets; i++) {
+      DefaultMutableTreeNode set = new DefaultMutableTreeNode("Set " + i);
+      for (int j = 0; j < items; j++) {
+        DefaultMutableTreeNode item = new DefaultMutableTreeNode("Item " + j);
+        if (j % 10 == 0) {
+          item.add(new DefaultMutableTreeNode("Leaf " + j));
+        }
+        set.add(item);
+      }
+      root.add(set);
+    }
+    return new DefaultTreeModel(root);
+  }
+
   // private static DefaultTreeModel makeModel() {
   //   DefaultMutableTreeNode root = new DefaultMutableTreeNode("Root");
   //   DefaultMutableTreeNode set1 = new DefaultMutableTreeNode("Set 001");
@@ -135,3 +205,107 @@ public final class MainPanel extends JPanel {
     frame.setVisible(true);
   }
 }
+
+// Expands many paths without a TreeExpansionEvent for each of them, the UI is
+// told once to rebuild its layout cache from the expanded paths of the tree.
+class BulkExpandTree extends JTree {
+  private boolean adjusting;
+  private Collection<TreePath> orderedPaths;
+
+  // The paths are expected in pre-order, a parent before its children.
+  public void setExpandedPaths(Collection<TreePath> paths) {
+    adjusting = true;
+    try {
+      paths.forEach(path -> setExpandedState(path, true));
+    } finally {
+      adjusting = false;
+    }
+    // the layout cache inserts the rows of an expanded node after it, in pre-order
+    // these are the last rows, in the order of the Hashtable of JTree they are anywhere
+    Set<TreePath> ordered = new LinkedHashSet<>(paths);
+    Enumeration<TreePath> e = super.getExpandedDescendants(new TreePath(getModel().getRoot()));
+    if (Objects.nonNull(e)) {
+      ordered.addAll(Collections.list(e));
+    }
+    updateLayout(ordered);
+  }
+
+  public void collapseAllPaths() {
+    TreePath root = new TreePath(getModel().getRoot());
+    clearToggledPaths();
+    if (!isRootVisible()) {
+      adjusting = true;
+      try {
+        setExpandedState(root, true);
+      } finally {
+        adjusting = false;
+      }
+    }
+    if (removeDescendantSelectedPaths(root, false) && !isPathSelected(root)) {
+      addSelectionPath(root);
+    }
+    updateLayout(null);
+  }
+
+  // BasicTreeUI creates the layout of the same model again, with one pass over getExpandedDescendants(root).
+  private void updateLayout(Collection<TreePath> paths) {
+    orderedPaths = paths;
+    try {
+      firePropertyChange(TREE_MODEL_PROPERTY, null, getModel());
+    } finally {
+      orderedPaths = null;
+    }
+    treeDidChange();
+  }
+
+  @Override public Enumeration<TreePath> getExpandedDescendants(TreePath parent) {
+    if (Objects.isNull(orderedPaths)) {
+      return super.getExpandedDescendants(parent);
+    }
+    return Collections.enumeration(orderedPaths.stream()
+        .filter(parent::isDescendant)
+        .collect(Collectors.toList()));
+  }
+
+  @Override public void fireTreeWillExpand(TreePath path) throws ExpandVetoException {
+    if (!adjusting) {
+      super.fireTreeWillExpand(path);
+    }
+  }
+
+  @Override public void fireTreeExpanded(TreePath path) {
+    if (!adjusting) {
+      super.fireTreeExpanded(path);
+    }
+  }
+}
+
+// Collects the paths of the nodes that have children, up to the given depth (0: no limit).
+class ExpandTask extends SwingWorker<List<TreePath>, Void> {
+  private final TreeModel model;
+  private final int maxDepth;
+
+  protected ExpandTask(TreeModel model, int maxDepth) {
+    super();
+    this.model = model;
+    this.maxDepth = maxDepth;
+  }
+
+  @Override protected List<TreePath> doInBackground() {
+    List<TreePath> paths = new ArrayList<>();
+    Deque<TreePath> stack = new ArrayDeque<>();
+    stack.push(new TreePath(model.getRoot()));
+    while (!stack.isEmpty() && !isCancelled()) {
+      TreePath path = stack.pop();
+      Object node = path.getLastPathComponent();
+      if (model.isLeaf(node) || maxDepth > 0 && path.getPathCount() > maxDepth) {
+        continue;
+      }
+      paths.add(path);
+      for (int i = model.getChildCount(node) - 1; i >= 0; i--) {
+        stack.push(path.pathByAddingChild(model.getChild(node, i)));
+      }
+    }
+    return paths;
+  }
+}
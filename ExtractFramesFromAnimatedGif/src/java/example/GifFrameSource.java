@@ -0,0 +1,262 @@
+// -*- mode:java; encoding:utf-8 -*-
+// vim:set fileencoding=utf-8:
+// @homepage@
+
+package example;
+
+import java.awt.AlphaComposite;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.LongAdder;
+import javax.imageio.IIOImage;
+import javax.imageio.ImageReader;
+import javax.imageio.metadata.IIOMetadata;
+import javax.imageio.metadata.IIOMetadataNode;
+import javax.imageio.stream.ImageInputStream;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+
+// Decodes the frames of an animated GIF on demand. Only a few composited frames
+// are kept in a LRU cache, a frame that is not cached is composited from the
+// nearest cached frame before it, honouring the disposal method of each frame.
+// The next frame is decoded in the background after each request.
+class GifFrameSource implements Closeable {
+  private static final String STREAM_META = "javax_imageio_gif_stream_1.0";
+  private static final String IMAGE_META = "javax_imageio_gif_image_1.0";
+  private final ImageReader reader;
+  private final ImageInputStream stream;
+  private final Map<Integer, Frame> cache;
+  private final ExecutorService prefetcher = Executors.newSingleThreadExecutor(r -> {
+    Thread t = new Thread(r, "GifFrameSource");
+    t.setDaemon(true);
+    return t;
+  });
+  private final LongAdder decodeNanos = new LongAdder();
+  private final LongAdder decodedFrames = new LongAdder();
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+  private int width;
+  private int height;
+  private volatile int frameCount = -1;
+
+  protected GifFrameSource(ImageReader reader, ImageInputStream stream, int cacheSize) throws IOException {
+    this.reader = reader;
+    this.stream = stream;
+    this.cache = new LinkedHashMap<Integer, Frame>(cacheSize * 2, .75f, true) {
+      @Override protected boolean removeEldestEntry(Map.Entry<Integer, Frame> eldest) {
+        return size() > cacheSize;
+      }
+    };
+    reader.setInput(stream, false, false);
+    IIOMetadataNode screen = findNode(reader.getStreamMetadata(), STREAM_META, "LogicalScreenDescriptor");
+    width = getIntAttribute(screen, "logicalScreenWidth");
+    height = getIntAttribute(screen, "logicalScreenHeight");
+    if (width <= 0 || height <= 0) {
+      width = reader.getWidth(0);
+      height = reader.getHeight(0);
+    }
+  }
+
+  public int getWidth() {
+    return width;
+  }
+
+  public int getHeight() {
+    return height;
+  }
+
+  // The number of frames is only known after the whole stream is scanned,
+  // so this should be called off the EDT. The frames are located one by one and
+  // the lock is released between them, so the frames can be read before that.
+  public int countFrames() throws IOException {
+    for (int i = 0; frameCount < 0; i++) {
+      synchronized (this) {
+        if (frameCount < 0 && !locate(i)) {
+          frameCount = i;
+        }
+      }
+    }
+    return frameCount;
+  }
+
+  // The reader remembers the start of each frame it has found, so the scan goes on from the last one.
+  private boolean locate(int index) throws IOException {
+    try {
+      reader.getWidth(index);
+      return true;
+    } catch (IndexOutOfBoundsException ex) {
+      return false;
+    }
+  }
+
+  public int getFrameCount() {
+    return frameCount;
+  }
+
+  public synchronized boolean isCached(int index) {
+    return cache.containsKey(index);
+  }
+
+  // Returns the cached frame or null, never decodes.
+  public synchronized BufferedImage peekFrame(int index) {
+    Frame f = cache.get(index);
+    if (Objects.isNull(f)) {
+      return null;
+    }
+    hits.increment();
+    return f.image;
+  }
+
+  public BufferedImage getFrame(int index) throws IOException {
+    BufferedImage image = getFrameImpl(index);
+    prefetch(index + 1);
+    return image;
+  }
+
+  public void prefetch(int index) {
+    if ((frameCount < 0 || index < frameCount) && !prefetcher.isShutdown()) {
+      prefetcher.execute(() -> {
+        try {
+          if (!isCached(index)) {
+            getFrameImpl(index);
+          }
+        } catch (IOException | IndexOutOfBoundsException ex) {
+          // the last frame, or a broken stream that the next getFrame will report
+        }
+      });
+    }
+  }
+
+  private synchronized BufferedImage getFrameImpl(int index) throws IOException {
+    Frame cached = cache.get(index);
+    if (Objects.nonNull(cached)) {
+      hits.increment();
+      return cached.image;
+    }
+    misses.increment();
+    int from = index - 1;
+    while (from >= 0 && !cache.containsKey(from)) {
+      from--;
+    }
+    Frame previous = from >= 0 ? cache.get(from) : null;
+    for (int i = from + 1; i <= index; i++) {
+      previous = composite(i, previous);
+      cache.put(i, previous);
+    }
+    return Objects.requireNonNull(previous).image;
+  }
+
+  private Frame composite(int index, Frame previous) throws IOException {
+    long start = System.nanoTime();
+    IIOImage iio = reader.readAll(index, null);
+    decodeNanos.add(System.nanoTime() - start);
+    decodedFrames.increment();
+
+    BufferedImage canvas = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+    Graphics2D g2 = canvas.createGraphics();
+    if (Objects.nonNull(previous)) {
+      g2.drawImage(previous.getDisposed(), 0, 0, null);
+    }
+    BufferedImage base = null;
+    IIOMetadataNode gce = findNode(iio.getMetadata(), IMAGE_META, "GraphicControlExtension");
+    String disposal = Objects.nonNull(gce) ? gce.getAttribute("disposalMethod") : "none";
+    if ("restoreToPrevious".equals(disposal)) {
+      base = copy(canvas);
+    }
+    IIOMetadataNode desc = findNode(iio.getMetadata(), IMAGE_META, "ImageDescriptor");
+    Rectangle r = new Rectangle(
+        getIntAttribute(desc, "imageLeftPosition"), getIntAttribute(desc, "imageTopPosition"),
+        getIntAttribute(desc, "imageWidth"), getIntAttribute(desc, "imageHeight"));
+    g2.drawRenderedImage(iio.getRenderedImage(), AffineTransform.getTranslateInstance(r.x, r.y));
+    g2.dispose();
+    return new Frame(canvas, disposal, r, base);
+  }
+
+  public long getDecodeNanos() {
+    return decodeNanos.sum();
+  }
+
+  public long getDecodedFrames() {
+    return decodedFrames.sum();
+  }
+
+  public long getHits() {
+    return hits.sum();
+  }
+
+  public long getMisses() {
+    return misses.sum();
+  }
+
+  @Override public void close() throws IOException {
+    prefetcher.shutdownNow();
+    synchronized (this) {
+      cache.clear();
+      reader.dispose();
+      stream.close();
+    }
+  }
+
+  private static BufferedImage copy(BufferedImage src) {
+    BufferedImage dst = new BufferedImage(src.getWidth(), src.getHeight(), BufferedImage.TYPE_INT_ARGB);
+    Graphics2D g2 = dst.createGraphics();
+    g2.drawImage(src, 0, 0, null);
+    g2.dispose();
+    return dst;
+  }
+
+  private static IIOMetadataNode findNode(IIOMetadata metadata, String format, String name) {
+    if (Objects.isNull(metadata)) {
+      return null;
+    }
+    NodeList list = ((IIOMetadataNode) metadata.getAsTree(format)).getElementsByTagName(name);
+    return list.getLength() > 0 ? (IIOMetadataNode) list.item(0) : null;
+  }
+
+  private static int getIntAttribute(IIOMetadataNode node, String name) {
+    return Optional.ofNullable(node)
+        .map(n -> n.getAttributes().getNamedItem(name))
+        .map(Node::getNodeValue)
+        .map(Integer::parseInt)
+        .orElse(0);
+  }
+
+  private static final class Frame {
+    protected final BufferedImage image;
+    private final String disposal;
+    private final Rectangle bounds;
+    private final BufferedImage previous;
+
+    protected Frame(BufferedImage image, String disposal, Rectangle bounds, BufferedImage previous) {
+      this.image = image;
+      this.disposal = disposal;
+      this.bounds = bounds;
+      this.previous = previous;
+    }
+
+    // Returns the canvas that the next frame is drawn on.
+    protected BufferedImage getDisposed() {
+      if ("restoreToPrevious".equals(disposal) && Objects.nonNull(previous)) {
+        return previous;
+      } else if ("restoreToBackgroundColor".equals(disposal)) {
+        BufferedImage img = copy(image);
+        Graphics2D g2 = img.createGraphics();
+        g2.setComposite(AlphaComposite.Clear);
+        g2.fill(bounds);
+        g2.dispose();
+        return img;
+      }
+      return image;
+    }
+  }
+}
@@ -5,27 +5,35 @@
 package example;
 
 import java.awt.*;
+import java.awt.event.HierarchyEvent;
 import java.awt.image.BufferedImage;
 import java.io.IOException;
 import java.net.URL;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
 import java.util.stream.StreamSupport;
-import javax.imageio.IIOImage;
 import javax.imageio.ImageIO;
 import javax.imageio.ImageReader;
 import javax.imageio.stream.ImageInputStream;
 import javax.swing.*;
 
 public final class MainPanel extends JPanel {
+  private static final int CACHE_SIZE = 8;
+  private final JLabel frameLabel = new JLabel();
+  private final JLabel status = new JLabel(" ");
+  private final JSlider slider = new JSlider(0, 0, 0);
+  private transient GifFrameSource source;
+
   private MainPanel() {
     super(new BorderLayout());
     JLabel label = new JLabel();
     label.setIcon(new ImageIcon(getClass().getResource("duke.running.gif")));
     label.setBorder(BorderFactory.createTitledBorder("duke.running.gif"));
 
-    Box box = Box.createHorizontalBox();
-    box.setBorder(BorderFactory.createTitledBorder("Extract frames from Animated GIF"));
+    frameLabel.setHorizontalAlignment(SwingConstants.CENTER);
+    JPanel viewer = new JPanel(new BorderLayout());
+    viewer.setBorder(BorderFactory.createTitledBorder("Extract frames from Animated GIF"));
 
     // [JDK-8080225] FileInput/OutputStream/FileChannel cleanup should be improved - Java Bug System
     // https://bugs.openjdk.java.net/browse/JDK-8080225
@@ -34,16 +42,122 @@ public final class MainPanel extends JPanel {
     URL url = getClass().getResource("duke.running.gif");
     // try (InputStream is = Files.newInputStream(Paths.get(url.toURI()));
     //      ImageInputStream iis = ImageIO.createImageInputStream(is)) {
-    try (ImageInputStream iis = ImageIO.createImageInputStream(url.openStream())) {
-      loadFromStream(iis).stream().map(ImageIcon::new).map(JLabel::new).forEach(box::add);
+    try {
+      // The stream is closed by the GifFrameSource when this panel is removed.
+      source = loadFromStream(ImageIO.createImageInputStream(url.openStream()));
+      countFrames();
+      showFrame(0);
     } catch (IOException ex) {
       ex.printStackTrace();
       label.setText(ex.getMessage());
     }
+    slider.addChangeListener(e -> showFrame(slider.getValue()));
+
+    JCheckBox play = new JCheckBox("play");
+    Timer timer = new Timer(100, e -> {
+      // Only advance when the prefetched frame is ready, the EDT never waits for the decoder.
+      int next = slider.getValue() + 1 > slider.getMaximum() ? 0 : slider.getValue() + 1;
+      if (Objects.nonNull(source) && source.isCached(next)) {
+        slider.setValue(next);
+      }
+    });
+    play.addActionListener(e -> {
+      if (play.isSelected()) {
+        timer.start();
+      } else {
+        timer.stop();
+      }
+    });
+    addHierarchyListener(e -> {
+      boolean b = (e.getChangeFlags() & HierarchyEvent.DISPLAYABILITY_CHANGED) != 0;
+      if (b && !e.getComponent().isDisplayable()) {
+        timer.stop();
+        closeSource();
+      }
+    });
+
+    JPanel p = new JPanel(new BorderLayout());
+    p.add(play, BorderLayout.WEST);
+    p.add(slider);
+    p.add(status, BorderLayout.SOUTH);
+    viewer.add(frameLabel);
+    viewer.add(p, BorderLayout.SOUTH);
+
     add(label, BorderLayout.WEST);
-    add(new JScrollPane(box));
+    add(viewer);
     setPreferredSize(new Dimension(320, 240));
   }
+
+  private void countFrames() {
+    GifFrameSource src = source;
+    new SwingWorker<Integer, Void>() {
+      @Override protected Integer doInBackground() throws IOException {
+        return src.countFrames();
+      }
+
+      @Override protected void done() {
+        try {
+          slider.setMaximum(Math.max(0, get() - 1));
+        } catch (InterruptedException ex) {
+          Thread.currentThread().interrupt();
+        } catch (ExecutionException ex) {
+          ex.printStackTrace();
+          status.setText(ex.getMessage());
+        }
+      }
+    }.execute();
+  }
+
+  private void showFrame(int index) {
+    GifFrameSource src = source;
+    if (Objects.isNull(src)) {
+      return;
+    }
+    BufferedImage cached = src.peekFrame(index);
+    if (Objects.nonNull(cached)) {
+      setFrame(index, cached);
+      src.prefetch(index + 1);
+      return;
+    }
+    new SwingWorker<BufferedImage, Void>() {
+      @Override protected BufferedImage doInBackground() throws IOException {
+        return src.getFrame(index);
+      }
+
+      @Override protected void done() {
+        try {
+          setFrame(index, get());
+        } catch (InterruptedException ex) {
+          Thread.currentThread().interrupt();
+        } catch (ExecutionException ex) {
+          ex.printStackTrace();
+          status.setText(ex.getMessage());
+        }
+      }
+    }.execute();
+  }
+
+  private void setFrame(int index, BufferedImage image) {
+    if (index != slider.getValue()) {
+      return;
+    }
+    frameLabel.setIcon(new ImageIcon(image));
+    GifFrameSource src = source;
+    status.setText(String.format("%d/%d decoded: %d (%dms) hit: %d miss: %d",
+        index + 1, src.getFrameCount(), src.getDecodedFrames(), src.getDecodeNanos() / 1_000_000L,
+        src.getHits(), src.getMisses()));
+  }
+
+  private void closeSource() {
+    Optional.ofNullable(source).ifPresent(src -> {
+      try {
+        src.close();
+      } catch (IOException ex) {
+        ex.printStackTrace();
+      }
+    });
+    source = null;
+  }
   // // https://community.oracle.com/thread/1271862 Reading gif animation frame rates and such?
   // private List<BufferedImage> loadFromStream(ImageInputStream imageStream) throws IOException {
   //   String format = "gif";
@@ -69,20 +183,13 @@ public final class MainPanel extends JPanel {
   //   return list;
   // }
 
-  private static List<BufferedImage> loadFromStream(ImageInputStream imageStream) throws IOException {
+  private static GifFrameSource loadFromStream(ImageInputStream imageStream) throws IOException {
     Iterable<ImageReader> it = () -> ImageIO.getImageReaders(imageStream);
     ImageReader reader = StreamSupport.stream(it.spliterator(), false)
         .filter(MainPanel::checkGifFormat)
         .findFirst()
         .orElseThrow(() -> new IOException("Can not read image format!"));
-    reader.setInput(imageStream, false, false);
-    List<BufferedImage> list = new ArrayList<>();
-    for (int i = 0; i < reader.getNumImages(true); i++) {
-      IIOImage frame = reader.readAll(i, null);
-      list.add((BufferedImage) frame.getRenderedImage());
-    }
-    reader.dispose();
-    return list;
+    return new GifFrameSource(reader, imageStream, CACHE_SIZE);
   }
 
   private static boolean checkGifFormat(ImageReader reader) {
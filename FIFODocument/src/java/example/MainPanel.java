@@ -8,18 +8,38 @@ import java.awt.*;
 import java.awt.event.HierarchyEvent;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
 import javax.swing.*;
 import javax.swing.event.DocumentEvent;
 import javax.swing.event.DocumentListener;
+import javax.swing.event.EventListenerList;
+import javax.swing.event.UndoableEditListener;
+import javax.swing.plaf.basic.BasicTextAreaUI;
 import javax.swing.text.AttributeSet;
 import javax.swing.text.BadLocationException;
 import javax.swing.text.Document;
 import javax.swing.text.DocumentFilter;
 import javax.swing.text.Element;
 import javax.swing.text.JTextComponent;
+import javax.swing.text.PlainDocument;
+import javax.swing.text.PlainView;
+import javax.swing.text.Position;
+import javax.swing.text.Segment;
+import javax.swing.text.SimpleAttributeSet;
+import javax.swing.text.View;
+import javax.swing.text.ViewFactory;
 
 public final class MainPanel extends JPanel {
-  private final JTextArea textArea = new JTextArea();
+  private static final int MAX_LINES = 10;
+  private final JTextArea textArea = new JTextArea(new FifoDocument(MAX_LINES)) {
+    @Override public void updateUI() {
+      super.updateUI();
+      setUI(new FifoTextAreaUI());
+    }
+  };
   private final Timer timer = new Timer(200, e -> {
     String s = LocalDateTime.now(ZoneId.systemDefault()).toString();
     textArea.append(textArea.getDocument().getLength() > 0 ? "\n" + s : s);
@@ -28,7 +48,7 @@ public final class MainPanel extends JPanel {
   private MainPanel() {
     super(new BorderLayout());
     // TEST: ((AbstractDocument) textArea.getDocument()).setDocumentFilter(new FifoDocumentFilter());
-    textArea.getDocument().addDocumentListener(new FifoDocumentListener(textArea));
+    // TEST: textArea.getDocument().addDocumentListener(new FifoDocumentListener(textArea));
     textArea.setEditable(false);
 
     JButton start = new JButton("Start");
@@ -57,6 +77,32 @@ public final class MainPanel extends JPanel {
     box.add(Box.createHorizontalStrut(5));
     box.add(clear);
 
+    JComboBox<Integer> retention = new JComboBox<>(new Integer[] {1_000, 100_000, 1_000_000});
+    JLabel result = new JLabel(" ");
+    JButton benchmark = new JButton("Benchmark");
+    benchmark.addActionListener(e -> {
+      benchmark.setEnabled(false);
+      result.setText("running...");
+      new FifoBenchmark(retention.getItemAt(retention.getSelectedIndex())) {
+        @Override protected void done() {
+          try {
+            result.setText(get());
+          } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+          } catch (ExecutionException ex) {
+            result.setText(ex.getMessage());
+          }
+          benchmark.setEnabled(true);
+        }
+      }.execute();
+    });
+
+    JPanel north = new JPanel(new BorderLayout(5, 5));
+    north.add(retention, BorderLayout.WEST);
+    north.add(result);
+    north.add(benchmark, BorderLayout.EAST);
+
+    add(north, BorderLayout.NORTH);
     add(new JScrollPane(textArea));
     add(box, BorderLayout.SOUTH);
     setPreferredSize(new Dimension(320, 240));
@@ -124,11 +170,21 @@ class FifoDocumentListener implements DocumentListener {
 
 class FifoDocumentFilter extends DocumentFilter {
   private static final int MAX_LINES = 10;
+  private final int maxLines;
+
+  protected FifoDocumentFilter() {
+    this(MAX_LINES);
+  }
+
+  protected FifoDocumentFilter(int maxLines) {
+    super();
+    this.maxLines = maxLines;
+  }
 
   @Override public void insertString(DocumentFilter.FilterBypass fb, int offset, String text, AttributeSet attr) throws BadLocationException {
     fb.insertString(offset, text, attr);
     Element root = fb.getDocument().getDefaultRootElement();
-    if (root.getElementCount() > MAX_LINES) {
+    if (root.getElementCount() > maxLines) {
       fb.remove(0, root.getElement(0).getEndOffset());
     }
   }
@@ -139,3 +195,469 @@ class FifoDocumentFilter extends DocumentFilter {
   //   fb.replace(offset, length, text, attrs);
   // }
 }
+
+// Appends the same lines to a PlainDocument with a FifoDocumentFilter and to a FifoDocument.
+// Both are filled up to the retention with one insert first, so every timed append evicts a line.
+// Only the documents are measured, they are not shown in a text component.
+class FifoBenchmark extends SwingWorker<String, Void> {
+  private static final int APPENDS = 1_000;
+  private final int retention;
+
+  protected FifoBenchmark(int retention) {
+    super();
+    this.retention = retention;
+  }
+
+  @Override protected String doInBackground() throws BadLocationException {
+    PlainDocument plain = new PlainDocument();
+    plain.setDocumentFilter(new FifoDocumentFilter(retention));
+    double filter = measure(plain);
+    double ring = measure(new FifoDocument(retention));
+    return String.format("%,d lines, %,d appends: filter %,.1f ms, FifoDocument %,.1f ms", retention, APPENDS, filter, ring);
+  }
+
+  // Returns the milliseconds of the appends.
+  private double measure(Document doc) throws BadLocationException {
+    StringBuilder sb = new StringBuilder(line(0));
+    for (int i = 1; i < retention; i++) {
+      sb.append('\n').append(line(i));
+    }
+    doc.insertString(0, sb.toString(), null);
+    long start = System.nanoTime();
+    for (int i = 0; i < APPENDS && !isCancelled(); i++) {
+      doc.insertString(doc.getLength(), "\n" + line(retention + i), null);
+    }
+    return (System.nanoTime() - start) / 1_000_000d;
+  }
+
+  private static String line(int i) {
+    return String.format("2020-01-01T00:00:00.000 line %07d", i);
+  }
+}
+
+class FifoTextAreaUI extends BasicTextAreaUI {
+  @Override public View create(Element elem) {
+    JTextComponent c = getComponent();
+    if (c instanceof JTextArea && ((JTextArea) c).getLineWrap()) {
+      return super.create(elem);
+    }
+    return new FifoPlainView(elem);
+  }
+}
+
+// PlainView rescans every line when the longest line is removed, which
+// happens on almost every eviction of a log whose lines have the same width.
+// This view keeps the widest width seen until the text is cleared instead.
+class FifoPlainView extends PlainView {
+  private float width;
+
+  protected FifoPlainView(Element elem) {
+    super(elem);
+  }
+
+  @Override public float getPreferredSpan(int axis) {
+    float span = super.getPreferredSpan(axis);
+    if (axis == View.X_AXIS) {
+      width = Math.max(width, span);
+      return width;
+    }
+    return span;
+  }
+
+  @Override protected void updateDamage(DocumentEvent changes, Shape a, ViewFactory f) {
+    boolean evicted = changes.getType() == DocumentEvent.EventType.REMOVE
+        && changes.getOffset() == 0 && getDocument().getLength() > 0;
+    if (evicted) {
+      preferenceChanged(null, false, true);
+      getContainer().repaint();
+    } else {
+      if (getDocument().getLength() == 0) {
+        width = 0f;
+      }
+      super.updateDamage(changes, a, f);
+    }
+  }
+}
+
+// Append-only Document backed by a circular buffer of lines. Every offset is
+// stored as an absolute position since the document was created, so evicting
+// the oldest line only moves the base offset and does not shift the text or
+// the following line elements.
+class FifoDocument implements Document {
+  private final EventListenerList listenerList = new EventListenerList();
+  private final Map<Object, Object> properties = new HashMap<>();
+  private final Element root = new RootElement();
+  private final int maxLines;
+  private LineElement[] lines = new LineElement[16];
+  private int head;
+  private int size;
+  private long base;
+
+  protected FifoDocument(int maxLines) {
+    this.maxLines = Math.max(1, maxLines);
+    lines[0] = new LineElement(0, "");
+    size = 1;
+  }
+
+  protected LineElement getLine(int index) {
+    return lines[(head + index) % lines.length];
+  }
+
+  private void setLine(int index, LineElement line) {
+    lines[(head + index) % lines.length] = line;
+  }
+
+  private void addLine(LineElement line) {
+    if (size == lines.length) {
+      LineElement[] a = new LineElement[size * 2];
+      for (int i = 0; i < size; i++) {
+        a[i] = getLine(i);
+      }
+      lines = a;
+      head = 0;
+    }
+    size++;
+    setLine(size - 1, line);
+  }
+
+  protected int getLineIndex(int offset) {
+    long abs = base + offset;
+    int lo = 0;
+    int hi = size - 1;
+    while (lo < hi) {
+      int mid = (lo + hi + 1) >>> 1;
+      if (getLine(mid).start <= abs) {
+        lo = mid;
+      } else {
+        hi = mid - 1;
+      }
+    }
+    return lo;
+  }
+
+  @Override public int getLength() {
+    LineElement last = getLine(size - 1);
+    return (int) (last.start + last.text.length() - base);
+  }
+
+  @Override public void addDocumentListener(DocumentListener listener) {
+    listenerList.add(DocumentListener.class, listener);
+  }
+
+  @Override public void removeDocumentListener(DocumentListener listener) {
+    listenerList.remove(DocumentListener.class, listener);
+  }
+
+  @Override public void addUndoableEditListener(UndoableEditListener listener) {
+    listenerList.add(UndoableEditListener.class, listener);
+  }
+
+  @Override public void removeUndoableEditListener(UndoableEditListener listener) {
+    listenerList.remove(UndoableEditListener.class, listener);
+  }
+
+  @Override public Object getProperty(Object key) {
+    return properties.get(key);
+  }
+
+  @Override public void putProperty(Object key, Object value) {
+    if (Objects.isNull(value)) {
+      properties.remove(key);
+    } else {
+      properties.put(key, value);
+    }
+  }
+
+  // Only appending at the end is supported.
+  @Override public void insertString(int offset, String str, AttributeSet a) throws BadLocationException {
+    if (Objects.isNull(str) || str.isEmpty()) {
+      return;
+    }
+    if (offset != getLength()) {
+      throw new BadLocationException("FifoDocument can only append text", offset);
+    }
+    int index = size - 1;
+    LineElement last = getLine(index);
+    String[] texts = str.split("\n", -1);
+    LineElement[] added = new LineElement[texts.length];
+    long start = last.start;
+    for (int i = 0; i < texts.length; i++) {
+      String text = i == 0 ? last.text + texts[0] : texts[i];
+      added[i] = new LineElement(start, text);
+      start += text.length() + 1;
+    }
+    setLine(index, added[0]);
+    for (int i = 1; i < added.length; i++) {
+      addLine(added[i]);
+    }
+    fireInsertUpdate(new FifoDocumentEvent(offset, str.length(), DocumentEvent.EventType.INSERT, index, new Element[] {last}, added));
+    if (size > maxLines) {
+      removeLines(size - maxLines);
+    }
+  }
+
+  // Only whole lines from the beginning, or the whole text, can be removed.
+  @Override public void remove(int offset, int length) throws BadLocationException {
+    if (length <= 0) {
+      return;
+    }
+    if (offset == 0 && length == getLength()) {
+      LineElement last = getLine(size - 1);
+      Element[] removed = new Element[size];
+      for (int i = 0; i < size; i++) {
+        removed[i] = getLine(i);
+        setLine(i, null);
+      }
+      LineElement empty = new LineElement(last.start + last.text.length(), "");
+      head = 0;
+      size = 1;
+      lines[0] = empty;
+      base = empty.start;
+      fireRemoveUpdate(new FifoDocumentEvent(0, length, DocumentEvent.EventType.REMOVE, 0, removed, new Element[] {empty}));
+      return;
+    }
+    int count = getLineIndex(length);
+    if (offset != 0 || getLine(count).start - base != length) {
+      throw new BadLocationException("FifoDocument can only remove leading lines", offset + length);
+    }
+    removeLines(count);
+  }
+
+  private void removeLines(int count) {
+    Element[] removed = new Element[count];
+    for (int i = 0; i < count; i++) {
+      removed[i] = getLine(i);
+      setLine(i, null);
+    }
+    head = (head + count) % lines.length;
+    size -= count;
+    long start = getLine(0).start;
+    int length = (int) (start - base);
+    base = start;
+    fireRemoveUpdate(new FifoDocumentEvent(0, length, DocumentEvent.EventType.REMOVE, 0, removed, new Element[0]));
+  }
+
+  @Override public String getText(int offset, int length) throws BadLocationException {
+    Segment txt = new Segment();
+    getText(offset, length, txt);
+    return txt.toString();
+  }
+
+  @Override public void getText(int offset, int length, Segment txt) throws BadLocationException {
+    // the implied line separator after the last line can also be fetched
+    if (offset < 0 || length < 0 || offset + length > getLength() + 1) {
+      throw new BadLocationException("Invalid range", offset + length);
+    }
+    char[] buf = new char[length];
+    int index = getLineIndex(offset);
+    int column = (int) (base + offset - getLine(index).start);
+    int n = 0;
+    while (n < length) {
+      String text = getLine(index).text;
+      int count = Math.max(0, Math.min(text.length() - column, length - n));
+      text.getChars(column, column + count, buf, n);
+      n += count;
+      if (n < length) {
+        buf[n++] = '\n';
+        index++;
+        column = 0;
+      }
+    }
+    txt.array = buf;
+    txt.offset = 0;
+    txt.count = length;
+  }
+
+  @Override public Position getStartPosition() {
+    return () -> 0;
+  }
+
+  @Override public Position getEndPosition() {
+    return () -> getLength() + 1;
+  }
+
+  @Override public Position createPosition(int offs) throws BadLocationException {
+    if (offs < 0 || offs > getLength()) {
+      throw new BadLocationException("Invalid position", offs);
+    }
+    long abs = base + offs;
+    return () -> (int) Math.max(0, Math.min(abs - base, getLength()));
+  }
+
+  @Override public Element[] getRootElements() {
+    return new Element[] {root};
+  }
+
+  @Override public Element getDefaultRootElement() {
+    return root;
+  }
+
+  @Override public void render(Runnable r) {
+    r.run();
+  }
+
+  private void fireInsertUpdate(DocumentEvent e) {
+    Object[] listeners = listenerList.getListenerList();
+    for (int i = listeners.length - 2; i >= 0; i -= 2) {
+      if (listeners[i] == DocumentListener.class) {
+        ((DocumentListener) listeners[i + 1]).insertUpdate(e);
+      }
+    }
+  }
+
+  private void fireRemoveUpdate(DocumentEvent e) {
+    Object[] listeners = listenerList.getListenerList();
+    for (int i = listeners.length - 2; i >= 0; i -= 2) {
+      if (listeners[i] == DocumentListener.class) {
+        ((DocumentListener) listeners[i + 1]).removeUpdate(e);
+      }
+    }
+  }
+
+  private class RootElement implements Element {
+    @Override public Document getDocument() {
+      return FifoDocument.this;
+    }
+
+    @Override public Element getParentElement() {
+      return null;
+    }
+
+    @Override public String getName() {
+      return "paragraph";
+    }
+
+    @Override public AttributeSet getAttributes() {
+      return SimpleAttributeSet.EMPTY;
+    }
+
+    @Override public int getStartOffset() {
+      return 0;
+    }
+
+    @Override public int getEndOffset() {
+      return getLength() + 1;
+    }
+
+    @Override public int getElementIndex(int offset) {
+      return getLineIndex(Math.max(0, offset));
+    }
+
+    @Override public int getElementCount() {
+      return size;
+    }
+
+    @Override public Element getElement(int index) {
+      return index >= 0 && index < size ? getLine(index) : null;
+    }
+
+    @Override public boolean isLeaf() {
+      return false;
+    }
+  }
+
+  protected class LineElement implements Element {
+    // absolute offset of the first character, the text does not contain the line separator
+    protected final long start;
+    protected final String text;
+
+    protected LineElement(long start, String text) {
+      this.start = start;
+      this.text = text;
+    }
+
+    @Override public Document getDocument() {
+      return FifoDocument.this;
+    }
+
+    @Override public Element getParentElement() {
+      return root;
+    }
+
+    @Override public String getName() {
+      return "content";
+    }
+
+    @Override public AttributeSet getAttributes() {
+      return SimpleAttributeSet.EMPTY;
+    }
+
+    @Override public int getStartOffset() {
+      return (int) Math.max(0, start - base);
+    }
+
+    @Override public int getEndOffset() {
+      return (int) Math.max(0, start + text.length() + 1 - base);
+    }
+
+    @Override public int getElementIndex(int offset) {
+      return -1;
+    }
+
+    @Override public int getElementCount() {
+      return 0;
+    }
+
+    @Override public Element getElement(int index) {
+      return null;
+    }
+
+    @Override public boolean isLeaf() {
+      return true;
+    }
+  }
+
+  private class FifoDocumentEvent implements DocumentEvent, DocumentEvent.ElementChange {
+    private final int offset;
+    private final int length;
+    private final DocumentEvent.EventType type;
+    private final int index;
+    private final Element[] removed;
+    private final Element[] added;
+
+    protected FifoDocumentEvent(int offset, int length, DocumentEvent.EventType type, int index, Element[] removed, Element[] added) {
+      this.offset = offset;
+      this.length = length;
+      this.type = type;
+      this.index = index;
+      this.removed = removed;
+      this.added = added;
+    }
+
+    @Override public int getOffset() {
+      return offset;
+    }
+
+    @Override public int getLength() {
+      return length;
+    }
+
+    @Override public Document getDocument() {
+      return FifoDocument.this;
+    }
+
+    @Override public DocumentEvent.EventType getType() {
+      return type;
+    }
+
+    @Override public DocumentEvent.ElementChange getChange(Element elem) {
+      return Objects.equals(elem, root) ? this : null;
+    }
+
+    @Override public Element getElement() {
+      return root;
+    }
+
+    @Override public int getIndex() {
+      return index;
+    }
+
+    @Override public Element[] getChildrenRemoved() {
+      return removed.clone();
+    }
+
+    @Override public Element[] getChildrenAdded() {
+      return added.clone();
+    }
+  }
+}
@@ -0,0 +1,318 @@
+// -*- mode:java; encoding:utf-8 -*-
+// vim:set fileencoding=utf-8:
+// @homepage@
+
+package example;
+
+import java.util.Arrays;
+import java.util.Objects;
+import javax.swing.RowSorter;
+import javax.swing.event.ChangeEvent;
+import javax.swing.event.ChangeListener;
+import javax.swing.event.EventListenerList;
+import javax.swing.event.RowSorterEvent;
+import javax.swing.event.RowSorterListener;
+import javax.swing.event.TableModelEvent;
+import javax.swing.event.TableModelListener;
+import javax.swing.table.TableModel;
+
+// The sum, count, min, max and average of the integral Number columns, over the rows that
+// the RowSorter shows. The values are kept in a primitive copy, so an edit only applies
+// the difference between the old and the new value.
+// The copy is scanned again only when the filter changes which rows are shown,
+// or when the last row with the min or max value is removed or changed.
+class ColumnAggregates implements TableModelListener, RowSorterListener {
+  public enum Aggregate { SUM, COUNT, MIN, MAX, AVG }
+
+  private final EventListenerList listenerList = new EventListenerList();
+  private final TableModel model;
+  private ColumnStats[] stats;
+  private RowSorter<? extends TableModel> sorter;
+  // null: all rows are shown
+  private boolean[] included;
+  // the shown rows have to be found again
+  private boolean dirty;
+  private int rowCount;
+
+  protected ColumnAggregates(TableModel model) {
+    this.model = model;
+    reload();
+    model.addTableModelListener(this);
+  }
+
+  public void setRowSorter(RowSorter<? extends TableModel> rowSorter) {
+    if (Objects.nonNull(sorter)) {
+      sorter.removeRowSorterListener(this);
+    }
+    sorter = rowSorter;
+    if (Objects.nonNull(sorter)) {
+      sorter.addRowSorterListener(this);
+    }
+    dirty = true;
+    fireStateChanged();
+  }
+
+  public boolean isAggregated(int column) {
+    return column >= 0 && column < stats.length && Objects.nonNull(stats[column]);
+  }
+
+  // Returns null when the column is not aggregated, or for MIN, MAX and AVG of no values.
+  public Number getValue(Aggregate aggregate, int column) {
+    if (!isAggregated(column)) {
+      return null;
+    }
+    if (dirty) {
+      rescan();
+    }
+    return stats[column].getValue(aggregate);
+  }
+
+  public void addChangeListener(ChangeListener l) {
+    listenerList.add(ChangeListener.class, l);
+  }
+
+  public void removeChangeListener(ChangeListener l) {
+    listenerList.remove(ChangeListener.class, l);
+  }
+
+  protected void fireStateChanged() {
+    ChangeEvent e = new ChangeEvent(this);
+    for (ChangeListener l: listenerList.getListeners(ChangeListener.class)) {
+      l.stateChanged(e);
+    }
+  }
+
+  @Override public void tableChanged(TableModelEvent e) {
+    int first = e.getFirstRow();
+    int last = e.getLastRow();
+    if (first == TableModelEvent.HEADER_ROW || last == Integer.MAX_VALUE) {
+      reload();
+    } else if (e.getType() == TableModelEvent.INSERT) {
+      insertRows(first, last);
+    } else if (e.getType() == TableModelEvent.DELETE) {
+      deleteRows(first, last);
+    } else {
+      updateRows(first, last, e.getColumn());
+    }
+    fireStateChanged();
+  }
+
+  // A new order of the same rows does not change the aggregates.
+  @Override public void sorterChanged(RowSorterEvent e) {
+    if (e.getType() == RowSorterEvent.Type.SORTED && (Objects.nonNull(included) || isFiltered())) {
+      dirty = true;
+      fireStateChanged();
+    }
+  }
+
+  private boolean isFiltered() {
+    return Objects.nonNull(sorter) && sorter.getViewRowCount() != sorter.getModelRowCount();
+  }
+
+  private boolean isIncluded(int row) {
+    return Objects.isNull(included) || included[row];
+  }
+
+  private void reload() {
+    rowCount = model.getRowCount();
+    stats = new ColumnStats[model.getColumnCount()];
+    for (int column = 0; column < stats.length; column++) {
+      if (isIntegral(model.getColumnClass(column))) {
+        stats[column] = new ColumnStats(column, rowCount);
+        for (int row = 0; row < rowCount; row++) {
+          stats[column].read(row);
+        }
+      }
+    }
+    included = null;
+    dirty = true;
+  }
+
+  private static boolean isIntegral(Class<?> c) {
+    return c == Integer.class || c == Long.class || c == Short.class || c == Byte.class;
+  }
+
+  private void insertRows(int first, int last) {
+    int n = last - first + 1;
+    for (ColumnStats s: stats) {
+      if (Objects.nonNull(s)) {
+        s.insert(first, n);
+        for (int row = first; row <= last; row++) {
+          s.read(row);
+          if (!dirty && Objects.isNull(included) && s.present[row]) {
+            s.add(s.values[row]);
+          }
+        }
+      }
+    }
+    rowCount += n;
+    // the filter of the sorter decides if the new rows are shown
+    dirty |= Objects.nonNull(included);
+  }
+
+  private void deleteRows(int first, int last) {
+    int n = last - first + 1;
+    for (ColumnStats s: stats) {
+      if (Objects.nonNull(s)) {
+        for (int row = first; row <= last && !dirty; row++) {
+          if (isIncluded(row) && s.present[row]) {
+            s.remove(s.values[row]);
+          }
+        }
+        s.delete(first, n);
+      }
+    }
+    if (!dirty && Objects.nonNull(included)) {
+      System.arraycopy(included, last + 1, included, first, rowCount - last - 1);
+    }
+    rowCount -= n;
+  }
+
+  private void updateRows(int first, int last, int column) {
+    for (ColumnStats s: stats) {
+      if (Objects.isNull(s) || column != TableModelEvent.ALL_COLUMNS && column != s.column) {
+        continue;
+      }
+      for (int row = first; row <= last; row++) {
+        boolean apply = !dirty && isIncluded(row);
+        if (apply && s.present[row]) {
+          s.remove(s.values[row]);
+        }
+        s.read(row);
+        if (apply && s.present[row]) {
+          s.add(s.values[row]);
+        }
+      }
+    }
+  }
+
+  private void rescan() {
+    included = null;
+    if (isFiltered()) {
+      included = new boolean[rowCount];
+      for (int i = 0; i < sorter.getViewRowCount(); i++) {
+        included[sorter.convertRowIndexToModel(i)] = true;
+      }
+    }
+    for (ColumnStats s: stats) {
+      if (Objects.nonNull(s)) {
+        s.clear();
+        for (int row = 0; row < rowCount; row++) {
+          if (isIncluded(row) && s.present[row]) {
+            s.add(s.values[row]);
+          }
+        }
+      }
+    }
+    dirty = false;
+  }
+
+  private final class ColumnStats {
+    private final int column;
+    private long[] values;
+    // false: the cell is null or not a Number, it is not counted
+    private boolean[] present;
+    private long count;
+    private long sum;
+    private long min;
+    private long max;
+    private long minCount;
+    private long maxCount;
+    private boolean extremaDirty;
+
+    protected ColumnStats(int column, int capacity) {
+      this.column = column;
+      this.values = new long[Math.max(16, capacity)];
+      this.present = new boolean[values.length];
+    }
+
+    protected void read(int row) {
+      Object o = model.getValueAt(row, column);
+      present[row] = o instanceof Number;
+      values[row] = present[row] ? ((Number) o).longValue() : 0L;
+    }
+
+    protected void insert(int first, int n) {
+      if (rowCount + n > values.length) {
+        int length = Math.max(values.length * 2, rowCount + n);
+        values = Arrays.copyOf(values, length);
+        present = Arrays.copyOf(present, length);
+      }
+      System.arraycopy(values, first, values, first + n, rowCount - first);
+      System.arraycopy(present, first, present, first + n, rowCount - first);
+    }
+
+    protected void delete(int first, int n) {
+      System.arraycopy(values, first + n, values, first, rowCount - first - n);
+      System.arraycopy(present, first + n, present, first, rowCount - first - n);
+    }
+
+    protected void clear() {
+      count = 0L;
+      sum = 0L;
+      extremaDirty = false;
+    }
+
+    protected void add(long v) {
+      count++;
+      sum += v;
+      if (extremaDirty) {
+        return;
+      }
+      if (count == 1L || v < min) {
+        min = v;
+        minCount = 1L;
+      } else if (v == min) {
+        minCount++;
+      }
+      if (count == 1L || v > max) {
+        max = v;
+        maxCount = 1L;
+      } else if (v == max) {
+        maxCount++;
+      }
+    }
+
+    protected void remove(long v) {
+      count--;
+      sum -= v;
+      if (v == min) {
+        minCount--;
+      }
+      if (v == max) {
+        maxCount--;
+      }
+      extremaDirty |= minCount == 0L || maxCount == 0L;
+    }
+
+    private void rescanExtrema() {
+      count = 0L;
+      sum = 0L;
+      extremaDirty = false;
+      for (int row = 0; row < rowCount; row++) {
+        if (isIncluded(row) && present[row]) {
+          add(values[row]);
+        }
+      }
+    }
+
+    protected Number getValue(Aggregate aggregate) {
+      switch (aggregate) {
+        case SUM:
+          return sum;
+        case COUNT:
+          return count;
+        case AVG:
+          return count == 0L ? null : (double) sum / count;
+        default:
+          if (count == 0L) {
+            return null;
+          }
+          if (extremaDirty) {
+            rescanExtrema();
+          }
+          return aggregate == Aggregate.MIN ? min : max;
+      }
+    }
+  }
+}
@@ -5,13 +5,15 @@
 package example;
 
 import java.awt.*;
-import java.util.stream.IntStream;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.concurrent.ThreadLocalRandom;
 import javax.swing.*;
-import javax.swing.event.TableModelEvent;
+import javax.swing.table.AbstractTableModel;
 import javax.swing.table.DefaultTableCellRenderer;
 import javax.swing.table.DefaultTableModel;
 import javax.swing.table.TableCellRenderer;
-import javax.swing.table.TableColumnModel;
 import javax.swing.table.TableModel;
 import javax.swing.table.TableRowSorter;
 
@@ -21,76 +23,69 @@ public final class MainPanel extends JPanel {
 
     String[] columnNames = {"aaa", "bbb"};
     Object[][] data = {
-      {Integer.MIN_VALUE, Integer.MIN_VALUE},
       {1, 1}, {1, 2}, {1, -1}, {1, 3}, {1, 0},
-      {1, 5}, {1, 4}, {1, -5}, {1, 0}, {1, 6},
-      {Integer.MAX_VALUE, Integer.MAX_VALUE}
+      {1, 5}, {1, 4}, {1, -5}, {1, 0}, {1, 6}
     };
-    TableModel model = new DefaultTableModel(data, columnNames) {
+    DefaultTableModel model = new DefaultTableModel(data, columnNames) {
       @Override public Class<?> getColumnClass(int column) {
         return Integer.class; // getValueAt(0, column).getClass();
       }
-
-      @Override public boolean isCellEditable(int row, int column) {
-        return row > 0 && row != getRowCount() - 1;
-      }
     };
     JTable table = new JTable(model);
-    RowFilter<TableModel, Integer> filter = new RowFilter<TableModel, Integer>() {
-      @Override public boolean include(Entry<? extends TableModel, ? extends Integer> entry) {
-        return 0 != table.convertRowIndexToView(entry.getIdentifier());
-      }
-    };
-    TableRowSorter<TableModel> s = new TableRowSorter<TableModel>(model) {
-      @Override public void toggleSortOrder(int column) {
-        RowFilter<? super TableModel, ? super Integer> f = getRowFilter();
-        setRowFilter(null);
-        super.toggleSortOrder(column);
-        setRowFilter(f);
-      }
-    };
-    s.setRowFilter(filter);
-    // s.setSortsOnUpdates(true);
+    TableRowSorter<TableModel> s = new TableRowSorter<>(model);
     s.toggleSortOrder(1);
     table.setRowSorter(s);
 
-    model.addTableModelListener(e -> {
-      if (e.getType() == TableModelEvent.UPDATE) {
-        table.repaint();
-      }
-    });
+    // The summary rows are a second JTable with the same TableColumnModel below the table,
+    // they stay in place while the rows are sorted or filtered.
+    ColumnAggregates aggregates = new ColumnAggregates(model);
+    aggregates.setRowSorter(s);
+    SummaryTableModel summaryModel = new SummaryTableModel(aggregates, model,
+        ColumnAggregates.Aggregate.SUM, ColumnAggregates.Aggregate.AVG,
+        ColumnAggregates.Aggregate.MIN, ColumnAggregates.Aggregate.MAX);
     TableCellRenderer renderer = new DefaultTableCellRenderer() {
       @Override public Component getTableCellRendererComponent(JTable table, Object value, boolean isSelected, boolean hasFocus, int row, int column) {
-        JLabel l;
-        TableModel m = table.getModel();
-        if (row == m.getRowCount() - 2) {
-          // int total = getSum(model, table.convertColumnIndexToModel(column));
-          int total = IntStream.range(1, m.getRowCount() - 1).map(i -> (Integer) m.getValueAt(i, column)).sum();
-          l = (JLabel) super.getTableCellRendererComponent(table, total, isSelected, hasFocus, row, column);
-          l.setBackground(Color.ORANGE);
-        } else {
-          l = (JLabel) super.getTableCellRendererComponent(table, value, isSelected, hasFocus, row, column);
-          l.setBackground(Color.WHITE);
-        }
+        String name = summaryModel.getAggregate(row).toString().toLowerCase(Locale.ENGLISH);
+        String text = Objects.nonNull(value) ? name + ": " + value : "";
+        JLabel l = (JLabel) super.getTableCellRendererComponent(table, text, false, false, row, column);
+        l.setHorizontalAlignment(SwingConstants.RIGHT);
+        l.setBackground(Color.ORANGE);
         l.setForeground(Color.BLACK);
         return l;
       }
     };
-    TableColumnModel cm = table.getColumnModel();
-    for (int i = 0; i < cm.getColumnCount(); i++) {
-      cm.getColumn(i).setCellRenderer(renderer);
-    }
+    JTable summary = new JTable(summaryModel, table.getColumnModel()) {
+      @Override public TableCellRenderer getCellRenderer(int row, int column) {
+        return renderer;
+      }
+    };
+    summary.setAutoResizeMode(JTable.AUTO_RESIZE_OFF);
+    summary.setFocusable(false);
+    summary.setRowSelectionAllowed(false);
+
+    JCheckBox check = new JCheckBox("bbb >= 0");
+    check.addActionListener(e -> s.setRowFilter(check.isSelected() ? RowFilter.numberFilter(RowFilter.ComparisonType.AFTER, -1, 1) : null));
+
+    JButton button = new JButton("1,000,000 rows");
+    button.addActionListener(e -> {
+      ThreadLocalRandom r = ThreadLocalRandom.current();
+      Object[][] rows = new Object[1_000_000][];
+      Arrays.setAll(rows, i -> new Object[] {r.nextInt(100), r.nextInt(-100, 100)});
+      model.setDataVector(rows, columnNames);
+    });
+
+    JPanel p = new JPanel(new FlowLayout(FlowLayout.LEADING, 2, 2));
+    p.add(check);
+    p.add(button);
+
+    JPanel south = new JPanel(new BorderLayout());
+    south.add(summary, BorderLayout.NORTH);
+    south.add(p, BorderLayout.SOUTH);
 
     add(new JScrollPane(table));
+    add(south, BorderLayout.SOUTH);
     setPreferredSize(new Dimension(320, 240));
   }
-  // protected static int getSum(DefaultTableModel model, int column) {
-  //   int counter = 0;
-  //   for (int i = 1; i < model.getRowCount() - 1; i++) {
-  //     counter += (Integer) model.getValueAt(i, column);
-  //   }
-  //   return counter;
-  // }
 
   public static void main(String[] args) {
     EventQueue.invokeLater(MainPanel::createAndShowGui);
@@ -111,3 +106,40 @@ public final class MainPanel extends JPanel {
     frame.setVisible(true);
   }
 }
+
+// One row for each aggregate, the cells are read from the ColumnAggregates.
+class SummaryTableModel extends AbstractTableModel {
+  private static final long serialVersionUID = 1L;
+  private final transient ColumnAggregates aggregates;
+  private final transient TableModel model;
+  private final ColumnAggregates.Aggregate[] rows;
+
+  protected SummaryTableModel(ColumnAggregates aggregates, TableModel model, ColumnAggregates.Aggregate... rows) {
+    super();
+    this.aggregates = aggregates;
+    this.model = model;
+    this.rows = rows.clone();
+    aggregates.addChangeListener(e -> fireTableRowsUpdated(0, getRowCount() - 1));
+  }
+
+  public ColumnAggregates.Aggregate getAggregate(int row) {
+    return rows[row];
+  }
+
+  @Override public int getRowCount() {
+    return rows.length;
+  }
+
+  @Override public int getColumnCount() {
+    return model.getColumnCount();
+  }
+
+  @Override public String getColumnName(int column) {
+    return model.getColumnName(column);
+  }
+
+  @Override public Object getValueAt(int row, int column) {
+    Number value = aggregates.getValue(rows[row], column);
+    return value instanceof Double ? String.format("%.2f", value) : value;
+  }
+}
@@ -7,6 +7,9 @@ package example;
 import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.regex.Matcher;
@@ -20,6 +23,7 @@ import javax.swing.plaf.LayerUI;
 import javax.swing.text.BadLocationException;
 import javax.swing.text.DefaultHighlighter.DefaultHighlightPainter;
 import javax.swing.text.Document;
+import javax.swing.text.Element;
 import javax.swing.text.Highlighter;
 import javax.swing.text.Highlighter.HighlightPainter;
 import javax.swing.text.JTextComponent;
@@ -49,6 +53,15 @@ public final class MainPanel extends JPanel {
   private final JCheckBox checkCase = new JCheckBox("Match case");
   private final JCheckBox checkWord = new JCheckBox("Match whole word only");
   private final PlaceholderLayerUI<JTextComponent> layerUI = new PlaceholderLayerUI<>();
+  // Only the matches around the visible area are added to the Highlighter.
+  private static final int MAX_HIGHLIGHTS = 1000;
+  private static final int WINDOW_PAGES = 2;
+  private final MatchList matches = new MatchList();
+  private final List<Object> highlightTags = new ArrayList<>();
+  private int highlightFrom = -1;
+  private int highlightTo = -1;
+  private transient Pattern pattern;
+  private transient SearchTask task;
   public int current;
 
   private MainPanel() {
@@ -64,6 +77,7 @@ public final class MainPanel extends JPanel {
 
     HighlightHandler handler = new HighlightHandler();
     field.getDocument().addDocumentListener(handler);
+    textArea.getDocument().addDocumentListener(new DamageHandler());
     Stream.of(prevButton, nextButton, checkCase, checkWord).forEach(b -> {
       b.setFocusable(false);
       b.addActionListener(handler);
@@ -85,8 +99,11 @@ public final class MainPanel extends JPanel {
 
     EventQueue.invokeLater(this::changeHighlight);
 
+    JScrollPane scroll = new JScrollPane(textArea);
+    scroll.getViewport().addChangeListener(e -> updateHighlights(false));
+
     add(sp, BorderLayout.NORTH);
-    add(new JScrollPane(textArea));
+    add(scroll);
     setPreferredSize(new Dimension(320, 240));
   }
 
@@ -118,51 +135,223 @@ public final class MainPanel extends JPanel {
     }
   }
 
+  // The pattern changed: the whole document is scanned again in the background.
   protected void changeHighlight() {
     field.setBackground(Color.WHITE);
+    pattern = getPattern().orElse(null);
+    current = 0;
+    startSearch();
+  }
+
+  private void startSearch() {
+    Optional.ofNullable(task).ifPresent(t -> t.cancel(true));
+    task = null;
+    matches.clear();
+    updateHighlights(true);
+    updateLabel();
+    if (Objects.nonNull(pattern)) {
+      task = new SearchTask(textArea.getDocument(), pattern);
+      task.execute();
+    }
+  }
+
+  private void updateLabel() {
+    JLabel label = layerUI.hint;
+    int hits = matches.size();
+    boolean searching = Objects.nonNull(task);
+    label.setOpaque(hits == 0 && !searching);
+    String more = searching ? "+" : "";
+    label.setText(String.format("%02d / %02d%s%n", hits == 0 ? 0 : current + 1, hits, more));
+    field.repaint();
+  }
+
+  protected void moveCurrent(int direction) {
+    int hits = matches.size();
+    if (hits == 0) {
+      return;
+    }
+    current = (current + direction + hits) % hits;
+    scrollToCurrent();
+    updateLabel();
+  }
+
+  private void scrollToCurrent() {
+    try {
+      scrollToCenter(textArea, matches.getStart(current));
+    } catch (BadLocationException ex) {
+      // should never happen
+      RuntimeException wrap = new StringIndexOutOfBoundsException(ex.offsetRequested());
+      wrap.initCause(ex);
+      throw wrap;
+    }
+    updateHighlights(true);
+  }
+
+  // Replaces the highlights when the visible area leaves the highlighted window.
+  protected void updateHighlights(boolean force) {
+    Rectangle r = textArea.getVisibleRect();
+    int visibleFrom = textArea.viewToModel(r.getLocation());
+    int visibleTo = textArea.viewToModel(new Point(r.x + r.width, r.y + r.height));
+    // Java 9: int visibleFrom = textArea.viewToModel2D(r.getLocation());
+    if (!force && highlightFrom <= visibleFrom && visibleTo <= highlightTo) {
+      return;
+    }
     Highlighter highlighter = textArea.getHighlighter();
-    highlighter.removeAllHighlights();
-    Document doc = textArea.getDocument();
-    getPattern().ifPresent(pattern -> {
-      try {
-        Matcher matcher = pattern.matcher(doc.getText(0, doc.getLength()));
-        int pos = 0;
-        while (matcher.find(pos) && !matcher.group().isEmpty()) {
-          int start = matcher.start();
-          int end = matcher.end();
-          highlighter.addHighlight(start, end, highlightPainter);
-          pos = end;
+    highlightTags.forEach(highlighter::removeHighlight);
+    highlightTags.clear();
+    int page = Math.max(1, r.height);
+    highlightFrom = textArea.viewToModel(new Point(0, r.y - page * WINDOW_PAGES));
+    highlightTo = textArea.viewToModel(new Point(r.x + r.width, r.y + page * (WINDOW_PAGES + 1)));
+    int size = matches.size();
+    try {
+      for (int i = matches.indexOf(highlightFrom); i < size && matches.getStart(i) <= highlightTo; i++) {
+        if (highlightTags.size() >= MAX_HIGHLIGHTS) {
+          highlightTo = matches.getStart(i);
+          break;
         }
-      } catch (BadLocationException ex) {
-        // should never happen
-        RuntimeException wrap = new StringIndexOutOfBoundsException(ex.offsetRequested());
-        wrap.initCause(ex);
-        throw wrap;
+        HighlightPainter painter = i == current ? currentPainter : highlightPainter;
+        highlightTags.add(highlighter.addHighlight(matches.getStart(i), matches.getEnd(i), painter));
       }
-    });
-    JLabel label = layerUI.hint;
-    Highlighter.Highlight[] array = highlighter.getHighlights();
-    int hits = array.length;
-    if (hits == 0) {
-      current = -1;
-      label.setOpaque(true);
-    } else {
-      current = (current + hits) % hits;
-      label.setOpaque(false);
-      Highlighter.Highlight hh = highlighter.getHighlights()[current];
-      highlighter.removeHighlight(hh);
+    } catch (BadLocationException ex) {
+      // should never happen
+      RuntimeException wrap = new StringIndexOutOfBoundsException(ex.offsetRequested());
+      wrap.initCause(ex);
+      throw wrap;
+    }
+  }
+
+  // Returns the matches as {start0, end0, start1, end1, ...} that start in [from, to).
+  // The text is read in the Document's read lock, so this can be called off the EDT.
+  protected static int[] scan(Document doc, Pattern pattern, int from, int to) {
+    int context = 16;
+    int overlap = 1024;
+    int[][] result = new int[1][];
+    doc.render(() -> {
+      int length = doc.getLength();
+      int readStart = Math.max(0, from - context);
+      int readEnd = Math.min(length, to + overlap);
+      String text;
       try {
-        highlighter.addHighlight(hh.getStartOffset(), hh.getEndOffset(), currentPainter);
-        scrollToCenter(textArea, hh.getStartOffset());
+        text = doc.getText(readStart, Math.max(0, readEnd - readStart));
       } catch (BadLocationException ex) {
-        // should never happen
-        RuntimeException wrap = new StringIndexOutOfBoundsException(ex.offsetRequested());
-        wrap.initCause(ex);
-        throw wrap;
+        result[0] = new int[0];
+        return;
+      }
+      Matcher matcher = pattern.matcher(text);
+      matcher.useTransparentBounds(true).useAnchoringBounds(false);
+      matcher.region(Math.min(from - readStart, text.length()), text.length());
+      int[] found = new int[16];
+      int n = 0;
+      while (matcher.find()) {
+        int start = matcher.start() + readStart;
+        if (start >= to) {
+          break;
+        }
+        if (matcher.end() == matcher.start()) {
+          continue;
+        }
+        if (n + 2 > found.length) {
+          found = Arrays.copyOf(found, found.length * 2);
+        }
+        found[n++] = start;
+        found[n++] = matcher.end() + readStart;
+      }
+      result[0] = Arrays.copyOf(found, n);
+    });
+    return result[0];
+  }
+
+  private final class SearchTask extends SwingWorker<Void, int[]> {
+    private static final int CHUNK_SIZE = 1 << 16;
+    private final Document doc;
+    private final Pattern pattern;
+
+    protected SearchTask(Document doc, Pattern pattern) {
+      super();
+      this.doc = doc;
+      this.pattern = pattern;
+    }
+
+    @Override protected Void doInBackground() {
+      int pos = 0;
+      while (pos < doc.getLength() && !isCancelled()) {
+        int to = pos + CHUNK_SIZE;
+        int[] found = scan(doc, pattern, pos, to);
+        if (found.length > 0) {
+          publish(found);
+          to = Math.max(to, found[found.length - 1]);
+        }
+        pos = to;
+      }
+      return null;
+    }
+
+    @Override protected void process(List<int[]> chunks) {
+      if (isCancelled() || !Objects.equals(task, this)) {
+        return;
+      }
+      boolean first = matches.size() == 0;
+      chunks.forEach(matches::addAll);
+      if (first && matches.size() > 0) {
+        scrollToCurrent();
+      } else {
+        updateHighlights(true);
+      }
+      updateLabel();
+    }
+
+    @Override protected void done() {
+      if (Objects.equals(task, this)) {
+        task = null;
+        updateLabel();
       }
     }
-    label.setText(String.format("%02d / %02d%n", current + 1, hits));
-    field.repaint();
+  }
+
+  // Edits of the text only rescan the damaged lines, the other matches are shifted.
+  private class DamageHandler implements DocumentListener {
+    @Override public void changedUpdate(DocumentEvent e) {
+      /* not needed */
+    }
+
+    @Override public void insertUpdate(DocumentEvent e) {
+      if (Objects.isNull(pattern)) {
+        return;
+      }
+      if (Objects.nonNull(task)) {
+        startSearch();
+        return;
+      }
+      int offset = e.getOffset();
+      matches.shift(offset, e.getLength());
+      repair(offset, offset + e.getLength());
+    }
+
+    @Override public void removeUpdate(DocumentEvent e) {
+      if (Objects.isNull(pattern)) {
+        return;
+      }
+      if (Objects.nonNull(task)) {
+        startSearch();
+        return;
+      }
+      int offset = e.getOffset();
+      matches.remove(offset, offset + e.getLength());
+      matches.shift(offset + e.getLength(), -e.getLength());
+      repair(offset, offset);
+    }
+
+    private void repair(int from, int to) {
+      Document doc = textArea.getDocument();
+      Element root = doc.getDefaultRootElement();
+      int lineStart = root.getElement(root.getElementIndex(from)).getStartOffset();
+      int lineEnd = Math.min(doc.getLength(), root.getElement(root.getElementIndex(to)).getEndOffset());
+      matches.remove(lineStart, lineEnd);
+      matches.insertAll(scan(doc, pattern, lineStart, lineEnd));
+      current = Math.max(0, Math.min(current, matches.size() - 1));
+      updateHighlights(true);
+      updateLabel();
+    }
   }
 
   private class HighlightHandler implements DocumentListener, ActionListener {
@@ -183,9 +372,11 @@ public final class MainPanel extends JPanel {
       if (o instanceof AbstractButton) {
         String cmd = ((AbstractButton) o).getActionCommand();
         if ("prev".equals(cmd)) {
-          current--;
+          moveCurrent(-1);
+          return;
         } else if ("next".equals(cmd)) {
-          current++;
+          moveCurrent(1);
+          return;
         }
       }
       changeHighlight();
@@ -212,6 +403,113 @@ public final class MainPanel extends JPanel {
   }
 }
 
+// Sorted, non-overlapping match offsets in primitive arrays.
+class MatchList {
+  private int[] starts = new int[64];
+  private int[] ends = new int[64];
+  private int size;
+
+  public int size() {
+    return size;
+  }
+
+  public int getStart(int index) {
+    return starts[index];
+  }
+
+  public int getEnd(int index) {
+    return ends[index];
+  }
+
+  public void clear() {
+    size = 0;
+  }
+
+  private void ensureCapacity(int capacity) {
+    if (capacity > starts.length) {
+      int newLength = Math.max(capacity, starts.length * 2);
+      starts = Arrays.copyOf(starts, newLength);
+      ends = Arrays.copyOf(ends, newLength);
+    }
+  }
+
+  // Returns the index of the first match that ends after the offset.
+  public int indexOf(int offset) {
+    int lo = 0;
+    int hi = size;
+    while (lo < hi) {
+      int mid = (lo + hi) >>> 1;
+      if (ends[mid] <= offset) {
+        lo = mid + 1;
+      } else {
+        hi = mid;
+      }
+    }
+    return lo;
+  }
+
+  private int lowerBound(int offset) {
+    int lo = 0;
+    int hi = size;
+    while (lo < hi) {
+      int mid = (lo + hi) >>> 1;
+      if (starts[mid] < offset) {
+        lo = mid + 1;
+      } else {
+        hi = mid;
+      }
+    }
+    return lo;
+  }
+
+  // Appends the {start, end, ...} pairs found after the last match.
+  public void addAll(int[] pairs) {
+    int n = pairs.length / 2;
+    ensureCapacity(size + n);
+    for (int i = 0; i < n; i++) {
+      starts[size + i] = pairs[2 * i];
+      ends[size + i] = pairs[2 * i + 1];
+    }
+    size += n;
+  }
+
+  // Inserts the {start, end, ...} pairs found in a range that has no matches.
+  public void insertAll(int[] pairs) {
+    int n = pairs.length / 2;
+    if (n == 0) {
+      return;
+    }
+    ensureCapacity(size + n);
+    int idx = lowerBound(pairs[0]);
+    System.arraycopy(starts, idx, starts, idx + n, size - idx);
+    System.arraycopy(ends, idx, ends, idx + n, size - idx);
+    for (int i = 0; i < n; i++) {
+      starts[idx + i] = pairs[2 * i];
+      ends[idx + i] = pairs[2 * i + 1];
+    }
+    size += n;
+  }
+
+  // Removes the matches that overlap [from, to).
+  public void remove(int from, int to) {
+    int i0 = indexOf(from);
+    int i1 = lowerBound(to);
+    if (i0 < i1) {
+      System.arraycopy(starts, i1, starts, i0, size - i1);
+      System.arraycopy(ends, i1, ends, i0, size - i1);
+      size -= i1 - i0;
+    }
+  }
+
+  // Moves the matches that start at or after the offset by delta.
+  public void shift(int offset, int delta) {
+    for (int i = lowerBound(offset); i < size; i++) {
+      starts[i] += delta;
+      ends[i] += delta;
+    }
+  }
+}
+
 class PlaceholderLayerUI<V extends JTextComponent> extends LayerUI<V> {
   public final JLabel hint = new JLabel() {
     @Override public void updateUI() {
@@ -7,10 +7,12 @@ package example;
 import java.awt.*;
 import java.awt.event.ComponentAdapter;
 import java.awt.event.ComponentEvent;
-import java.util.Objects;
+import java.awt.event.HierarchyEvent;
+import java.util.Collections;
 import javax.swing.*;
 import javax.swing.event.DocumentEvent;
 import javax.swing.event.DocumentListener;
+import javax.swing.text.BadLocationException;
 import javax.swing.text.Element;
 
 public final class MainPanel extends JPanel {
@@ -18,10 +20,45 @@ public final class MainPanel extends JPanel {
     super(new BorderLayout());
     JTextArea textArea = new JTextArea();
     JScrollPane scroll = new JScrollPane(textArea);
-    scroll.setRowHeaderView(new LineNumberView(textArea));
+    LineNumberView lineNumberView = new LineNumberView(textArea);
+    scroll.setRowHeaderView(lineNumberView);
     textArea.setText("aaa aaa aaa\nbbb bbb bbb bbb bbb\n\n\n\n\nccc ccc ccc ccc");
     textArea.setBorder(BorderFactory.createEmptyBorder(0, 2, 0, 0));
+
+    JCheckBox relative = new JCheckBox("relative");
+    relative.addActionListener(e -> lineNumberView.setRelative(((JCheckBox) e.getSource()).isSelected()));
+
+    JCheckBox wrap = new JCheckBox("LineWrap");
+    wrap.addActionListener(e -> textArea.setLineWrap(((JCheckBox) e.getSource()).isSelected()));
+
+    JButton button = new JButton("1,000,000 lines");
+    button.addActionListener(e -> textArea.setText(String.join("\n", Collections.nCopies(1_000_000, "aaa bbb ccc"))));
+
+    JLabel label = new JLabel(" ");
+    Timer timer = new Timer(500, e -> label.setText(String.format(
+        "paint: %dus (max %dus)", lineNumberView.getLastPaintNanos() / 1000, lineNumberView.getMaxPaintNanos() / 1000)));
+    addHierarchyListener(e -> {
+      if ((e.getChangeFlags() & HierarchyEvent.DISPLAYABILITY_CHANGED) != 0) {
+        if (e.getComponent().isDisplayable()) {
+          timer.start();
+        } else {
+          timer.stop();
+        }
+      }
+    });
+
+    Box box = Box.createHorizontalBox();
+    box.add(relative);
+    box.add(wrap);
+    box.add(Box.createHorizontalGlue());
+    box.add(button);
+
+    JPanel p = new JPanel(new BorderLayout());
+    p.add(box);
+    p.add(label, BorderLayout.SOUTH);
+
     add(scroll);
+    add(p, BorderLayout.SOUTH);
     setPreferredSize(new Dimension(320, 240));
   }
 
@@ -50,6 +87,7 @@ public final class MainPanel extends JPanel {
 // Modified by: TERAI Atsuhiro
 class LineNumberView extends JComponent {
   private static final int MARGIN = 5;
+  private static final int MIN_DIGITS = 3;
   private final JTextArea textArea;
   private final FontMetrics fontMetrics;
   // private final int topInset;
@@ -57,6 +95,18 @@ class LineNumberView extends JComponent {
   private final int fontHeight;
   private final int fontDescent;
   private final int fontLeading;
+  // advances of '0' to '9', the widest one is used for the gutter width
+  private final int[] digitAdvances = new int[10];
+  private final int maxDigitAdvance;
+  // reused in paintComponent, so painting does not allocate a String per line
+  private final char[] digitBuffer = new char[11];
+  private final Rectangle lineRect = new Rectangle();
+  private int digits;
+  private int componentWidth;
+  private boolean relative;
+  private int caretLine;
+  private long lastPaintNanos;
+  private long maxPaintNanos;
 
   protected LineNumberView(JTextArea textArea) {
     super();
@@ -68,13 +118,21 @@ class LineNumberView extends JComponent {
     fontDescent = fontMetrics.getDescent();
     fontLeading = fontMetrics.getLeading();
     // topInset = textArea.getInsets().top;
+    int max = 0;
+    for (int i = 0; i < digitAdvances.length; i++) {
+      digitAdvances[i] = fontMetrics.charWidth((char) ('0' + i));
+      max = Math.max(max, digitAdvances[i]);
+    }
+    maxDigitAdvance = max;
 
     textArea.getDocument().addDocumentListener(new DocumentListener() {
       @Override public void insertUpdate(DocumentEvent e) {
+        updateWidth();
         repaint();
       }
 
       @Override public void removeUpdate(DocumentEvent e) {
+        updateWidth();
         repaint();
       }
 
@@ -88,6 +146,13 @@ class LineNumberView extends JComponent {
         repaint();
       }
     });
+    textArea.addCaretListener(e -> {
+      int line = getLineOfOffset(e.getDot());
+      if (relative && line != caretLine) {
+        repaint();
+      }
+      caretLine = line;
+    });
     Insets i = textArea.getInsets();
     setBorder(BorderFactory.createCompoundBorder(
         BorderFactory.createMatteBorder(0, 0, 0, 1, Color.GRAY),
@@ -95,31 +160,66 @@ class LineNumberView extends JComponent {
     setOpaque(true);
     setBackground(Color.WHITE);
     setFont(font);
+    updateWidth();
   }
 
-  private int getComponentWidth() {
+  // Shows the distance from the caret line instead of the line number.
+  public void setRelative(boolean relative) {
+    this.relative = relative;
+    repaint();
+  }
+
+  public boolean isRelative() {
+    return relative;
+  }
+
+  public long getLastPaintNanos() {
+    return lastPaintNanos;
+  }
+
+  public long getMaxPaintNanos() {
+    return maxPaintNanos;
+  }
+
+  // The width only changes when the number of digits of the line count changes.
+  private void updateWidth() {
     // Document doc = textArea.getDocument();
     // Element root = doc.getDefaultRootElement();
     // int lineCount = root.getElementIndex(doc.getLength());
     int lineCount = textArea.getLineCount();
-    int maxDigits = Math.max(3, Objects.toString(lineCount).length());
-    Insets i = getInsets();
-    return maxDigits * fontMetrics.stringWidth("0") + i.left + i.right;
-    // return 48;
+    int maxDigits = Math.max(MIN_DIGITS, digitCount(lineCount));
+    if (maxDigits != digits) {
+      digits = maxDigits;
+      Insets i = getInsets();
+      componentWidth = maxDigits * maxDigitAdvance + i.left + i.right;
+      revalidate();
+    }
+  }
+
+  private static int digitCount(int value) {
+    int count = 1;
+    for (int v = value; v >= 10; v /= 10) {
+      count++;
+    }
+    return count;
+  }
+
+  private int getLineOfOffset(int offset) {
+    return textArea.getDocument().getDefaultRootElement().getElementIndex(offset);
   }
 
   private int getLineAtPoint(int y) {
-    Element root = textArea.getDocument().getDefaultRootElement();
     int pos = textArea.viewToModel(new Point(0, y));
     // Java 9: int pos = textArea.viewToModel2D(new Point(0, y));
-    return root.getElementIndex(pos);
+    return getLineOfOffset(pos);
   }
 
   @Override public Dimension getPreferredSize() {
-    return new Dimension(getComponentWidth(), textArea.getHeight());
+    return new Dimension(componentWidth, textArea.getHeight());
   }
 
   @Override protected void paintComponent(Graphics g) {
+    long startTime = System.nanoTime();
     g.setColor(getBackground());
     Rectangle clip = g.getClipBounds();
     g.fillRect(clip.x, clip.y, clip.width, clip.height);
@@ -128,14 +228,47 @@ class LineNumberView extends JComponent {
     int base = clip.y;
     int start = getLineAtPoint(base);
     int end = getLineAtPoint(base + clip.height);
+    // With line wrap (or a view that hides lines) the rows are not uniform,
+    // so the y of each visible line is taken from the text area instead.
+    boolean uniform = !textArea.getLineWrap();
+    Element root = textArea.getDocument().getDefaultRootElement();
     int y = start * fontHeight;
     int rmg = getInsets().right;
+    int previousY = Integer.MIN_VALUE;
+    int top = uniform ? 0 : textArea.getInsets().top;
     for (int i = start; i <= end; i++) {
-      String text = Objects.toString(i + 1);
-      int x = getComponentWidth() - rmg - fontMetrics.stringWidth(text);
+      if (!uniform) {
+        Rectangle r = modelToView(root.getElement(i).getStartOffset());
+        if (r.height == 0 || r.y == previousY) {
+          continue; // folded
+        }
+        previousY = r.y;
+        y = r.y - top;
+      }
+      int number = relative && i != caretLine ? Math.abs(i - caretLine) : i + 1;
+      int offset = digitBuffer.length;
+      int x = componentWidth - rmg;
+      for (int n = number; offset == digitBuffer.length || n > 0; n /= 10) {
+        int d = n % 10;
+        digitBuffer[--offset] = (char) ('0' + d);
+        x -= digitAdvances[d];
+      }
       y += fontAscent;
-      g.drawString(text, x, y);
+      g.drawChars(digitBuffer, offset, digitBuffer.length - offset, x, y);
       y += fontDescent + fontLeading;
     }
+    lastPaintNanos = System.nanoTime() - startTime;
+    maxPaintNanos = Math.max(maxPaintNanos, lastPaintNanos);
+  }
+
+  private Rectangle modelToView(int offset) {
+    try {
+      Rectangle r = textArea.modelToView(offset);
+      // Java 9: Rectangle r = textArea.modelToView2D(offset).getBounds();
+      lineRect.setBounds(r);
+    } catch (BadLocationException ex) {
+      lineRect.setBounds(0, 0, 0, 0);
+    }
+    return lineRect;
   }
 }
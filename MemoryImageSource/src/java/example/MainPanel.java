@@ -5,18 +5,40 @@
 package example;
 
 import java.awt.*;
+import java.awt.event.HierarchyEvent;
 import java.awt.event.MouseEvent;
 import java.awt.event.MouseListener;
 import java.awt.event.MouseMotionListener;
 import java.awt.image.BufferedImage;
-import java.awt.image.ImageProducer;
 import java.awt.image.MemoryImageSource;
+import java.util.Objects;
 import javax.swing.*;
 
 public final class MainPanel extends JPanel {
   private MainPanel() {
     super(new BorderLayout());
-    add(new PaintPanel());
+    PaintPanel panel = new PaintPanel(320, 240);
+    JLabel label = new JLabel(" ");
+    int[] last = new int[2];
+    Timer timer = new Timer(1000, e -> {
+      int frames = panel.getFrameCount();
+      int uploads = panel.getUploadCount();
+      label.setText(String.format("%d fps, %d uploads/s, latency %.2fms",
+          frames - last[0], uploads - last[1], panel.getLatencyNanos() / 1_000_000d));
+      last[0] = frames;
+      last[1] = uploads;
+    });
+    addHierarchyListener(e -> {
+      if ((e.getChangeFlags() & HierarchyEvent.DISPLAYABILITY_CHANGED) != 0) {
+        if (e.getComponent().isDisplayable()) {
+          timer.start();
+        } else {
+          timer.stop();
+        }
+      }
+    });
+    add(panel);
+    add(label, BorderLayout.SOUTH);
     setPreferredSize(new Dimension(320, 240));
   }
 
@@ -41,32 +63,110 @@ public final class MainPanel extends JPanel {
   }
 }
 
+// The pixels are uploaded to a single animated MemoryImageSource image.
+// The stamps only mark the tiles they touch, and once per frame the dirty tiles
+// of each tile row are sent with newPixels(x, y, w, h) and repainted.
 class PaintPanel extends JPanel implements MouseMotionListener, MouseListener {
-  private Point startPoint = new Point();
-  private final transient BufferedImage backImage;
+  private static final int TILE_SIZE = 64;
   private static final Paint TEXTURE = TextureUtils.createCheckerTexture(6, new Color(0x32_C8_96_64, true));
-  private final Rectangle rect = new Rectangle(320, 240);
-  private final int[] pixels = new int[rect.width * rect.height];
-  private final transient ImageProducer src = new MemoryImageSource(rect.width, rect.height, pixels, 0, rect.width);
+  private Point startPoint = new Point();
+  private final Rectangle rect;
+  private final int[] pixels;
+  private final transient MemoryImageSource src;
+  private transient Image image;
+  private final int tilesX;
+  private final boolean[] dirtyTiles;
+  private final Timer flushTimer = new Timer(16, e -> flush());
   private int penColor;
+  private long dirtySince;
+  private long flushedAt;
+  private long latencyNanos;
+  private int frameCount;
+  private int uploadCount;
 
-  protected PaintPanel() {
+  protected PaintPanel(int width, int height) {
     super();
     addMouseMotionListener(this);
     addMouseListener(this);
-    backImage = new BufferedImage(rect.width, rect.height, BufferedImage.TYPE_INT_ARGB);
-    Graphics2D g2 = backImage.createGraphics();
-    g2.setPaint(TEXTURE);
-    g2.fill(rect);
-    g2.dispose();
+    rect = new Rectangle(width, height);
+    pixels = new int[width * height];
+    src = new MemoryImageSource(width, height, pixels, 0, width);
+    src.setAnimated(true);
+    src.setFullBufferUpdates(false);
+    tilesX = (width + TILE_SIZE - 1) / TILE_SIZE;
+    dirtyTiles = new boolean[tilesX * ((height + TILE_SIZE - 1) / TILE_SIZE)];
+    flushTimer.setRepeats(false);
   }
 
   @Override protected void paintComponent(Graphics g) {
     super.paintComponent(g);
+    if (Objects.isNull(image)) {
+      image = createImage(src);
+    }
     Graphics2D g2 = (Graphics2D) g.create();
-    g2.drawImage(backImage, 0, 0, this);
-    g2.drawImage(createImage(src), 0, 0, this);
+    g2.setPaint(TEXTURE);
+    g2.fill(rect);
+    // no ImageObserver: the partial updates would repaint the whole panel
+    g2.drawImage(image, 0, 0, null);
     g2.dispose();
+    frameCount++;
+    if (flushedAt != 0) {
+      latencyNanos = System.nanoTime() - flushedAt;
+      flushedAt = 0;
+    }
+  }
+
+  public int getFrameCount() {
+    return frameCount;
+  }
+
+  public int getUploadCount() {
+    return uploadCount;
+  }
+
+  // From the first stamp of a frame to the paint that shows it.
+  public long getLatencyNanos() {
+    return latencyNanos;
+  }
+
+  private void markDirty(int x, int y, int w, int h) {
+    Rectangle r = new Rectangle(x, y, w, h).intersection(rect);
+    if (r.isEmpty()) {
+      return;
+    }
+    for (int ty = r.y / TILE_SIZE; ty <= (r.y + r.height - 1) / TILE_SIZE; ty++) {
+      for (int tx = r.x / TILE_SIZE; tx <= (r.x + r.width - 1) / TILE_SIZE; tx++) {
+        dirtyTiles[ty * tilesX + tx] = true;
+      }
+    }
+    if (dirtySince == 0) {
+      dirtySince = System.nanoTime();
+      flushTimer.restart();
+    }
+  }
+
+  private void flush() {
+    int tilesY = dirtyTiles.length / tilesX;
+    for (int ty = 0; ty < tilesY; ty++) {
+      int tx = 0;
+      while (tx < tilesX) {
+        if (!dirtyTiles[ty * tilesX + tx]) {
+          tx++;
+          continue;
+        }
+        int start = tx;
+        while (tx < tilesX && dirtyTiles[ty * tilesX + tx]) {
+          dirtyTiles[ty * tilesX + tx] = false;
+          tx++;
+        }
+        Rectangle r = new Rectangle(start * TILE_SIZE, ty * TILE_SIZE, (tx - start) * TILE_SIZE, TILE_SIZE).intersection(rect);
+        src.newPixels(r.x, r.y, r.width, r.height, false);
+        repaint(r);
+        uploadCount++;
+      }
+    }
+    flushedAt = dirtySince;
+    dirtySince = 0;
   }
 
   @Override public void mouseDragged(MouseEvent e) {
@@ -105,7 +205,7 @@ class PaintPanel extends JPanel implements MouseMotionListener, MouseListener {
         }
       }
     }
-    repaint(p.x - 2, p.y - 2, 4, 4);
+    markDirty(p.x - 2, p.y - 2, 4, 4);
   }
 
   @Override public void mousePressed(MouseEvent e) {
@@ -11,7 +11,10 @@ import java.awt.image.BufferedImage;
 import java.awt.image.DataBufferInt;
 import java.awt.image.WritableRaster;
 import java.net.URL;
+import java.util.EnumMap;
+import java.util.Map;
 import java.util.Random;
+import java.util.stream.IntStream;
 import javax.swing.*;
 
 public final class MainPanel extends JPanel {
@@ -21,11 +24,16 @@ public final class MainPanel extends JPanel {
     BufferedImage i2 = makeImage(getClass().getResource("test.jpg"));
 
     RandomDissolve randomDissolve = new RandomDissolve(i1, i2);
+    JComboBox<Transition> combo = new JComboBox<>(Transition.values());
     JButton button = new JButton("change");
-    button.addActionListener(e -> randomDissolve.animationStart());
+    button.addActionListener(e -> randomDissolve.animationStart(combo.getItemAt(combo.getSelectedIndex())));
+
+    JPanel p = new JPanel(new BorderLayout());
+    p.add(combo, BorderLayout.WEST);
+    p.add(button);
 
     add(randomDissolve);
-    add(button, BorderLayout.NORTH);
+    add(p, BorderLayout.NORTH);
     setPreferredSize(new Dimension(320, 240));
   }
 
@@ -66,38 +74,124 @@ public final class MainPanel extends JPanel {
   }
 }
 
+// The order in which the pixels change, the order is cut into STAGES buckets.
+enum Transition {
+  DISSOLVE {
+    @Override protected int[] createOrder(int width, int height, Random rnd) {
+      int[] order = IntStream.range(0, width * height).toArray();
+      shuffle(order, rnd);
+      return order;
+    }
+  },
+  WIPE {
+    @Override protected int[] createOrder(int width, int height, Random rnd) {
+      int[] order = new int[width * height];
+      int i = 0;
+      for (int x = 0; x < width; x++) {
+        for (int y = 0; y < height; y++) {
+          order[i++] = y * width + x;
+        }
+      }
+      return order;
+    }
+  },
+  BLOCKS {
+    @Override protected int[] createOrder(int width, int height, Random rnd) {
+      int size = 16;
+      int cols = (width + size - 1) / size;
+      int[] blocks = IntStream.range(0, cols * ((height + size - 1) / size)).toArray();
+      shuffle(blocks, rnd);
+      int[] order = new int[width * height];
+      int i = 0;
+      for (int block: blocks) {
+        int bx = block % cols * size;
+        int by = block / cols * size;
+        for (int y = by; y < Math.min(by + size, height); y++) {
+          for (int x = bx; x < Math.min(bx + size, width); x++) {
+            order[i++] = y * width + x;
+          }
+        }
+      }
+      return order;
+    }
+  };
+
+  protected abstract int[] createOrder(int width, int height, Random rnd);
+
+  protected static void shuffle(int[] a, Random rnd) {
+    for (int i = a.length - 1; i > 0; i--) {
+      int j = rnd.nextInt(i + 1);
+      int t = a[i];
+      a[i] = a[j];
+      a[j] = t;
+    }
+  }
+}
+
+// Each stage copies one bucket of pixels from the target image into the back buffer
+// in parallel chunks on the common ForkJoinPool, then the back buffer becomes the one
+// that is painted. The buffer that was painted is one stage behind, so the next stage
+// copies the previous bucket as well and the two buffers never need a full copy.
 class RandomDissolve extends JComponent implements ActionListener {
   private static final int STAGES = 16;
+  private static final int CHUNK_SIZE = 1 << 16;
   private final Timer animator;
-  private final transient BufferedImage image1;
-  private final transient BufferedImage image2;
-  private transient BufferedImage buf;
+  private final Map<Transition, int[]> orders = new EnumMap<>(Transition.class);
+  private final int[] pixels1;
+  private final int[] pixels2;
+  private transient BufferedImage front;
+  private transient BufferedImage back;
   private boolean mode = true;
+  private boolean busy;
   private int currentStage;
-  private int[] src;
-  private int[] dst;
-  private int[] step;
+  private int[] order;
+  private int[] target;
 
   protected RandomDissolve(BufferedImage i1, BufferedImage i2) {
     super();
-    this.image1 = i1;
-    this.image2 = i2;
-    this.buf = copyImage(mode ? image2 : image1);
+    this.pixels1 = getData(copyImage(i1));
+    this.pixels2 = getData(copyImage(i2));
+    this.front = copyImage(mode ? i2 : i1);
+    this.back = copyImage(front);
     animator = new Timer(10, this);
   }
 
-  private boolean nextStage() {
-    if (currentStage > 0) {
-      currentStage = currentStage - 1;
-      for (int i = 0; i < step.length; i++) {
-        if (step[i] == currentStage) {
-          src[i] = dst[i];
+  private void nextStage() {
+    int stage = currentStage;
+    int[] bucketOrder = order;
+    int[] dst = target;
+    int[] src = getData(back);
+    busy = true;
+    new SwingWorker<Void, Void>() {
+      @Override protected Void doInBackground() {
+        if (stage > 0) {
+          applyStage(bucketOrder, stage - 1, src, dst);
         }
+        applyStage(bucketOrder, stage, src, dst);
+        return null;
       }
-      return true;
-    } else {
-      return false;
-    }
+
+      @Override protected void done() {
+        BufferedImage painted = front;
+        front = back;
+        back = painted;
+        busy = false;
+        repaint();
+      }
+    }.execute();
+  }
+
+  private static void applyStage(int[] order, int stage, int[] src, int[] dst) {
+    int from = (int) ((long) order.length * stage / STAGES);
+    int to = (int) ((long) order.length * (stage + 1) / STAGES);
+    int chunks = (to - from + CHUNK_SIZE - 1) / CHUNK_SIZE;
+    IntStream.range(0, chunks).parallel().forEach(c -> {
+      int end = Math.min(to, from + (c + 1) * CHUNK_SIZE);
+      for (int i = from + c * CHUNK_SIZE; i < end; i++) {
+        int p = order[i];
+        src[p] = dst[p];
+      }
+    });
   }
 
   private static BufferedImage copyImage(BufferedImage image) {
@@ -117,17 +211,20 @@ class RandomDissolve extends JComponent implements ActionListener {
     // return ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
   }
 
-  public void animationStart() {
-    currentStage = STAGES;
-    buf = copyImage(mode ? image2 : image1);
-    src = getData(buf);
-    dst = getData(copyImage(mode ? image1 : image2));
-    step = new int[src.length];
-    mode ^= true;
-    Random rnd = new Random();
-    for (int i = 0; i < step.length; i++) {
-      step[i] = rnd.nextInt(currentStage);
+  public void animationStart(Transition transition) {
+    if (busy) {
+      return;
     }
+    int w = front.getWidth();
+    int h = front.getHeight();
+    // the pixel order of each transition is made only once
+    order = orders.computeIfAbsent(transition, t -> t.createOrder(w, h, new Random()));
+    int[] current = mode ? pixels2 : pixels1;
+    target = mode ? pixels1 : pixels2;
+    System.arraycopy(current, 0, getData(front), 0, current.length);
+    System.arraycopy(current, 0, getData(back), 0, current.length);
+    mode ^= true;
+    currentStage = 0;
     animator.start();
   }
 
@@ -136,13 +233,17 @@ class RandomDissolve extends JComponent implements ActionListener {
     Graphics2D g2 = (Graphics2D) g.create();
     g2.setPaint(getBackground());
     g2.fillRect(0, 0, getWidth(), getHeight());
-    g2.drawImage(buf, 0, 0, buf.getWidth(), buf.getHeight(), this);
+    g2.drawImage(front, 0, 0, front.getWidth(), front.getHeight(), this);
     g2.dispose();
   }
 
   @Override public void actionPerformed(ActionEvent e) {
-    if (nextStage()) {
-      repaint();
+    if (busy) {
+      return;
+    }
+    if (currentStage < STAGES) {
+      nextStage();
+      currentStage++;
     } else {
       animator.stop();
     }
@@ -0,0 +1,452 @@
+// -*- mode:java; encoding:utf-8 -*-
+// vim:set fileencoding=utf-8:
+// @homepage@
+
+package example;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+
+// Index of a directory tree: one entry per directory with the names, sizes and
+// modification times of its children. The index file stores the directories
+// sorted by relative path, each path and each child name is written as the
+// length of the prefix shared with the previous one followed by the rest.
+// A WatchService marks changed directories while the application is running,
+// otherwise only the directories whose modification time changed are listed again.
+class FileIndex {
+  private static final int MAGIC = 0x46_49_44_58; // "FIDX"
+  private static final int VERSION = 1;
+  private static final long DIRECTORY = -1L;
+  private final Path root;
+  private final Path indexFile;
+  private final Map<String, DirEntry> entries = new ConcurrentHashMap<>();
+  private final Set<String> dirtyDirs = ConcurrentHashMap.newKeySet();
+  private final Map<WatchKey, String> watchKeys = new ConcurrentHashMap<>();
+  private WatchService watcher;
+  private Thread watchThread;
+  private volatile boolean overflow = true;
+  private volatile boolean registrationFailed;
+
+  protected FileIndex(Path root) {
+    this.root = root.toAbsolutePath().normalize();
+    String name = Integer.toHexString(this.root.toString().hashCode()) + ".idx";
+    this.indexFile = Paths.get(System.getProperty("java.io.tmpdir"), "RecursiveFileSearch", name);
+  }
+
+  public boolean isEmpty() {
+    return entries.isEmpty();
+  }
+
+  public int getDirectoryCount() {
+    return entries.size();
+  }
+
+  public void clear() {
+    entries.clear();
+    dirtyDirs.clear();
+  }
+
+  public String relativize(Path dir) {
+    return root.relativize(dir.toAbsolutePath().normalize()).toString();
+  }
+
+  private Path toPath(String rel) {
+    return rel.isEmpty() ? root : root.resolve(rel);
+  }
+
+  private static String resolve(String rel, String name) {
+    return rel.isEmpty() ? name : rel + File.separator + name;
+  }
+
+  // Called by the parallel walk, once per listed directory.
+  public void put(Path dir, long lastModified, List<Path> children, List<BasicFileAttributes> attrs) {
+    int size = children.size();
+    String[] names = new String[size];
+    long[] sizes = new long[size];
+    long[] times = new long[size];
+    Integer[] order = new Integer[size];
+    for (int i = 0; i < size; i++) {
+      order[i] = i;
+    }
+    String[] fileNames = children.stream().map(p -> p.getFileName().toString()).toArray(String[]::new);
+    Arrays.sort(order, (a, b) -> fileNames[a].compareTo(fileNames[b]));
+    for (int i = 0; i < size; i++) {
+      int j = order[i];
+      BasicFileAttributes a = attrs.get(j);
+      names[i] = fileNames[j];
+      sizes[i] = a.isDirectory() ? DIRECTORY : a.size();
+      times[i] = a.lastModifiedTime().toMillis();
+    }
+    entries.put(relativize(dir), new DirEntry(lastModified, names, sizes, times));
+  }
+
+  private DirEntry scan(String rel) {
+    Path dir = toPath(rel);
+    List<Path> children = new ArrayList<>();
+    List<BasicFileAttributes> attrs = new ArrayList<>();
+    long lastModified;
+    try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir)) {
+      lastModified = Files.getLastModifiedTime(dir).toMillis();
+      for (Path path: stream) {
+        try {
+          BasicFileAttributes a = Files.readAttributes(path, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+          if (a.isDirectory() || a.isRegularFile()) {
+            children.add(path);
+            attrs.add(a);
+          }
+        } catch (IOException ex) {
+          // skip the entry that cannot be read
+        }
+      }
+    } catch (IOException ex) {
+      return null;
+    }
+    put(dir, lastModified, children, attrs);
+    return entries.get(rel);
+  }
+
+  private void removeTree(String rel) {
+    DirEntry entry = entries.remove(rel);
+    if (Objects.nonNull(entry)) {
+      for (int i = 0; i < entry.names.length; i++) {
+        if (entry.sizes[i] == DIRECTORY) {
+          removeTree(resolve(rel, entry.names[i]));
+        }
+      }
+    }
+  }
+
+  private boolean isModified(String rel, DirEntry entry) {
+    try {
+      return Files.getLastModifiedTime(toPath(rel)).toMillis() != entry.lastModified;
+    } catch (IOException ex) {
+      return true;
+    }
+  }
+
+  /**
+   * Lists again the directories that were reported by the WatchService or,
+   * if events may have been lost, whose modification time has changed.
+   * @return the number of listed directories
+   */
+  public int refresh(BooleanSupplier cancelled) {
+    boolean checkAll = overflow || registrationFailed || Objects.isNull(watcher);
+    overflow = false;
+    int count = 0;
+    Deque<String> stack = new ArrayDeque<>();
+    stack.push("");
+    while (!stack.isEmpty() && !cancelled.getAsBoolean()) {
+      String rel = stack.pop();
+      DirEntry entry = entries.get(rel);
+      boolean dirty = dirtyDirs.remove(rel);
+      if (Objects.isNull(entry) || dirty || checkAll && isModified(rel, entry)) {
+        DirEntry old = entry;
+        entry = scan(rel);
+        if (Objects.isNull(entry)) {
+          removeTree(rel);
+          continue;
+        }
+        count++;
+        if (Objects.nonNull(old)) {
+          removeDeletedDirectories(rel, old, entry);
+        }
+        if (Objects.nonNull(watcher)) {
+          register(rel);
+        }
+      }
+      for (int i = 0; i < entry.names.length; i++) {
+        if (entry.sizes[i] == DIRECTORY) {
+          stack.push(resolve(rel, entry.names[i]));
+        }
+      }
+    }
+    dirtyDirs.removeIf(rel -> !entries.containsKey(rel));
+    return count;
+  }
+
+  private void removeDeletedDirectories(String rel, DirEntry old, DirEntry entry) {
+    for (int i = 0; i < old.names.length; i++) {
+      if (old.sizes[i] == DIRECTORY) {
+        int idx = Arrays.binarySearch(entry.names, old.names[i]);
+        if (idx < 0 || entry.sizes[idx] != DIRECTORY) {
+          removeTree(resolve(rel, old.names[i]));
+        }
+      }
+    }
+  }
+
+  /**
+   * Passes every indexed regular file accepted by the filter to the action.
+   * @return the number of files in the index
+   */
+  public long search(SearchFilter filter, BooleanSupplier cancelled, Consumer<Path> action) {
+    long files = 0L;
+    for (Map.Entry<String, DirEntry> e: entries.entrySet()) {
+      if (cancelled.getAsBoolean()) {
+        break;
+      }
+      DirEntry entry = e.getValue();
+      Path dir = null;
+      for (int i = 0; i < entry.names.length; i++) {
+        if (entry.sizes[i] == DIRECTORY) {
+          continue;
+        }
+        files++;
+        Path name = Paths.get(entry.names[i]);
+        if (filter.test(name, entry.sizes[i], entry.times[i])) {
+          if (Objects.isNull(dir)) {
+            dir = toPath(e.getKey());
+          }
+          action.accept(dir.resolve(name));
+        }
+      }
+    }
+    return files;
+  }
+
+  public boolean load() throws IOException {
+    if (!Files.isRegularFile(indexFile)) {
+      return false;
+    }
+    try (FileChannel channel = FileChannel.open(indexFile, StandardOpenOption.READ)) {
+      // read into the heap, a mapping would keep the file open until GC and a later save could not replace it
+      long length = channel.size();
+      if (length > Integer.MAX_VALUE) {
+        return false;
+      }
+      ByteBuffer buf = ByteBuffer.allocate((int) length);
+      while (buf.hasRemaining()) {
+        if (channel.read(buf) < 0) {
+          return false;
+        }
+      }
+      buf.flip();
+      if (buf.getInt() != MAGIC || buf.getInt() != VERSION) {
+        return false;
+      }
+      byte[] rootBytes = new byte[(int) readVarLong(buf)];
+      buf.get(rootBytes);
+      if (!root.toString().equals(new String(rootBytes, StandardCharsets.UTF_8))) {
+        return false; // hash collision with another root
+      }
+      int dirCount = buf.getInt();
+      byte[] prevDir = new byte[0];
+      for (int d = 0; d < dirCount; d++) {
+        prevDir = readPrefixed(buf, prevDir);
+        long lastModified = buf.getLong();
+        int size = (int) readVarLong(buf);
+        String[] names = new String[size];
+        long[] sizes = new long[size];
+        long[] times = new long[size];
+        byte[] prevName = new byte[0];
+        for (int i = 0; i < size; i++) {
+          prevName = readPrefixed(buf, prevName);
+          names[i] = new String(prevName, StandardCharsets.UTF_8);
+          sizes[i] = readVarLong(buf) - 1L; // DIRECTORY is stored as 0
+          times[i] = buf.getLong();
+        }
+        entries.put(new String(prevDir, StandardCharsets.UTF_8), new DirEntry(lastModified, names, sizes, times));
+      }
+    } catch (RuntimeException ex) {
+      // truncated or corrupted index file, rebuild it
+      entries.clear();
+      return false;
+    }
+    overflow = true;
+    return true;
+  }
+
+  public void save() throws IOException {
+    Files.createDirectories(indexFile.getParent());
+    Path tmp = Files.createTempFile(indexFile.getParent(), "index", ".tmp");
+    List<String> dirs = new ArrayList<>(entries.keySet());
+    dirs.sort(null);
+    try (OutputStream os = Files.newOutputStream(tmp);
+         DataOutputStream out = new DataOutputStream(new BufferedOutputStream(os))) {
+      out.writeInt(MAGIC);
+      out.writeInt(VERSION);
+      byte[] rootBytes = root.toString().getBytes(StandardCharsets.UTF_8);
+      writeVarLong(out, rootBytes.length);
+      out.write(rootBytes);
+      out.writeInt(dirs.size());
+      byte[] prevDir = new byte[0];
+      for (String rel: dirs) {
+        DirEntry entry = entries.get(rel);
+        byte[] dirBytes = rel.getBytes(StandardCharsets.UTF_8);
+        writePrefixed(out, prevDir, dirBytes);
+        prevDir = dirBytes;
+        out.writeLong(entry.lastModified);
+        writeVarLong(out, entry.names.length);
+        byte[] prevName = new byte[0];
+        for (int i = 0; i < entry.names.length; i++) {
+          byte[] nameBytes = entry.names[i].getBytes(StandardCharsets.UTF_8);
+          writePrefixed(out, prevName, nameBytes);
+          prevName = nameBytes;
+          writeVarLong(out, entry.sizes[i] + 1L);
+          out.writeLong(entry.times[i]);
+        }
+      }
+    }
+    try {
+      Files.move(tmp, indexFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    } catch (AtomicMoveNotSupportedException ex) {
+      Files.move(tmp, indexFile, StandardCopyOption.REPLACE_EXISTING);
+    }
+  }
+
+  private static void writePrefixed(DataOutputStream out, byte[] prev, byte[] bytes) throws IOException {
+    int max = Math.min(prev.length, bytes.length);
+    int prefix = 0;
+    while (prefix < max && prev[prefix] == bytes[prefix]) {
+      prefix++;
+    }
+    writeVarLong(out, prefix);
+    writeVarLong(out, bytes.length - prefix);
+    out.write(bytes, prefix, bytes.length - prefix);
+  }
+
+  private static byte[] readPrefixed(ByteBuffer buf, byte[] prev) {
+    int prefix = (int) readVarLong(buf);
+    int suffix = (int) readVarLong(buf);
+    byte[] bytes = Arrays.copyOf(prev, prefix + suffix);
+    buf.get(bytes, prefix, suffix);
+    return bytes;
+  }
+
+  private static void writeVarLong(DataOutputStream out, long value) throws IOException {
+    long v = value;
+    while ((v & ~0x7FL) != 0L) {
+      out.writeByte((int) (v & 0x7F) | 0x80);
+      v >>>= 7;
+    }
+    out.writeByte((int) v);
+  }
+
+  private static long readVarLong(ByteBuffer buf) {
+    long value = 0L;
+    for (int shift = 0;; shift += 7) {
+      byte b = buf.get();
+      value |= (long) (b & 0x7F) << shift;
+      if ((b & 0x80) == 0) {
+        return value;
+      }
+    }
+  }
+
+  public void startWatching() {
+    if (Objects.nonNull(watcher)) {
+      return;
+    }
+    try {
+      watcher = root.getFileSystem().newWatchService();
+    } catch (IOException ex) {
+      return;
+    }
+    entries.keySet().forEach(this::register);
+    watchThread = new Thread(this::processEvents, "FileIndexWatcher");
+    watchThread.setDaemon(true);
+    watchThread.start();
+  }
+
+  private void register(String rel) {
+    try {
+      WatchKey key = toPath(rel).register(
+          watcher,
+          StandardWatchEventKinds.ENTRY_CREATE,
+          StandardWatchEventKinds.ENTRY_DELETE,
+          StandardWatchEventKinds.ENTRY_MODIFY);
+      watchKeys.put(key, rel);
+    } catch (IOException | ClosedWatchServiceException ex) {
+      // e.g. the inotify watch limit, fall back to the modification time check
+      registrationFailed = true;
+    }
+  }
+
+  // see WatchingDirectoryTable: MainPanel#processEvents(...)
+  private void processEvents() {
+    for (;;) {
+      WatchKey key;
+      try {
+        key = watcher.take();
+      } catch (InterruptedException ex) {
+        Thread.currentThread().interrupt();
+        return;
+      } catch (ClosedWatchServiceException ex) {
+        return;
+      }
+      String rel = watchKeys.get(key);
+      for (WatchEvent<?> event: key.pollEvents()) {
+        if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+          overflow = true;
+        } else if (Objects.nonNull(rel)) {
+          // a child was created, deleted or modified: list the directory again
+          dirtyDirs.add(rel);
+        }
+      }
+      if (!key.reset()) {
+        watchKeys.remove(key);
+      }
+    }
+  }
+
+  public void close() {
+    Optional.ofNullable(watchThread).ifPresent(Thread::interrupt);
+    try {
+      if (Objects.nonNull(watcher)) {
+        watcher.close();
+      }
+    } catch (IOException ex) {
+      // ignore
+    }
+    watcher = null;
+    watchKeys.clear();
+    overflow = true;
+  }
+
+  private static final class DirEntry {
+    // children sorted by name, sizes[i] is DIRECTORY for a subdirectory
+    protected final long lastModified;
+    protected final String[] names;
+    protected final long[] sizes;
+    protected final long[] times;
+
+    protected DirEntry(long lastModified, String[] names, long[] sizes, long[] times) {
+      this.lastModified = lastModified;
+      this.names = names;
+      this.sizes = sizes;
+      this.times = times;
+    }
+  }
+}
@@ -5,23 +5,38 @@
 package example;
 
 import java.awt.*;
+import java.awt.event.HierarchyEvent;
 import java.beans.PropertyChangeEvent;
 import java.beans.PropertyChangeListener;
 import java.io.File;
 import java.io.IOException;
-import java.nio.file.FileVisitResult;
+import java.nio.file.DirectoryIteratorException;
+import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
+import java.nio.file.LinkOption;
 import java.nio.file.Path;
-import java.nio.file.SimpleFileVisitor;
 import java.nio.file.attribute.BasicFileAttributes;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Collectors;
 import javax.swing.*;
 
 public final class MainPanel extends JPanel {
   private final JComboBox<String> dirCombo = new JComboBox<>();
+  private final JTextField patternField = new JTextField("glob:*", 12);
+  private final JLabel statusLabel = new JLabel(" ");
   private final JFileChooser fileChooser = new JFileChooser();
   private final JTextArea textArea = new JTextArea();
   private final JProgressBar progress = new JProgressBar();
@@ -29,6 +44,7 @@ public final class MainPanel extends JPanel {
   private final JButton runButton = new JButton("Run");
   private final JButton cancelButton = new JButton("Cancel");
   private final JButton openButton = new JButton("Choose...");
+  private final transient Map<Path, FileIndex> indexes = new ConcurrentHashMap<>();
   private transient SwingWorker<String, Message> worker;
 
   private MainPanel() {
@@ -40,6 +56,7 @@ public final class MainPanel extends JPanel {
     dirCombo.setFocusable(false);
     textArea.setEditable(false);
     statusPanel.add(progress);
+    statusPanel.add(statusLabel, BorderLayout.SOUTH);
     statusPanel.setVisible(false);
 
     runButton.addActionListener(e -> {
@@ -78,6 +95,13 @@ public final class MainPanel extends JPanel {
       }
     });
 
+    addHierarchyListener(e -> {
+      boolean isDisplayableChanged = (e.getChangeFlags() & HierarchyEvent.DISPLAYABILITY_CHANGED) != 0;
+      if (isDisplayableChanged && !e.getComponent().isDisplayable()) {
+        indexes.values().forEach(FileIndex::close);
+      }
+    });
+
     JPanel box1 = new JPanel(new BorderLayout(5, 5));
     box1.add(new JLabel("Search folder:"), BorderLayout.WEST);
     box1.add(dirCombo);
@@ -85,6 +109,10 @@ public final class MainPanel extends JPanel {
 
     Box box2 = Box.createHorizontalBox();
     box2.setBorder(BorderFactory.createEmptyBorder(5, 5, 5, 5));
+    box2.add(new JLabel("File name:"));
+    box2.add(Box.createHorizontalStrut(2));
+    box2.add(patternField);
+    box2.add(Box.createHorizontalStrut(5));
     box2.add(Box.createHorizontalGlue());
     box2.add(runButton);
     box2.add(Box.createHorizontalStrut(2));
@@ -101,8 +129,8 @@ public final class MainPanel extends JPanel {
   }
 
   protected final class FileSearchTask extends RecursiveFileSearchTask {
-    protected FileSearchTask(File dir) {
-      super(dir);
+    protected FileSearchTask(File dir, SearchFilter filter, FileIndex index) {
+      super(dir, filter, index);
     }
 
     @Override protected void process(List<Message> chunks) {
@@ -147,13 +175,16 @@ public final class MainPanel extends JPanel {
       addItem(dirCombo, Objects.toString(dirCombo.getEditor().getItem()), 4);
       statusPanel.setVisible(true);
       dirCombo.setEnabled(false);
+      patternField.setEnabled(false);
       openButton.setEnabled(false);
       runButton.setEnabled(false);
       cancelButton.setEnabled(true);
       progress.setIndeterminate(true);
       textArea.setText("");
+      statusLabel.setText(" ");
     } else {
       dirCombo.setEnabled(true);
+      patternField.setEnabled(true);
       openButton.setEnabled(true);
       runButton.setEnabled(true);
       cancelButton.setEnabled(false);
@@ -178,8 +209,23 @@ public final class MainPanel extends JPanel {
 
   protected void executeWorker() {
     File dir = new File(dirCombo.getItemAt(dirCombo.getSelectedIndex()));
-    worker = new FileSearchTask(dir);
+    SearchFilter filter;
+    try {
+      filter = new SearchFilter(patternField.getText().trim(), 0L, 0L);
+    } catch (IllegalArgumentException ex) {
+      updateComponentStatus(false);
+      Toolkit.getDefaultToolkit().beep();
+      JOptionPane.showMessageDialog(getRootPane(), ex.getMessage(), "title", JOptionPane.ERROR_MESSAGE);
+      return;
+    }
+    FileIndex index = indexes.computeIfAbsent(dir.toPath().toAbsolutePath().normalize(), FileIndex::new);
+    worker = new FileSearchTask(dir, filter, index);
     worker.addPropertyChangeListener(new ProgressListener(progress));
+    worker.addPropertyChangeListener(e -> {
+      if ("status".equals(e.getPropertyName())) {
+        statusLabel.setText(Objects.toString(e.getNewValue()));
+      }
+    });
     worker.execute();
   }
 
@@ -286,65 +332,187 @@ public final class MainPanel extends JPanel {
 //   }
 // }
 
+// Directories are walked in parallel on a ForkJoinPool, each directory is a
+// task that forks its subdirectories. Matches are streamed through a bounded
+// queue and published in batches, the file list is never materialized.
+// The walk also builds a FileIndex, later searches of the same folder
+// refresh the changed directories and answer from the index.
 class RecursiveFileSearchTask extends SwingWorker<String, Message> {
-  protected int counter;
+  private static final int BATCH_SIZE = 500;
+  private static final int QUEUE_CAPACITY = 1 << 14;
+  private static final long STATUS_INTERVAL = TimeUnit.MILLISECONDS.toNanos(250);
+  protected final LongAdder counter = new LongAdder();
   private final File dir;
+  private final SearchFilter filter;
+  private final FileIndex index;
 
-  protected RecursiveFileSearchTask(File dir) {
+  protected RecursiveFileSearchTask(File dir, SearchFilter filter, FileIndex index) {
     super();
     this.dir = dir;
+    this.filter = filter;
+    this.index = index;
   }
 
-  @SuppressWarnings("PMD.AvoidInstantiatingObjectsInLoops")
   @Override public String doInBackground() throws InterruptedException {
     if (Objects.isNull(dir) || !dir.exists()) {
       publish(new Message("The directory does not exist.", true));
       return "Error";
     }
+    firePropertyChange("clear-textarea", "", "");
 
-    List<Path> list = new ArrayList<>();
+    String result;
     try {
-      counter = 0;
-      recursiveSearch(dir.toPath(), list);
+      if (index.isEmpty() && !index.load()) {
+        result = walk();
+      } else {
+        result = searchIndex();
+      }
+      if (isCancelled()) {
+        return "Cancelled";
+      }
+      index.save();
     } catch (IOException ex) {
-      publish(new Message("The search was canceled", true));
-      return "Interrupted1";
+      publish(new Message("Failed to read or write the index: " + ex.getMessage(), true));
+      return "Error";
     }
-    firePropertyChange("clear-textarea", "", "");
+    index.startWatching();
+    return result;
+  }
 
-    int lengthOfTask = list.size();
-    publish(new Message("Length Of Task: " + lengthOfTask, false));
-    publish(new Message("----------------", true));
-
-    int current = 0;
-    while (current < lengthOfTask && !isCancelled()) {
-      Thread.sleep(10); // dummy
-      setProgress(100 * current / lengthOfTask);
-      Path path = list.get(current);
-      current++;
-      publish(new Message(current + "/" + lengthOfTask + ", " + path, true));
+  private String walk() throws InterruptedException {
+    BlockingQueue<Path> matches = new LinkedBlockingQueue<>(QUEUE_CAPACITY);
+    ForkJoinPool pool = new ForkJoinPool();
+    ForkJoinTask<Void> root = pool.submit(new DirectoryWalkAction(dir.toPath(), filter, matches, counter, index, this::isCancelled));
+    List<Path> batch = new ArrayList<>(BATCH_SIZE);
+    long start = System.nanoTime();
+    long lastStatus = start;
+    int found = 0;
+    try {
+      while (!root.isDone() || !matches.isEmpty()) {
+        Path path = matches.poll(100, TimeUnit.MILLISECONDS);
+        if (Objects.nonNull(path)) {
+          batch.add(path);
+          matches.drainTo(batch, BATCH_SIZE - batch.size());
+        }
+        if (batch.size() >= BATCH_SIZE || Objects.isNull(path)) {
+          found += publishBatch(batch);
+        }
+        long now = System.nanoTime();
+        if (now - lastStatus > STATUS_INTERVAL) {
+          lastStatus = now;
+          firePropertyChange("status", null, getStatus(now - start, found, pool.getQueuedTaskCount()));
+        }
+      }
+    } finally {
+      pool.shutdownNow();
+      if (isCancelled()) {
+        index.clear(); // an incomplete index would hide the files that were not walked
+      }
+    }
+    long elapsed = System.nanoTime() - start;
+    firePropertyChange("status", null, getStatus(elapsed, found, 0L));
+    return String.format("Done: %d matches, %d files, %d ms", found, counter.sum(), TimeUnit.NANOSECONDS.toMillis(elapsed));
+  }
+
+  private String searchIndex() {
+    long start = System.nanoTime();
+    int rescanned = index.refresh(this::isCancelled);
+    List<Path> batch = new ArrayList<>(BATCH_SIZE);
+    int[] found = {0};
+    long files = index.search(filter, this::isCancelled, path -> {
+      batch.add(path);
+      if (batch.size() >= BATCH_SIZE) {
+        found[0] += publishBatch(batch);
+      }
+    });
+    found[0] += publishBatch(batch);
+    long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    String status = String.format("index: %d dirs, %d listed again, %d files", index.getDirectoryCount(), rescanned, files);
+    firePropertyChange("status", null, status);
+    return String.format("Done: %d matches, %d files, %d ms (index)", found[0], files, elapsed);
+  }
+
+  private int publishBatch(List<Path> batch) {
+    int size = batch.size();
+    if (size > 0) {
+      publish(new Message(batch.stream().map(Path::toString).collect(Collectors.joining("\n")), true));
+      batch.clear();
     }
-    return "Done";
+    return size;
+  }
+
+  private String getStatus(long elapsed, int found, long queued) {
+    long files = counter.sum();
+    long rate = files * TimeUnit.SECONDS.toNanos(1) / Math.max(1L, elapsed);
+    return String.format("files: %d (%d/s), matches: %d, queued dirs: %d", files, rate, found, queued);
+  }
+}
+
+class DirectoryWalkAction extends RecursiveAction {
+  private static final long serialVersionUID = 1L;
+  private final transient Path dir;
+  private final transient SearchFilter filter;
+  private final transient BlockingQueue<Path> matches;
+  private final LongAdder counter;
+  private final transient FileIndex index;
+  private final transient BooleanSupplier cancelled;
+
+  protected DirectoryWalkAction(Path dir, SearchFilter filter, BlockingQueue<Path> matches, LongAdder counter, FileIndex index, BooleanSupplier cancelled) {
+    super();
+    this.dir = dir;
+    this.filter = filter;
+    this.matches = matches;
+    this.counter = counter;
+    this.index = index;
+    this.cancelled = cancelled;
   }
 
-  // Walking the File Tree (The Java™ Tutorials > Essential Classes > Basic I/O)
-  // https://docs.oracle.com/javase/tutorial/essential/io/walk.html
-  private void recursiveSearch(Path dirPath, List<Path> list) throws IOException {
-    Files.walkFileTree(dirPath, new SimpleFileVisitor<Path>() {
-      @Override public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
-        if (Thread.interrupted()) {
-          throw new IOException();
+  @Override protected void compute() {
+    List<DirectoryWalkAction> subTasks = new ArrayList<>();
+    List<Path> children = new ArrayList<>();
+    List<BasicFileAttributes> childAttrs = new ArrayList<>();
+    try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir)) {
+      long lastModified = Files.getLastModifiedTime(dir).toMillis();
+      for (Path path: stream) {
+        if (cancelled.getAsBoolean()) {
+          break;
+        }
+        BasicFileAttributes attrs = readAttributes(path);
+        if (Objects.isNull(attrs)) {
+          continue;
         }
-        if (attrs.isRegularFile()) {
-          counter++;
-          if (counter % 100 == 0) {
-            publish(new Message("Results:" + counter + "\n", false));
+        if (attrs.isDirectory()) {
+          DirectoryWalkAction task = new DirectoryWalkAction(path, filter, matches, counter, index, cancelled);
+          task.fork();
+          subTasks.add(task);
+        } else if (attrs.isRegularFile()) {
+          counter.increment();
+          if (filter.test(path, attrs)) {
+            matches.put(path);
           }
-          list.add(file);
+        } else {
+          continue;
         }
-        return FileVisitResult.CONTINUE;
+        children.add(path);
+        childAttrs.add(attrs);
       }
-    });
+      index.put(dir, lastModified, children, childAttrs);
+    } catch (IOException | DirectoryIteratorException ex) {
+      // skip the directory that cannot be read
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+    } finally {
+      // the walk is done only when the forked subdirectories are done too
+      subTasks.forEach(ForkJoinTask::join);
+    }
+  }
+
+  private static BasicFileAttributes readAttributes(Path path) {
+    try {
+      return Files.readAttributes(path, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+    } catch (IOException ex) {
+      return null;
+    }
   }
 }
 
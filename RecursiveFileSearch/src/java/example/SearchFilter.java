@@ -0,0 +1,34 @@
+// -*- mode:java; encoding:utf-8 -*-
+// vim:set fileencoding=utf-8:
+// @homepage@
+
+package example;
+
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.function.BiPredicate;
+
+// The file name pattern uses the PathMatcher syntax ("glob:*.java", "regex:.*\\.java"),
+// a pattern without a syntax prefix is treated as a glob.
+class SearchFilter implements BiPredicate<Path, BasicFileAttributes> {
+  private final PathMatcher matcher;
+  private final long minSize;
+  private final long modifiedAfter;
+
+  protected SearchFilter(String pattern, long minSize, long modifiedAfter) {
+    String syntaxAndPattern = pattern.startsWith("glob:") || pattern.startsWith("regex:") ? pattern : "glob:" + pattern;
+    this.matcher = FileSystems.getDefault().getPathMatcher(syntaxAndPattern);
+    this.minSize = minSize;
+    this.modifiedAfter = modifiedAfter;
+  }
+
+  @Override public boolean test(Path path, BasicFileAttributes attrs) {
+    return test(path.getFileName(), attrs.size(), attrs.lastModifiedTime().toMillis());
+  }
+
+  public boolean test(Path fileName, long size, long lastModified) {
+    return size >= minSize && lastModified >= modifiedAfter && matcher.matches(fileName);
+  }
+}
@@ -6,12 +6,21 @@ package example;
 
 import com.sun.java.swing.plaf.windows.WindowsScrollBarUI;
 import java.awt.*;
+import java.awt.event.ComponentAdapter;
+import java.awt.event.ComponentEvent;
+import java.awt.event.ComponentListener;
 import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
 import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.regex.PatternSyntaxException;
 import javax.swing.*;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import javax.swing.plaf.ScrollBarUI;
 import javax.swing.plaf.metal.MetalScrollBarUI;
 import javax.swing.text.BadLocationException;
 import javax.swing.text.DefaultHighlighter.DefaultHighlightPainter;
@@ -63,7 +72,8 @@ public final class MainPanel extends JPanel {
     JScrollPane scroll = new JScrollPane(textArea);
     scroll.setVerticalScrollBar(scrollbar);
 
-    JLabel label = new JLabel(new HighlightIcon(textArea, scrollbar));
+    HighlightIcon icon = new HighlightIcon(textArea, scrollbar);
+    JLabel label = new JLabel(icon);
     // label.setBorder(BorderFactory.createLineBorder(Color.RED));
     scroll.setRowHeaderView(label);
 
@@ -86,12 +96,14 @@ public final class MainPanel extends JPanel {
     JButton highlight = new JButton("highlight");
     highlight.addActionListener(e -> {
       setHighlight(textArea, PATTERN);
+      invalidateStrips(scrollbar, icon);
       repaint();
     });
 
     JButton clear = new JButton("clear");
     clear.addActionListener(e -> {
       textArea.getHighlighter().removeAllHighlights();
+      invalidateStrips(scrollbar, icon);
       scroll.repaint();
     });
 
@@ -126,6 +138,16 @@ public final class MainPanel extends JPanel {
     }
   }
 
+  private static void invalidateStrips(JScrollBar scrollbar, HighlightIcon icon) {
+    icon.getStrip().invalidate();
+    ScrollBarUI ui = scrollbar.getUI();
+    if (ui instanceof WindowsHighlightScrollBarUI) {
+      ((WindowsHighlightScrollBarUI) ui).getStrip().invalidate();
+    } else if (ui instanceof MetalHighlightScrollBarUI) {
+      ((MetalHighlightScrollBarUI) ui).getStrip().invalidate();
+    }
+  }
+
   public static void main(String[] args) {
     EventQueue.invokeLater(MainPanel::createAndShowGui);
   }
@@ -151,10 +173,17 @@ class HighlightIcon implements Icon {
   private final Rectangle thumbRect = new Rectangle();
   private final JTextComponent textArea;
   private final JScrollBar scrollbar;
+  private final MatchDensityStrip strip;
 
   protected HighlightIcon(JTextComponent textArea, JScrollBar scrollbar) {
     this.textArea = textArea;
     this.scrollbar = scrollbar;
+    this.strip = new MatchDensityStrip(textArea, Color.RED);
+    this.strip.install();
+  }
+
+  public MatchDensityStrip getStrip() {
+    return strip;
   }
 
   @Override public void paintIcon(Component c, Graphics g, int x, int y) {
@@ -166,24 +195,14 @@ class HighlightIcon implements Icon {
     BoundedRangeModel range = scrollbar.getModel();
     double sy = range.getExtent() / (double) (range.getMaximum() - range.getMinimum());
     AffineTransform at = AffineTransform.getScaleInstance(1d, sy);
-    Highlighter highlighter = textArea.getHighlighter();
 
     // paint Highlight
     Graphics2D g2 = (Graphics2D) g.create();
     g2.translate(x, y);
-    g2.setPaint(Color.RED);
-    try {
-      for (Highlighter.Highlight hh: highlighter.getHighlights()) {
-        Rectangle r = textArea.modelToView(hh.getStartOffset());
-        Rectangle s = at.createTransformedShape(r).getBounds();
-        int h = 2; // Math.max(2, s.height - 2);
-        g2.fillRect(0, top + s.y, getIconWidth(), h);
-      }
-    } catch (BadLocationException ex) {
-      // should never happen
-      RuntimeException wrap = new StringIndexOutOfBoundsException(ex.offsetRequested());
-      wrap.initCause(ex);
-      throw wrap;
+    int height = getIconHeight();
+    Image image = strip.getImage(c, height);
+    if (Objects.nonNull(image)) {
+      g2.drawImage(image, 0, top, getIconWidth(), height, c);
     }
 
     // paint Thumb
@@ -211,66 +230,226 @@ class HighlightIcon implements Icon {
   }
 }
 
-class WindowsHighlightScrollBarUI extends WindowsScrollBarUI {
+// A 1 pixel wide image of the highlight positions scaled to the strip height.
+// The text area rows are sampled once per pixel with viewToModel on the EDT,
+// then the highlights are binned in the background, so a repaint is a single drawImage.
+class MatchDensityStrip {
   private final JTextComponent textArea;
+  private final Color color;
+  private final Timer rebuildTimer;
+  private final DocumentListener documentHandler = new DocumentListener() {
+    @Override public void insertUpdate(DocumentEvent e) {
+      rebuildTimer.restart();
+    }
+
+    @Override public void removeUpdate(DocumentEvent e) {
+      rebuildTimer.restart();
+    }
+
+    @Override public void changedUpdate(DocumentEvent e) {
+      /* not needed */
+    }
+  };
+  private final ComponentListener resizeHandler = new ComponentAdapter() {
+    @Override public void componentResized(ComponentEvent e) {
+      rebuildTimer.restart();
+    }
+  };
+  private Document document;
+  private Component target;
+  private BufferedImage image;
+  private boolean valid;
+  private SwingWorker<BufferedImage, Void> worker;
+
+  protected MatchDensityStrip(JTextComponent textArea, Color color) {
+    this.textArea = textArea;
+    this.color = color;
+    this.rebuildTimer = new Timer(100, e -> invalidate());
+    this.rebuildTimer.setRepeats(false);
+  }
+
+  // Starts to follow the edits and the size of the text area.
+  public void install() {
+    uninstall();
+    document = textArea.getDocument();
+    document.addDocumentListener(documentHandler);
+    textArea.addComponentListener(resizeHandler);
+  }
+
+  public void uninstall() {
+    Optional.ofNullable(document).ifPresent(d -> d.removeDocumentListener(documentHandler));
+    document = null;
+    textArea.removeComponentListener(resizeHandler);
+    rebuildTimer.stop();
+    Optional.ofNullable(worker).ifPresent(w -> w.cancel(true));
+    worker = null;
+  }
+
+  // Called when the highlights have been changed.
+  public void invalidate() {
+    valid = false;
+    if (Objects.nonNull(target)) {
+      target.repaint();
+    }
+  }
+
+  // Returns the last built image, which may be stale while a new one is being built.
+  public Image getImage(Component c, int height) {
+    target = c;
+    boolean resized = Objects.isNull(image) || image.getHeight() != height;
+    if ((!valid || resized) && height > 0 && textArea.getHeight() > 0) {
+      valid = true;
+      build(height);
+    }
+    return image;
+  }
+
+  private void build(int height) {
+    Optional.ofNullable(worker).ifPresent(w -> w.cancel(true));
+    Highlighter.Highlight[] highlights = textArea.getHighlighter().getHighlights();
+    int[] offsets = new int[highlights.length];
+    for (int i = 0; i < highlights.length; i++) {
+      offsets[i] = highlights[i].getStartOffset();
+    }
+    // rowStarts[p] is the first offset of the row at the top of the pixel p.
+    double scale = textArea.getHeight() / (double) height;
+    int[] rowStarts = new int[height];
+    Point pt = new Point();
+    for (int p = 0; p < height; p++) {
+      pt.y = (int) (p * scale);
+      rowStarts[p] = textArea.viewToModel(pt);
+      // Java 9: rowStarts[p] = textArea.viewToModel2D(pt);
+    }
+    int rgb = color.getRGB();
+    worker = new SwingWorker<BufferedImage, Void>() {
+      @Override protected BufferedImage doInBackground() {
+        BufferedImage img = new BufferedImage(1, height, BufferedImage.TYPE_INT_ARGB);
+        for (int i = 0; i < offsets.length && !isCancelled(); i++) {
+          int p = pixelOf(rowStarts, offsets[i]);
+          img.setRGB(0, p, rgb);
+          if (p + 1 < height) {
+            img.setRGB(0, p + 1, rgb); // int h = 2;
+          }
+        }
+        return img;
+      }
+
+      @Override protected void done() {
+        if (!isCancelled() && Objects.equals(worker, this)) {
+          try {
+            image = get();
+          } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+          } catch (ExecutionException ex) {
+            ex.printStackTrace();
+            UIManager.getLookAndFeel().provideErrorFeedback(textArea);
+          }
+          worker = null;
+          Optional.ofNullable(target).ifPresent(Component::repaint);
+        }
+      }
+    };
+    worker.execute();
+  }
+
+  // Returns the top pixel of the row that contains the offset.
+  protected static int pixelOf(int[] rowStarts, int offset) {
+    int last = upperBound(rowStarts, offset) - 1;
+    if (last < 0) {
+      return 0;
+    }
+    return lowerBound(rowStarts, rowStarts[last]);
+  }
+
+  private static int lowerBound(int[] a, int key) {
+    int lo = 0;
+    int hi = a.length;
+    while (lo < hi) {
+      int mid = (lo + hi) >>> 1;
+      if (a[mid] < key) {
+        lo = mid + 1;
+      } else {
+        hi = mid;
+      }
+    }
+    return lo;
+  }
+
+  private static int upperBound(int[] a, int key) {
+    int lo = 0;
+    int hi = a.length;
+    while (lo < hi) {
+      int mid = (lo + hi) >>> 1;
+      if (a[mid] <= key) {
+        lo = mid + 1;
+      } else {
+        hi = mid;
+      }
+    }
+    return lo;
+  }
+}
+
+class WindowsHighlightScrollBarUI extends WindowsScrollBarUI {
+  private final MatchDensityStrip strip;
 
   protected WindowsHighlightScrollBarUI(JTextComponent textArea) {
     super();
-    this.textArea = textArea;
+    this.strip = new MatchDensityStrip(textArea, Color.YELLOW);
+  }
+
+  public MatchDensityStrip getStrip() {
+    return strip;
+  }
+
+  @Override public void installUI(JComponent c) {
+    super.installUI(c);
+    strip.install();
+  }
+
+  @Override public void uninstallUI(JComponent c) {
+    strip.uninstall();
+    super.uninstallUI(c);
   }
 
   @Override protected void paintTrack(Graphics g, JComponent c, Rectangle trackBounds) {
     super.paintTrack(g, c, trackBounds);
 
-    Rectangle rect = textArea.getBounds();
-    double sy = trackBounds.getHeight() / rect.getHeight();
-    AffineTransform at = AffineTransform.getScaleInstance(1d, sy);
-    Highlighter highlighter = textArea.getHighlighter();
-    g.setColor(Color.YELLOW);
-    try {
-      for (Highlighter.Highlight hh: highlighter.getHighlights()) {
-        Rectangle r = textArea.modelToView(hh.getStartOffset());
-        Rectangle s = at.createTransformedShape(r).getBounds();
-        int h = 2; // Math.max(2, s.height - 2);
-        g.fillRect(trackBounds.x, trackBounds.y + s.y, trackBounds.width, h);
-      }
-    } catch (BadLocationException ex) {
-      // should never happen
-      RuntimeException wrap = new StringIndexOutOfBoundsException(ex.offsetRequested());
-      wrap.initCause(ex);
-      throw wrap;
+    Image image = strip.getImage(c, trackBounds.height);
+    if (Objects.nonNull(image)) {
+      g.drawImage(image, trackBounds.x, trackBounds.y, trackBounds.width, trackBounds.height, c);
     }
   }
 }
 
 class MetalHighlightScrollBarUI extends MetalScrollBarUI {
-  private final JTextComponent textArea;
+  private final MatchDensityStrip strip;
 
   protected MetalHighlightScrollBarUI(JTextComponent textArea) {
     super();
-    this.textArea = textArea;
+    this.strip = new MatchDensityStrip(textArea, Color.YELLOW);
+  }
+
+  public MatchDensityStrip getStrip() {
+    return strip;
+  }
+
+  @Override public void installUI(JComponent c) {
+    super.installUI(c);
+    strip.install();
+  }
+
+  @Override public void uninstallUI(JComponent c) {
+    strip.uninstall();
+    super.uninstallUI(c);
   }
 
   @Override protected void paintTrack(Graphics g, JComponent c, Rectangle trackBounds) {
     super.paintTrack(g, c, trackBounds);
 
-    Rectangle rect = textArea.getBounds();
-    double sy = trackBounds.getHeight() / rect.getHeight();
-    AffineTransform at = AffineTransform.getScaleInstance(1d, sy);
-    Highlighter highlighter = textArea.getHighlighter();
-    g.setColor(Color.YELLOW);
-    try {
-      for (Highlighter.Highlight hh: highlighter.getHighlights()) {
-        Rectangle r = textArea.modelToView(hh.getStartOffset());
-        Rectangle s = at.createTransformedShape(r).getBounds();
-        int h = 2; // Math.max(2, s.height - 2);
-        g.fillRect(trackBounds.x, trackBounds.y + s.y, trackBounds.width, h);
-      }
-    } catch (BadLocationException ex) {
-      // should never happen
-      RuntimeException wrap = new StringIndexOutOfBoundsException(ex.offsetRequested());
-      wrap.initCause(ex);
-      throw wrap;
+    Image image = strip.getImage(c, trackBounds.height);
+    if (Objects.nonNull(image)) {
+      g.drawImage(image, trackBounds.x, trackBounds.y, trackBounds.width, trackBounds.height, c);
     }
   }
 }
@@ -117,13 +117,15 @@ public class TableSorter extends AbstractTableModel {
 
   protected TableModel tableModel;
 
-  protected final List<Row> viewToModel = new ArrayList<>();
-  protected final List<Integer> modelToView = new ArrayList<>();
+  protected int[] viewToModel;
+  protected int[] modelToView;
   protected final List<Directive> sortingColumns = new ArrayList<>();
 
   private JTableHeader tableHeader;
   private final transient Map<Class<?>, Comparator<?>> columnComparators = new ConcurrentHashMap<>();
-  private final transient RowComparator<Row> rowComparator = new RowComparator<>();
+  // sortKeys[i][modelIndex]: cached value of the i-th sorting column, filled once per sort
+  private transient Object[][] sortKeys;
+  private final transient List<Comparator<Object>> keyComparators = new ArrayList<>();
   private transient MouseListener mouseListener;
   private transient TableModelListener tableModelListener;
 
@@ -156,8 +158,9 @@ public class TableSorter extends AbstractTableModel {
   }
 
   protected void clearSortingState() {
-    viewToModel.clear();
-    modelToView.clear();
+    viewToModel = null;
+    modelToView = null;
+    sortKeys = null;
   }
 
   // public TableModel getTableModel() {
@@ -292,36 +295,209 @@ public class TableSorter extends AbstractTableModel {
     }
   }
 
-  private List<Row> getViewToModel() {
-    if (viewToModel.isEmpty()) {
-      // int tableModelRowCount = tableModel.getRowCount();
-      // // viewToModel = new Row[tableModelRowCount];
-      // for (int row = 0; row < tableModelRowCount; row++) {
-      //   viewToModel.add(new Row(row));
-      // }
-      IntStream.range(0, tableModel.getRowCount()).forEach(row -> viewToModel.add(new Row(row)));
+  private int[] getViewToModel() {
+    if (Objects.isNull(viewToModel)) {
+      int rowCount = tableModel.getRowCount();
+      int[] rows = IntStream.range(0, rowCount).toArray();
       if (isSorting()) {
-        viewToModel.sort(rowComparator);
+        cacheSortKeys(rowCount);
+        mergeSort(rows, new int[rowCount], 0, rowCount);
       }
+      viewToModel = rows;
     }
     return viewToModel;
   }
 
   public int modelIndex(int viewIndex) {
-    return getViewToModel().get(viewIndex).modelIndex;
+    return getViewToModel()[viewIndex];
   }
 
-  protected List<Integer> getModelToView() {
-    if (modelToView.isEmpty()) {
-      // int n = getViewToModel().size();
-      // for (int i = 0; i < n; i++) {
-      //   modelToView.add(modelIndex(i));
-      // }
-      IntStream.range(0, getViewToModel().size()).forEach(i -> modelToView.add(modelIndex(i)));
+  protected int[] getModelToView() {
+    if (Objects.isNull(modelToView)) {
+      int[] rows = getViewToModel();
+      int[] a = new int[rows.length];
+      for (int i = 0; i < rows.length; i++) {
+        a[rows[i]] = i;
+      }
+      modelToView = a;
     }
     return modelToView;
   }
 
+  // Sort keys are read from the model once, so the comparison does not
+  // call tableModel.getValueAt(...) O(n log n) times.
+  @SuppressWarnings("unchecked")
+  private void cacheSortKeys(int rowCount) {
+    sortKeys = new Object[sortingColumns.size()][];
+    keyComparators.clear();
+    for (int i = 0; i < sortKeys.length; i++) {
+      int column = sortingColumns.get(i).column;
+      Object[] keys = new Object[rowCount];
+      for (int row = 0; row < rowCount; row++) {
+        keys[row] = tableModel.getValueAt(row, column);
+      }
+      sortKeys[i] = keys;
+      keyComparators.add(Comparator.nullsFirst(getComparator(column)));
+    }
+  }
+
+  private int compareRows(int row1, int row2) {
+    for (int i = 0; i < sortKeys.length; i++) {
+      int comparison = keyComparators.get(i).compare(sortKeys[i][row1], sortKeys[i][row2]);
+      if (comparison != 0) {
+        return sortingColumns.get(i).direction == DESCENDING ? ~comparison + 1 : comparison;
+      }
+    }
+    return row1 - row2;
+  }
+
+  private void mergeSort(int[] a, int[] tmp, int lo, int hi) {
+    if (hi - lo < 16) {
+      for (int i = lo + 1; i < hi; i++) {
+        int v = a[i];
+        int j = i;
+        for (; j > lo && compareRows(a[j - 1], v) > 0; j--) {
+          a[j] = a[j - 1];
+        }
+        a[j] = v;
+      }
+      return;
+    }
+    int mid = (lo + hi) >>> 1;
+    mergeSort(a, tmp, lo, mid);
+    mergeSort(a, tmp, mid, hi);
+    if (compareRows(a[mid - 1], a[mid]) <= 0) {
+      return;
+    }
+    System.arraycopy(a, lo, tmp, lo, hi - lo);
+    int i = lo;
+    int j = mid;
+    for (int k = lo; k < hi; k++) {
+      if (j >= hi || i < mid && compareRows(tmp[i], tmp[j]) <= 0) {
+        a[k] = tmp[i++];
+      } else {
+        a[k] = tmp[j++];
+      }
+    }
+  }
+
+  private int[] merge(int[] a, int[] b) {
+    int[] c = new int[a.length + b.length];
+    int i = 0;
+    int j = 0;
+    for (int k = 0; k < c.length; k++) {
+      if (j >= b.length || i < a.length && compareRows(a[i], b[j]) <= 0) {
+        c[k] = a[i++];
+      } else {
+        c[k] = b[j++];
+      }
+    }
+    return c;
+  }
+
+  private int[] sortedRange(int firstRow, int lastRow) {
+    int[] rows = IntStream.rangeClosed(firstRow, lastRow).toArray();
+    mergeSort(rows, new int[rows.length], 0, rows.length);
+    return rows;
+  }
+
+  // Incremental updates of the sorted mapping: the changed rows are sorted
+  // on their own and merged with the rows that are already in order.
+  private boolean rowsInserted(int firstRow, int lastRow) {
+    int count = lastRow - firstRow + 1;
+    int size = viewToModel.length;
+    if (firstRow > size || size + count != tableModel.getRowCount()) {
+      return false;
+    }
+    for (int i = 0; i < sortKeys.length; i++) {
+      int column = sortingColumns.get(i).column;
+      Object[] keys = new Object[size + count];
+      System.arraycopy(sortKeys[i], 0, keys, 0, firstRow);
+      System.arraycopy(sortKeys[i], firstRow, keys, lastRow + 1, size - firstRow);
+      for (int row = firstRow; row <= lastRow; row++) {
+        keys[row] = tableModel.getValueAt(row, column);
+      }
+      sortKeys[i] = keys;
+    }
+    int[] rows = new int[size];
+    for (int i = 0; i < size; i++) {
+      int m = viewToModel[i];
+      rows[i] = m >= firstRow ? m + count : m;
+    }
+    viewToModel = merge(rows, sortedRange(firstRow, lastRow));
+    return true;
+  }
+
+  private boolean rowsDeleted(int firstRow, int lastRow) {
+    int count = lastRow - firstRow + 1;
+    int size = viewToModel.length;
+    if (lastRow >= size || size - count != tableModel.getRowCount()) {
+      return false;
+    }
+    for (int i = 0; i < sortKeys.length; i++) {
+      Object[] keys = new Object[size - count];
+      System.arraycopy(sortKeys[i], 0, keys, 0, firstRow);
+      System.arraycopy(sortKeys[i], lastRow + 1, keys, firstRow, size - lastRow - 1);
+      sortKeys[i] = keys;
+    }
+    int[] rows = new int[size - count];
+    int j = 0;
+    for (int m: viewToModel) {
+      if (m < firstRow) {
+        rows[j++] = m;
+      } else if (m > lastRow) {
+        rows[j++] = m - count;
+      }
+    }
+    viewToModel = rows;
+    return true;
+  }
+
+  private boolean rowsUpdated(int firstRow, int lastRow) {
+    int count = lastRow - firstRow + 1;
+    int size = viewToModel.length;
+    if (lastRow >= size || size != tableModel.getRowCount()) {
+      return false;
+    }
+    for (int i = 0; i < sortKeys.length; i++) {
+      int column = sortingColumns.get(i).column;
+      for (int row = firstRow; row <= lastRow; row++) {
+        sortKeys[i][row] = tableModel.getValueAt(row, column);
+      }
+    }
+    int[] rows = new int[size - count];
+    int j = 0;
+    for (int m: viewToModel) {
+      if (m < firstRow || m > lastRow) {
+        rows[j++] = m;
+      }
+    }
+    viewToModel = merge(rows, sortedRange(firstRow, lastRow));
+    return true;
+  }
+
+  private boolean updateSortingState(TableModelEvent e) {
+    int fr = e.getFirstRow();
+    int lr = e.getLastRow();
+    if (Objects.isNull(viewToModel) || fr < 0 || lr == Integer.MAX_VALUE) {
+      return false;
+    }
+    boolean updated;
+    switch (e.getType()) {
+      case TableModelEvent.INSERT:
+        updated = rowsInserted(fr, lr);
+        break;
+      case TableModelEvent.DELETE:
+        updated = rowsDeleted(fr, lr);
+        break;
+      default:
+        updated = rowsUpdated(fr, lr);
+        break;
+    }
+    modelToView = null;
+    return updated;
+  }
+
   // TableModel interface methods
 
   @Override public int getRowCount() {
@@ -355,41 +531,6 @@ public class TableSorter extends AbstractTableModel {
   }
 
   // Helper classes
-  private class RowComparator<E extends Row> implements Comparator<E> {
-    @Override public int compare(Row r1, Row r2) {
-      int row1 = r1.modelIndex;
-      int row2 = r2.modelIndex;
-      for (Directive directive: sortingColumns) {
-        int column = directive.column;
-        Object o1 = tableModel.getValueAt(row1, column);
-        Object o2 = tableModel.getValueAt(row2, column);
-        // int comparison;
-        // // Define null less than everything, except null.
-        // if (o1 == null && o2 == null) {
-        //   comparison = 0;
-        // } else if (o1 == null) {
-        //   comparison = -1;
-        // } else if (o2 == null) {
-        //   comparison = 1;
-        // } else {
-        //   @SuppressWarnings("unchecked")
-        //   Comparator<Object> comparator = getComparator(column);
-        //   comparison = comparator.compare(o1, o2);
-        // }
-        // if (comparison != 0) {
-        //   return directive.direction == DESCENDING ? -comparison : comparison;
-        // }
-        @SuppressWarnings("unchecked")
-        Comparator<Object> comparator = getComparator(column);
-        int comparison = Objects.compare(o1, o2, Comparator.nullsFirst(comparator));
-        if (comparison != 0) {
-          return directive.direction == DESCENDING ? ~comparison + 1 : comparison;
-        }
-      }
-      return row1 - row2;
-    }
-  }
-
   private class TableModelHandler implements TableModelListener {
     @Override public void tableChanged(TableModelEvent e) {
       // If we're not sorting by anything, just pass the event along.
@@ -430,13 +571,17 @@ public class TableSorter extends AbstractTableModel {
       int fr = e.getFirstRow();
       int lr = e.getLastRow();
       if (fr == lr && column != TableModelEvent.ALL_COLUMNS && getSortingStatus(column) == NOT_SORTED) {
-        int viewIndex = getModelToView().get(fr);
+        int viewIndex = getModelToView()[fr];
         fireTableChanged(new TableModelEvent(TableSorter.this, viewIndex, viewIndex, column, e.getType()));
         return;
       }
 
       // Something has happened to the data that may have invalidated the row order.
-      clearSortingState();
+      // Rows that were inserted, deleted or updated are merged into the
+      // current order; anything else (e.g. fireTableDataChanged()) resorts.
+      if (!updateSortingState(e)) {
+        clearSortingState();
+      }
       fireTableDataChanged();
       // return;
     }
@@ -616,13 +761,3 @@ class Directive implements Serializable {
     this.direction = direction;
   }
 }
-
-@SuppressWarnings("PMD.ShortClassName")
-class Row implements Serializable {
-  private static final long serialVersionUID = 1L;
-  public final int modelIndex;
-
-  protected Row(int index) {
-    this.modelIndex = index;
-  }
-}
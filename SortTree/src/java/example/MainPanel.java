@@ -11,12 +11,14 @@ import java.util.Collections;
 import java.util.Comparator;
 import java.util.Enumeration;
 import java.util.List;
+import java.util.Objects;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Stream;
 import javax.swing.*;
 import javax.swing.tree.DefaultMutableTreeNode;
 import javax.swing.tree.DefaultTreeModel;
 import javax.swing.tree.MutableTreeNode;
+import javax.swing.tree.TreePath;
 
 public final class MainPanel extends JPanel {
   private MainPanel() {
@@ -28,9 +30,10 @@ public final class MainPanel extends JPanel {
     JRadioButton sort2 = new JRadioButton("2: selection sort");
     // JRadioButton sort3 = new JRadioButton("3: iterative merge sort"); // JDK 1.6.0
     JRadioButton sort3 = new JRadioButton("3: TimSort"); // JDK 1.7.0
+    JRadioButton sort4 = new JRadioButton("4: TreeSorter");
     JRadioButton reset = new JRadioButton("reset");
 
-    JPanel box = new JPanel(new GridLayout(2, 2));
+    JPanel box = new JPanel(new GridLayout(0, 2));
     ActionListener listener = e -> {
       JRadioButton check = (JRadioButton) e.getSource();
       if (check.equals(reset)) {
@@ -39,7 +42,14 @@ public final class MainPanel extends JPanel {
         TreeUtil.COMPARE_COUNTER.set(0);
         TreeUtil.SWAP_COUNTER.set(0);
         DefaultMutableTreeNode r = TreeUtil.deepCopyTree(root, (DefaultMutableTreeNode) root.clone());
-        if (check.equals(sort1)) {
+        if (check.equals(sort4)) {
+          // sorts the displayed tree, the expanded and selected nodes are kept
+          tree.setModel(new DefaultTreeModel(r));
+          TreeUtil.expandAll(tree);
+          TreeUtil.SORTER.sort(tree);
+          log(check.getText());
+          return;
+        } else if (check.equals(sort1)) {
           TreeUtil.sortTree1(r);
         } else if (check.equals(sort2)) {
           TreeUtil.sortTree2(r);
@@ -52,11 +62,24 @@ public final class MainPanel extends JPanel {
       TreeUtil.expandAll(tree);
     };
     ButtonGroup bg = new ButtonGroup();
-    Stream.of(reset, sort1, sort2, sort3).forEach(check -> {
+    Stream.of(reset, sort1, sort2, sort3, sort4).forEach(check -> {
       box.add(check);
       bg.add(check);
       check.addActionListener(listener);
     });
+
+    JButton add = new JButton("add");
+    add.addActionListener(e -> {
+      TreePath path = tree.getSelectionPath();
+      if (sort4.isSelected() && Objects.nonNull(path)) {
+        DefaultTreeModel model = (DefaultTreeModel) tree.getModel();
+        DefaultMutableTreeNode parent = (DefaultMutableTreeNode) path.getLastPathComponent();
+        DefaultMutableTreeNode child = new DefaultMutableTreeNode(String.format("%04d", (int) (Math.random() * 10_000)));
+        TreeUtil.SORTER.insertNodeInto(model, child, parent);
+        tree.scrollPathToVisible(new TreePath(child.getPath()));
+      }
+    });
+    box.add(add);
     add(box, BorderLayout.SOUTH);
 
     JPanel p = new JPanel(new BorderLayout());
@@ -124,6 +147,14 @@ final class TreeUtil {
   private static Comparator<DefaultMutableTreeNode> tnc = Comparator.comparing(DefaultMutableTreeNode::isLeaf)
       .thenComparing(n -> n.getUserObject().toString());
 
+  // the same order as tnc: the key is computed once for each node, "0": node with children, "1": leaf
+  public static final TreeSorter<String> SORTER = new TreeSorter<>(
+      n -> (n.isLeaf() ? "1" : "0") + n.getUserObject(),
+      (a, b) -> {
+        COMPARE_COUNTER.getAndIncrement();
+        return a.compareTo(b);
+      });
+
   private TreeUtil() {
     /* Singleton */
   }
@@ -0,0 +1,145 @@
+// -*- mode:java; encoding:utf-8 -*-
+// vim:set fileencoding=utf-8:
+// @homepage@
+
+package example;
+
+import java.util.AbstractMap;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.Enumeration;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import javax.swing.JTree;
+import javax.swing.tree.DefaultMutableTreeNode;
+import javax.swing.tree.DefaultTreeModel;
+import javax.swing.tree.TreeNode;
+import javax.swing.tree.TreePath;
+
+// Sorts the children of every node of a tree by a key that is computed once per child.
+// The new order of the children of each parent is found in parallel without touching
+// the tree, then the children are replaced with one nodeStructureChanged event for each
+// changed subtree, and the expanded and selected paths of the JTree are restored.
+class TreeSorter<K> {
+  private final Function<? super DefaultMutableTreeNode, ? extends K> keyFunction;
+  private final Comparator<? super K> keyOrder;
+
+  protected TreeSorter(Function<? super DefaultMutableTreeNode, ? extends K> keyFunction, Comparator<? super K> keyOrder) {
+    this.keyFunction = keyFunction;
+    this.keyOrder = keyOrder;
+  }
+
+  // Returns the sorted children of each node whose children are not in order, in pre-order.
+  // The tree is only read, so this can run off the EDT as long as the tree is not modified.
+  public Map<DefaultMutableTreeNode, DefaultMutableTreeNode[]> getSortedChildren(DefaultMutableTreeNode root) {
+    List<DefaultMutableTreeNode> parents = new ArrayList<>();
+    Deque<DefaultMutableTreeNode> stack = new ArrayDeque<>();
+    stack.push(root);
+    while (!stack.isEmpty()) {
+      DefaultMutableTreeNode node = stack.pop();
+      if (node.getChildCount() > 0) {
+        parents.add(node);
+        for (int i = node.getChildCount() - 1; i >= 0; i--) {
+          stack.push((DefaultMutableTreeNode) node.getChildAt(i));
+        }
+      }
+    }
+    return parents.parallelStream()
+        .map(p -> new AbstractMap.SimpleImmutableEntry<>(p, sortChildren(p)))
+        .filter(e -> Objects.nonNull(e.getValue()))
+        .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue, (a, b) -> a, LinkedHashMap::new));
+  }
+
+  // The children are sorted by their precomputed keys with List.sort, which is stable,
+  // so the equal keys keep their order. Returns null if the order does not change.
+  private DefaultMutableTreeNode[] sortChildren(DefaultMutableTreeNode parent) {
+    int n = parent.getChildCount();
+    List<Map.Entry<K, DefaultMutableTreeNode>> keyed = new ArrayList<>(n);
+    for (int i = 0; i < n; i++) {
+      DefaultMutableTreeNode child = (DefaultMutableTreeNode) parent.getChildAt(i);
+      keyed.add(new AbstractMap.SimpleImmutableEntry<>(keyFunction.apply(child), child));
+    }
+    keyed.sort(Map.Entry.comparingByKey(keyOrder));
+    DefaultMutableTreeNode[] sorted = new DefaultMutableTreeNode[n];
+    boolean changed = false;
+    for (int i = 0; i < n; i++) {
+      sorted[i] = keyed.get(i).getValue();
+      changed |= sorted[i] != parent.getChildAt(i);
+    }
+    return changed ? sorted : null;
+  }
+
+  // Replaces the children on the EDT, a nodeStructureChanged event of a parent also covers its descendants.
+  public void apply(DefaultTreeModel model, Map<DefaultMutableTreeNode, DefaultMutableTreeNode[]> sortedChildren) {
+    Set<TreeNode> changed = new HashSet<>();
+    sortedChildren.forEach((parent, children) -> {
+      parent.removeAllChildren();
+      Arrays.asList(children).forEach(parent::add);
+      boolean covered = false;
+      for (TreeNode p = parent.getParent(); Objects.nonNull(p) && !covered; p = p.getParent()) {
+        covered = changed.contains(p);
+      }
+      changed.add(parent);
+      if (!covered) {
+        model.nodeStructureChanged(parent);
+      }
+    });
+  }
+
+  public void sort(JTree tree) {
+    DefaultTreeModel model = (DefaultTreeModel) tree.getModel();
+    DefaultMutableTreeNode root = (DefaultMutableTreeNode) model.getRoot();
+    Map<DefaultMutableTreeNode, DefaultMutableTreeNode[]> sortedChildren = getSortedChildren(root);
+    if (sortedChildren.isEmpty()) {
+      return;
+    }
+    // the paths stay the same, only the order of the children changes
+    Enumeration<TreePath> e = tree.getExpandedDescendants(new TreePath(root));
+    List<TreePath> expanded = Objects.nonNull(e) ? Collections.list(e) : Collections.emptyList();
+    TreePath[] selection = tree.getSelectionPaths();
+    apply(model, sortedChildren);
+    expanded.forEach(tree::expandPath);
+    tree.setSelectionPaths(selection);
+  }
+
+  // Inserts the node after the children with an equal or smaller key, the children are expected to be sorted.
+  public void insertNodeInto(DefaultTreeModel model, DefaultMutableTreeNode child, DefaultMutableTreeNode parent) {
+    K key = keyFunction.apply(child);
+    int lo = 0;
+    int hi = parent.getChildCount();
+    while (lo < hi) {
+      int mid = (lo + hi) >>> 1;
+      if (keyOrder.compare(keyFunction.apply((DefaultMutableTreeNode) parent.getChildAt(mid)), key) <= 0) {
+        lo = mid + 1;
+      } else {
+        hi = mid;
+      }
+    }
+    boolean wasLeaf = parent.isLeaf();
+    model.insertNodeInto(child, parent, lo);
+    // a leaf that gets its first child may have another key now
+    TreeNode grandParent = parent.getParent();
+    if (wasLeaf && grandParent instanceof DefaultMutableTreeNode && !isInOrder(parent)) {
+      model.removeNodeFromParent(parent);
+      insertNodeInto(model, parent, (DefaultMutableTreeNode) grandParent);
+    }
+  }
+
+  private boolean isInOrder(DefaultMutableTreeNode node) {
+    K key = keyFunction.apply(node);
+    TreeNode prev = node.getPreviousSibling();
+    TreeNode next = node.getNextSibling();
+    return (Objects.isNull(prev) || keyOrder.compare(keyFunction.apply((DefaultMutableTreeNode) prev), key) <= 0)
+        && (Objects.isNull(next) || keyOrder.compare(key, keyFunction.apply((DefaultMutableTreeNode) next)) <= 0);
+  }
+}
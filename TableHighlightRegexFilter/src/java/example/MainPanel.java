@@ -5,13 +5,19 @@
 package example;
 
 import java.awt.*;
+import java.util.Arrays;
 import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.regex.PatternSyntaxException;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 import javax.swing.*;
 import javax.swing.event.DocumentEvent;
 import javax.swing.event.DocumentListener;
+import javax.swing.event.TableModelEvent;
 import javax.swing.table.DefaultTableModel;
 import javax.swing.table.TableCellRenderer;
 import javax.swing.table.TableModel;
@@ -24,7 +30,16 @@ import javax.swing.text.Highlighter.HighlightPainter;
 public final class MainPanel extends JPanel {
   private static final Color WARNING_COLOR = new Color(0xFF_C8_C8);
   private final JTextField field = new JTextField("ab+");
+  private final JLabel status = new JLabel(" ");
   private final HighlightTableCellRenderer renderer = new HighlightTableCellRenderer();
+  private final DefaultTableModel model;
+  private final transient TableRowSorter<? extends TableModel> sorter;
+  // the query waits until the typing pauses
+  private final Timer debounce = new Timer(250, e -> startFilter());
+  private transient String[][] snapshot;
+  private transient RegexMatchTask task;
+  private transient Pattern appliedPattern;
+  private int[][] appliedSpans;
 
   private MainPanel() {
     super(new BorderLayout(5, 5));
@@ -34,32 +49,38 @@ public final class MainPanel extends JPanel {
         {"ccc abc aa ab bb ada eab ee", "xxx"}, {"ddd aa abb bb", "cc bb aba"},
         {"cc bac bb bb aa abc e", "xxx"}, {"ddd aa ab cab bb", "cc bab aab"}
     };
-    TableModel model = new DefaultTableModel(data, columnNames) {
+    model = new DefaultTableModel(data, columnNames) {
       @Override public Class<?> getColumnClass(int column) {
         return String.class;
       }
     };
-    TableRowSorter<? extends TableModel> sorter = new TableRowSorter<>(model);
+    sorter = new TableRowSorter<>(model);
 
     JTable table = new JTable(model);
     table.setFillsViewportHeight(true);
     table.setRowSorter(sorter);
     table.setDefaultRenderer(String.class, renderer);
+    // added after the JTable, so the spans are updated before the JTable tells the sorter
+    model.addTableModelListener(this::modelChanged);
 
+    debounce.setRepeats(false);
     field.getDocument().addDocumentListener(new DocumentListener() {
       @Override public void insertUpdate(DocumentEvent e) {
-        fireDocumentChangeEvent(sorter);
+        fireDocumentChangeEvent();
       }
 
       @Override public void removeUpdate(DocumentEvent e) {
-        fireDocumentChangeEvent(sorter);
+        fireDocumentChangeEvent();
       }
 
       @Override public void changedUpdate(DocumentEvent e) {
         /* not needed */
       }
     });
-    fireDocumentChangeEvent(sorter);
+    startFilter();
+
+    JButton button = new JButton("1,000,000 rows");
+    button.addActionListener(e -> model.setDataVector(makeData(1_000_000), columnNames));
 
     JPanel sp = new JPanel(new BorderLayout(5, 5));
     sp.add(new JLabel("regex pattern:"), BorderLayout.WEST);
@@ -67,25 +88,124 @@ public final class MainPanel extends JPanel {
     sp.add(Box.createVerticalStrut(2), BorderLayout.SOUTH);
     sp.setBorder(BorderFactory.createTitledBorder("Search"));
 
+    JPanel bp = new JPanel(new BorderLayout(5, 5));
+    bp.add(status);
+    bp.add(button, BorderLayout.EAST);
+
     setBorder(BorderFactory.createEmptyBorder(5, 5, 5, 5));
     add(sp, BorderLayout.NORTH);
     add(new JScrollPane(table));
+    add(bp, BorderLayout.SOUTH);
     setPreferredSize(new Dimension(320, 240));
   }
 
-  protected void fireDocumentChangeEvent(TableRowSorter<? extends TableModel> sorter) {
+  private static Object[][] makeData(int rows) {
+    String[] words = {"aa", "ab", "abb", "aba", "bb", "bac", "cab", "cc", "ddd", "e", "xxx"};
+    ThreadLocalRandom r = ThreadLocalRandom.current();
+    Object[][] data = new Object[rows][];
+    Arrays.setAll(data, i -> new Object[] {
+        IntStream.range(0, 3).mapToObj(j -> words[r.nextInt(words.length)]).collect(Collectors.joining(" ")),
+        IntStream.range(0, 3).mapToObj(j -> words[r.nextInt(words.length)]).collect(Collectors.joining(" "))});
+    return data;
+  }
+
+  protected void fireDocumentChangeEvent() {
+    debounce.restart();
+  }
+
+  // The rows of the last finished query stay shown until the new query is done.
+  private void startFilter() {
+    debounce.stop();
+    if (Objects.nonNull(task)) {
+      task.cancel(true);
+      task = null;
+    }
     field.setBackground(Color.WHITE);
-    String pattern = field.getText().trim();
-    if (pattern.isEmpty()) {
+    String text = field.getText().trim();
+    if (text.isEmpty()) {
+      applyFilter(null, null);
+      status.setText(" ");
+      return;
+    }
+    Pattern pattern;
+    try {
+      pattern = Pattern.compile(text);
+    } catch (PatternSyntaxException ex) {
+      field.setBackground(WARNING_COLOR);
+      return;
+    }
+    if (Objects.isNull(snapshot)) {
+      snapshot = RegexMatchTask.snapshot(model);
+    }
+    long start = System.nanoTime();
+    int rowCount = snapshot.length;
+    status.setText("searching...");
+    task = new RegexMatchTask(snapshot, pattern) {
+      @Override protected void done() {
+        // a stale query may be done before it is cancelled
+        if (isCancelled() || task != this) {
+          return;
+        }
+        task = null;
+        try {
+          int[][] spans = get();
+          applyFilter(getPattern(), spans);
+          long count = Arrays.stream(spans).filter(Objects::nonNull).count();
+          status.setText(String.format("%d/%d rows, %dms", count, rowCount, (System.nanoTime() - start) / 1_000_000));
+        } catch (InterruptedException ex) {
+          Thread.currentThread().interrupt();
+        } catch (ExecutionException ex) {
+          // e.g. StackOverflowError of a deeply nested pattern
+          field.setBackground(WARNING_COLOR);
+          status.setText(Objects.toString(ex.getCause()));
+        }
+      }
+    };
+    task.execute();
+  }
+
+  private void applyFilter(Pattern pattern, int[][] spans) {
+    appliedPattern = pattern;
+    appliedSpans = spans;
+    renderer.setSpans(spans);
+    if (Objects.isNull(spans)) {
       sorter.setRowFilter(null);
-      renderer.updatePattern("");
-    } else if (renderer.updatePattern(pattern)) {
-      try {
-        sorter.setRowFilter(RowFilter.regexFilter(pattern));
-      } catch (PatternSyntaxException ex) {
-        field.setBackground(WARNING_COLOR);
+    } else {
+      sorter.setRowFilter(new RowFilter<TableModel, Integer>() {
+        @Override public boolean include(Entry<? extends TableModel, ? extends Integer> entry) {
+          int row = entry.getIdentifier();
+          return row < spans.length && Objects.nonNull(spans[row]);
+        }
+      });
+    }
+  }
+
+  private void modelChanged(TableModelEvent e) {
+    int first = e.getFirstRow();
+    int last = e.getLastRow();
+    boolean updated = e.getType() == TableModelEvent.UPDATE && first != TableModelEvent.HEADER_ROW && last != Integer.MAX_VALUE;
+    if (!updated) {
+      // the spans of moved rows may be off until the new query is done
+      snapshot = null;
+      if (Objects.nonNull(appliedPattern) || Objects.nonNull(task)) {
+        startFilter();
+      }
+      return;
+    }
+    // an edited cell is matched again right away
+    Matcher matcher = Objects.nonNull(appliedPattern) ? appliedPattern.matcher("") : null;
+    for (int row = first; row <= last; row++) {
+      String[] texts = RegexMatchTask.snapshotRow(model, row);
+      if (Objects.nonNull(snapshot) && row < snapshot.length) {
+        snapshot[row] = texts;
+      }
+      if (Objects.nonNull(matcher) && row < appliedSpans.length) {
+        appliedSpans[row] = RegexMatchTask.match(matcher, texts);
       }
     }
+    if (Objects.nonNull(task)) {
+      startFilter();
+    }
   }
 
   public static void main(String[] args) {
@@ -108,20 +228,14 @@ public final class MainPanel extends JPanel {
   }
 }
 
+// Paints the spans found by the RegexMatchTask, the cells are not matched while painting.
 class HighlightTableCellRenderer extends JTextField implements TableCellRenderer {
   private static final Color BACKGROUND_SELECTION_COLOR = new Color(0xDC_F0_FF);
   private final transient HighlightPainter highlightPainter = new DefaultHighlightPainter(Color.YELLOW);
-  private String pattern = "";
-  private String prev;
+  private int[][] spans;
 
-  public boolean updatePattern(String str) {
-    if (Objects.equals(str, pattern)) {
-      return false;
-    } else {
-      prev = pattern;
-      pattern = str;
-      return true;
-    }
+  public void setSpans(int[][] spans) {
+    this.spans = spans;
   }
 
   @Override public void updateUI() {
@@ -139,18 +253,16 @@ class HighlightTableCellRenderer extends JTextField implements TableCellRenderer
     highlighter.removeAllHighlights();
     setText(txt);
     setBackground(isSelected ? BACKGROUND_SELECTION_COLOR : Color.WHITE);
-    if (Objects.nonNull(pattern) && !pattern.isEmpty() && !Objects.equals(pattern, prev)) {
-      Matcher matcher = Pattern.compile(pattern).matcher(txt);
-      int pos = 0;
-      while (matcher.find(pos) && !matcher.group().isEmpty()) {
-        int start = matcher.start();
-        int end = matcher.end();
+    int modelRow = table.convertRowIndexToModel(row);
+    int modelColumn = table.convertColumnIndexToModel(column);
+    int[] s = Objects.nonNull(spans) && modelRow < spans.length ? spans[modelRow] : null;
+    for (int i = 0; Objects.nonNull(s) && i < s.length; i += 3) {
+      if (s[i] == modelColumn) {
         try {
-          highlighter.addHighlight(start, end, highlightPainter);
-        } catch (BadLocationException | PatternSyntaxException ex) {
+          highlighter.addHighlight(s[i + 1], s[i + 2], highlightPainter);
+        } catch (BadLocationException ex) {
           UIManager.getLookAndFeel().provideErrorFeedback(this);
         }
-        pos = end;
       }
     }
     return this;
@@ -0,0 +1,93 @@
+// -*- mode:java; encoding:utf-8 -*-
+// vim:set fileencoding=utf-8:
+// @homepage@
+
+package example;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.IntStream;
+import javax.swing.SwingWorker;
+import javax.swing.table.TableModel;
+
+// Matches a regex against a snapshot of the cells in chunks of rows on the common ForkJoinPool.
+// The result has one entry per model row: null if no cell of the row matches, otherwise the
+// non-empty matches as {column, start, end} triples, so the renderer only has to paint them.
+// A cancelled task stops at the next chunk.
+class RegexMatchTask extends SwingWorker<int[][], Void> {
+  private static final int CHUNK_SIZE = 4096;
+  private static final int[] NO_SPANS = new int[0];
+  private final String[][] cells;
+  private final Pattern pattern;
+
+  protected RegexMatchTask(String[][] cells, Pattern pattern) {
+    super();
+    this.cells = cells;
+    this.pattern = pattern;
+  }
+
+  public Pattern getPattern() {
+    return pattern;
+  }
+
+  // The text of the cells is read on the EDT, the task only reads the arrays.
+  public static String[][] snapshot(TableModel model) {
+    String[][] cells = new String[model.getRowCount()][];
+    Arrays.setAll(cells, row -> snapshotRow(model, row));
+    return cells;
+  }
+
+  public static String[] snapshotRow(TableModel model, int row) {
+    String[] texts = new String[model.getColumnCount()];
+    Arrays.setAll(texts, column -> Objects.toString(model.getValueAt(row, column), ""));
+    return texts;
+  }
+
+  @Override protected int[][] doInBackground() {
+    int[][] spans = new int[cells.length][];
+    int chunks = (cells.length + CHUNK_SIZE - 1) / CHUNK_SIZE;
+    IntStream.range(0, chunks).parallel().forEach(chunk -> {
+      if (isCancelled()) {
+        return;
+      }
+      Matcher matcher = pattern.matcher("");
+      int end = Math.min(cells.length, (chunk + 1) * CHUNK_SIZE);
+      for (int row = chunk * CHUNK_SIZE; row < end; row++) {
+        spans[row] = match(matcher, cells[row]);
+      }
+    });
+    return spans;
+  }
+
+  // Like RowFilter.regexFilter, a row is included when find() succeeds in any cell.
+  public static int[] match(Matcher matcher, String... texts) {
+    boolean found = false;
+    int[] spans = NO_SPANS;
+    int n = 0;
+    for (int column = 0; column < texts.length; column++) {
+      matcher.reset(texts[column]);
+      int pos = 0;
+      while (matcher.find(pos)) {
+        found = true;
+        int start = matcher.start();
+        int end = matcher.end();
+        if (start == end) {
+          break;
+        }
+        if (n + 3 > spans.length) {
+          spans = Arrays.copyOf(spans, Math.max(6, spans.length * 2));
+        }
+        spans[n++] = column;
+        spans[n++] = start;
+        spans[n++] = end;
+        pos = end;
+      }
+    }
+    if (!found) {
+      return null;
+    }
+    return n == 0 ? NO_SPANS : Arrays.copyOf(spans, n);
+  }
+}
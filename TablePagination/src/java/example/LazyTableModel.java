@@ -0,0 +1,96 @@
+// -*- mode:java; encoding:utf-8 -*-
+// vim:set fileencoding=utf-8:
+// @homepage@
+
+package example;
+
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import javax.swing.SwingWorker;
+import javax.swing.table.AbstractTableModel;
+
+// A table of a known number of rows that are loaded in blocks when they are first shown.
+// The recently used blocks are kept in a LRU cache. The cells of a block that is not loaded
+// yet are null, the rows are updated when the block is there.
+// Sorting or filtering this model would load every block, so it is meant to be paged unsorted.
+class LazyTableModel extends AbstractTableModel {
+  private static final long serialVersionUID = 1L;
+  private static final int MAX_BLOCKS = 64;
+  private final String[] columnNames;
+  private final int rowCount;
+  private final int blockSize;
+  private final transient RowLoader loader;
+  private final transient Map<Integer, Object[][]> blocks = new LinkedHashMap<Integer, Object[][]>(MAX_BLOCKS * 2, .75f, true) {
+    @Override protected boolean removeEldestEntry(Map.Entry<Integer, Object[][]> eldest) {
+      return size() > MAX_BLOCKS;
+    }
+  };
+  private final transient Set<Integer> loading = new HashSet<>();
+
+  // Loads the rows [from, to), on a worker thread.
+  @FunctionalInterface
+  interface RowLoader {
+    List<Object[]> load(int from, int to) throws Exception;
+  }
+
+  protected LazyTableModel(String[] columnNames, int rowCount, int blockSize, RowLoader loader) {
+    super();
+    this.columnNames = columnNames.clone();
+    this.rowCount = rowCount;
+    this.blockSize = blockSize;
+    this.loader = loader;
+  }
+
+  @Override public int getRowCount() {
+    return rowCount;
+  }
+
+  @Override public int getColumnCount() {
+    return columnNames.length;
+  }
+
+  @Override public String getColumnName(int column) {
+    return columnNames[column];
+  }
+
+  @Override public Object getValueAt(int row, int column) {
+    int block = row / blockSize;
+    Object[][] rows = blocks.get(block);
+    if (Objects.isNull(rows)) {
+      load(block);
+      return null;
+    }
+    return rows[row - block * blockSize][column];
+  }
+
+  private void load(int block) {
+    if (!loading.add(block)) {
+      return;
+    }
+    int from = block * blockSize;
+    int to = Math.min(from + blockSize, rowCount);
+    new SwingWorker<List<Object[]>, Void>() {
+      @Override protected List<Object[]> doInBackground() throws Exception {
+        return loader.load(from, to);
+      }
+
+      @Override protected void done() {
+        loading.remove(block);
+        try {
+          blocks.put(block, get().toArray(new Object[0][]));
+          fireTableRowsUpdated(from, to - 1);
+        } catch (InterruptedException ex) {
+          Thread.currentThread().interrupt();
+        } catch (ExecutionException ex) {
+          // the block is loaded again when it is shown again
+          ex.printStackTrace();
+        }
+      }
+    }.execute();
+  }
+}
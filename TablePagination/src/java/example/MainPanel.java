@@ -5,7 +5,10 @@
 package example;
 
 import java.awt.*;
+import java.awt.event.ItemEvent;
+import java.util.List;
 import java.util.Objects;
+import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 import javax.swing.*;
 import javax.swing.plaf.basic.BasicHTML;
@@ -18,6 +21,7 @@ import javax.swing.text.View;
 public final class MainPanel extends JPanel {
   private static final LinkViewRadioButtonUI LINKVIEW_RADIOBUTTON_UI = new LinkViewRadioButtonUI();
   private static final int LR_PAGE_SIZE = 5;
+  private static final int ITEMS_PER_PAGE = 100;
   private final Box box = Box.createHorizontalBox();
   private final String[] columnNames = {"Year", "String", "Comment"};
   private final DefaultTableModel model = new DefaultTableModel(null, columnNames) {
@@ -25,37 +29,83 @@ public final class MainPanel extends JPanel {
       return column == 0 ? Integer.class : Object.class;
     }
   };
-  private final transient TableRowSorter<? extends TableModel> sorter = new TableRowSorter<>(model);
+  private final TableModel lazyModel = new LazyTableModel(columnNames, 5_000_000, ITEMS_PER_PAGE, MainPanel::loadRows) {
+    @Override public Class<?> getColumnClass(int column) {
+      return column == 0 ? Integer.class : Object.class;
+    }
+  };
+  private final PageTableModel pageModel = new PageTableModel(model, ITEMS_PER_PAGE);
+  private final PageTableModel lazyPageModel = new PageTableModel(lazyModel, ITEMS_PER_PAGE);
+  private final JTable table = new JTable();
+  private PageTableModel currentModel;
 
   private MainPanel() {
     super(new BorderLayout());
-    JTable table = new JTable(model);
     table.setFillsViewportHeight(true);
     table.setIntercellSpacing(new Dimension());
     table.setShowGrid(false);
     table.putClientProperty("terminateEditOnFocusLost", Boolean.TRUE);
-    table.setRowSorter(sorter);
 
     IntStream.rangeClosed(1, 2016)
-        .mapToObj(i -> new Object[] {i, "Test: " + i, i % 2 == 0 ? "" : "comment..."})
+        .mapToObj(MainPanel::makeRow)
         .forEach(model::addRow);
 
-    initLinkBox(100, 1);
+    // sorting or filtering the lazy model would load all of its rows
+    TableRowSorter<TableModel> lazySorter = lazyPageModel.getSourceSorter();
+    for (int i = 0; i < lazyModel.getColumnCount(); i++) {
+      lazySorter.setSortable(i, false);
+    }
+
+    JCheckBox check = new JCheckBox("Comment only");
+    check.addActionListener(e -> {
+      RowFilter<TableModel, Integer> filter = check.isSelected() ? RowFilter.regexFilter(".+", 2) : null;
+      currentModel.getSourceSorter().setRowFilter(filter);
+      initLinkBox(ITEMS_PER_PAGE, 1);
+    });
+
+    JComboBox<String> combo = new JComboBox<>(new String[] {"2,016 rows", "5,000,000 rows, lazy"});
+    combo.addItemListener(e -> {
+      if (e.getStateChange() == ItemEvent.SELECTED) {
+        boolean lazy = combo.getSelectedIndex() == 1;
+        check.setEnabled(!lazy);
+        check.setSelected(!lazy && Objects.nonNull(pageModel.getSourceSorter().getRowFilter()));
+        setPageModel(lazy ? lazyPageModel : pageModel);
+      }
+    });
+    setPageModel(pageModel);
+
+    JPanel p = new JPanel(new FlowLayout(FlowLayout.LEADING, 2, 2));
+    p.add(combo);
+    p.add(check);
+
     box.setBorder(BorderFactory.createEmptyBorder(2, 2, 2, 2));
     add(box, BorderLayout.NORTH);
     add(new JScrollPane(table));
+    add(p, BorderLayout.SOUTH);
     setPreferredSize(new Dimension(320, 240));
   }
 
+  private static Object[] makeRow(int i) {
+    return new Object[] {i, "Test: " + i, i % 2 == 0 ? "" : "comment..."};
+  }
+
+  // a slow data source
+  private static List<Object[]> loadRows(int from, int to) throws InterruptedException {
+    Thread.sleep(300);
+    return IntStream.range(from, to).map(i -> i + 1).mapToObj(MainPanel::makeRow).collect(Collectors.toList());
+  }
+
+  private void setPageModel(PageTableModel pageTableModel) {
+    currentModel = pageTableModel;
+    table.setModel(pageTableModel);
+    table.setRowSorter(pageTableModel.getRowSorter());
+    initLinkBox(ITEMS_PER_PAGE, pageTableModel.getPageIndex() + 1);
+  }
+
   private void initLinkBox(int itemsPerPage, int currentPageIndex) {
     // assert currentPageIndex > 0;
-    sorter.setRowFilter(new RowFilter<TableModel, Integer>() {
-      @Override public boolean include(Entry<? extends TableModel, ? extends Integer> entry) {
-        int ti = currentPageIndex - 1;
-        int ei = entry.getIdentifier();
-        return ti * itemsPerPage <= ei && ei < ti * itemsPerPage + itemsPerPage;
-      }
-    });
+    // the page is a window of the sorted and filtered rows, the other rows are not visited
+    currentModel.setPage(currentPageIndex - 1, itemsPerPage);
 
     int startPageIndex = currentPageIndex - LR_PAGE_SIZE;
     if (startPageIndex <= 0) {
@@ -69,7 +119,7 @@ public final class MainPanel extends JPanel {
      *   pointed out by erServi
      * e.g. rowCount=100, maxPageIndex=100
      */
-    int rowCount = model.getRowCount();
+    int rowCount = currentModel.getViewRowCount();
     int v = rowCount % itemsPerPage == 0 ? 0 : 1;
     int maxPageIndex = rowCount / itemsPerPage + v;
     // #endif
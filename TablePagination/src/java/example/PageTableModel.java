@@ -0,0 +1,215 @@
+// -*- mode:java; encoding:utf-8 -*-
+// vim:set fileencoding=utf-8:
+// @homepage@
+
+package example;
+
+import java.util.List;
+import javax.swing.RowSorter;
+import javax.swing.event.RowSorterEvent;
+import javax.swing.event.TableModelEvent;
+import javax.swing.table.AbstractTableModel;
+import javax.swing.table.TableModel;
+import javax.swing.table.TableRowSorter;
+
+// One page of the rows of the source model. The source is sorted and filtered once by a
+// TableRowSorter, a page is the window [pageIndex * pageSize, pageIndex * pageSize + pageSize)
+// of its view rows, so changing the page does not look at the other rows.
+// The JTable gets the getRowSorter() of this model: the header sorts the whole source, and
+// the rows of the page are shown in the order of the source sorter.
+class PageTableModel extends AbstractTableModel {
+  private static final long serialVersionUID = 1L;
+  private final transient TableModel source;
+  private final transient TableRowSorter<TableModel> sourceSorter;
+  private final transient PageRowSorter pageSorter = new PageRowSorter();
+  private int pageIndex;
+  private int pageSize;
+  private boolean forwarding;
+
+  protected PageTableModel(TableModel source, int pageSize) {
+    super();
+    this.source = source;
+    this.pageSize = pageSize;
+    this.sourceSorter = new TableRowSorter<>(source);
+    source.addTableModelListener(this::sourceChanged);
+    sourceSorter.addRowSorterListener(e -> {
+      if (e.getType() == RowSorterEvent.Type.SORT_ORDER_CHANGED) {
+        pageSorter.sortOrderChanged();
+      } else if (!forwarding) {
+        // a new filter or sort order, the page index stays if it still exists
+        setPage(pageIndex, pageSize);
+      }
+    });
+  }
+
+  // The sort keys, comparators and row filter of the whole source.
+  public TableRowSorter<TableModel> getSourceSorter() {
+    return sourceSorter;
+  }
+
+  public RowSorter<TableModel> getRowSorter() {
+    return pageSorter;
+  }
+
+  public void setPage(int pageIndex, int pageSize) {
+    this.pageSize = pageSize;
+    this.pageIndex = Math.max(0, Math.min(pageIndex, getPageCount() - 1));
+    fireTableDataChanged();
+  }
+
+  public int getPageIndex() {
+    return pageIndex;
+  }
+
+  public int getPageSize() {
+    return pageSize;
+  }
+
+  public int getPageCount() {
+    return (getViewRowCount() + pageSize - 1) / pageSize;
+  }
+
+  // The number of rows of the source that pass the filter.
+  public int getViewRowCount() {
+    return sourceSorter.getViewRowCount();
+  }
+
+  public int convertRowIndexToSource(int row) {
+    return sourceSorter.convertRowIndexToModel(pageIndex * pageSize + row);
+  }
+
+  @Override public int getRowCount() {
+    return Math.max(0, Math.min(pageSize, getViewRowCount() - pageIndex * pageSize));
+  }
+
+  @Override public int getColumnCount() {
+    return source.getColumnCount();
+  }
+
+  @Override public String getColumnName(int column) {
+    return source.getColumnName(column);
+  }
+
+  @Override public Class<?> getColumnClass(int column) {
+    return source.getColumnClass(column);
+  }
+
+  @Override public boolean isCellEditable(int row, int column) {
+    return source.isCellEditable(convertRowIndexToSource(row), column);
+  }
+
+  @Override public Object getValueAt(int row, int column) {
+    return source.getValueAt(convertRowIndexToSource(row), column);
+  }
+
+  @Override public void setValueAt(Object value, int row, int column) {
+    source.setValueAt(value, convertRowIndexToSource(row), column);
+  }
+
+  // Tells the source sorter what changed, the same way a JTable tells its RowSorter.
+  private void sourceChanged(TableModelEvent e) {
+    int first = e.getFirstRow();
+    int last = e.getLastRow();
+    forwarding = true;
+    try {
+      if (first == TableModelEvent.HEADER_ROW) {
+        sourceSorter.modelStructureChanged();
+      } else if (e.getType() == TableModelEvent.INSERT) {
+        sourceSorter.rowsInserted(first, last);
+      } else if (e.getType() == TableModelEvent.DELETE) {
+        sourceSorter.rowsDeleted(first, last);
+      } else if (last == Integer.MAX_VALUE) {
+        sourceSorter.allRowsChanged();
+      } else if (e.getColumn() == TableModelEvent.ALL_COLUMNS) {
+        sourceSorter.rowsUpdated(first, last);
+      } else {
+        sourceSorter.rowsUpdated(first, last, e.getColumn());
+      }
+    } finally {
+      forwarding = false;
+    }
+    if (first == TableModelEvent.HEADER_ROW) {
+      fireTableStructureChanged();
+    } else if (e.getType() == TableModelEvent.UPDATE && last != Integer.MAX_VALUE) {
+      // the rows stay on the page they were, only the cells are repainted
+      int rows = getRowCount();
+      if (rows > 0) {
+        fireTableRowsUpdated(0, rows - 1);
+      }
+    } else {
+      setPage(pageIndex, pageSize);
+    }
+  }
+
+  // The rows of the page are already in the order of the source sorter,
+  // so the view and model indices of the page are the same.
+  private final class PageRowSorter extends RowSorter<TableModel> {
+    @Override public TableModel getModel() {
+      return PageTableModel.this;
+    }
+
+    @Override public void toggleSortOrder(int column) {
+      sourceSorter.toggleSortOrder(column);
+    }
+
+    @Override public int convertRowIndexToModel(int index) {
+      checkIndex(index);
+      return index;
+    }
+
+    @Override public int convertRowIndexToView(int index) {
+      checkIndex(index);
+      return index;
+    }
+
+    private void checkIndex(int index) {
+      if (index < 0 || index >= getRowCount()) {
+        throw new IndexOutOfBoundsException("Invalid index");
+      }
+    }
+
+    @Override public void setSortKeys(List<? extends SortKey> keys) {
+      sourceSorter.setSortKeys(keys);
+    }
+
+    @Override public List<? extends SortKey> getSortKeys() {
+      return sourceSorter.getSortKeys();
+    }
+
+    @Override public int getViewRowCount() {
+      return getRowCount();
+    }
+
+    @Override public int getModelRowCount() {
+      return getRowCount();
+    }
+
+    @Override public void modelStructureChanged() {
+      /* not needed */
+    }
+
+    @Override public void allRowsChanged() {
+      /* not needed */
+    }
+
+    @Override public void rowsInserted(int firstRow, int endRow) {
+      /* not needed */
+    }
+
+    @Override public void rowsDeleted(int firstRow, int endRow) {
+      /* not needed */
+    }
+
+    @Override public void rowsUpdated(int firstRow, int endRow) {
+      /* not needed */
+    }
+
+    @Override public void rowsUpdated(int firstRow, int endRow, int column) {
+      /* not needed */
+    }
+
+    protected void sortOrderChanged() {
+      fireSortOrderChanged();
+    }
+  }
+}
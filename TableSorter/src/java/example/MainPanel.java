@@ -5,6 +5,7 @@
 package example;
 
 import java.awt.*;
+import java.util.concurrent.TimeUnit;
 import javax.swing.*;
 import javax.swing.table.DefaultTableModel;
 import javax.swing.table.JTableHeader;
@@ -52,7 +53,14 @@ public final class MainPanel extends JPanel {
       }
     };
 
+    JLabel label = new JLabel(" ");
+    sorter.addTableModelListener(e -> label.setText(String.format(
+        "sort: %d ms, EDT blocked: %d ms",
+        TimeUnit.NANOSECONDS.toMillis(sorter.getSortNanos()),
+        TimeUnit.NANOSECONDS.toMillis(sorter.getEdtBlockedNanos()))));
+
     add(new JScrollPane(table));
+    add(label, BorderLayout.SOUTH);
     setPreferredSize(new Dimension(320, 240));
   }
 
@@ -45,6 +45,10 @@ import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.BooleanSupplier;
 import java.util.stream.IntStream;
 import javax.swing.*;
 import javax.swing.event.TableModelEvent;
@@ -117,13 +121,16 @@ public class TableSorter extends AbstractTableModel {
 
   protected TableModel tableModel;
 
-  protected final List<Row> viewToModel = new ArrayList<>();
-  protected final List<Integer> modelToView = new ArrayList<>();
+  protected int[] viewToModel;
+  protected int[] modelToView;
   protected final List<Directive> sortingColumns = new ArrayList<>();
 
   private JTableHeader tableHeader;
   private final transient Map<Class<?>, Comparator<?>> columnComparators = new ConcurrentHashMap<>();
-  private final transient RowComparator<Row> rowComparator = new RowComparator<>();
+  private transient SortKeys sortKeys;
+  private transient SortWorker sortWorker;
+  private long sortNanos;
+  private long edtBlockedNanos;
   private transient MouseListener mouseListener;
   private transient TableModelListener tableModelListener;
 
@@ -156,8 +163,11 @@ public class TableSorter extends AbstractTableModel {
   }
 
   protected void clearSortingState() {
-    viewToModel.clear();
-    modelToView.clear();
+    Optional.ofNullable(sortWorker).ifPresent(w -> w.cancel(true));
+    sortWorker = null;
+    viewToModel = null;
+    modelToView = null;
+    sortKeys = null;
   }
 
   // public TableModel getTableModel() {
@@ -235,8 +245,13 @@ public class TableSorter extends AbstractTableModel {
   }
 
   private void sortingStatusChanged() {
-    clearSortingState();
-    fireTableDataChanged();
+    if (isSorting() && getRowCount() > 0) {
+      // The current order stays displayed until the background sort is done.
+      startSortWorker();
+    } else {
+      clearSortingState();
+      fireTableDataChanged();
+    }
     Optional.ofNullable(tableHeader).ifPresent(Component::repaint);
     // if (tableHeader != null) {
     //   tableHeader.repaint();
@@ -292,36 +307,190 @@ public class TableSorter extends AbstractTableModel {
     }
   }
 
-  private List<Row> getViewToModel() {
-    if (viewToModel.isEmpty()) {
-      // int tableModelRowCount = tableModel.getRowCount();
-      // // viewToModel = new Row[tableModelRowCount];
-      // for (int row = 0; row < tableModelRowCount; row++) {
-      //   viewToModel.add(new Row(row));
-      // }
-      IntStream.range(0, tableModel.getRowCount()).forEach(row -> viewToModel.add(new Row(row)));
-      if (isSorting()) {
-        viewToModel.sort(rowComparator);
+  private int[] getViewToModel() {
+    if (Objects.isNull(viewToModel)) {
+      int rowCount = tableModel.getRowCount();
+      int[] rows = IntStream.range(0, rowCount).toArray();
+      if (isSorting() && Objects.isNull(sortWorker)) {
+        long start = System.nanoTime();
+        sortKeys = createSortKeys(rowCount);
+        sortKeys.sort(rows, new int[rowCount], 0, rowCount);
+        sortNanos = System.nanoTime() - start;
+        edtBlockedNanos = sortNanos;
       }
+      viewToModel = rows;
     }
     return viewToModel;
   }
 
   public int modelIndex(int viewIndex) {
-    return getViewToModel().get(viewIndex).modelIndex;
+    return getViewToModel()[viewIndex];
   }
 
-  protected List<Integer> getModelToView() {
-    if (modelToView.isEmpty()) {
-      // int n = getViewToModel().size();
-      // for (int i = 0; i < n; i++) {
-      //   modelToView.add(modelIndex(i));
-      // }
-      IntStream.range(0, getViewToModel().size()).forEach(i -> modelToView.add(modelIndex(i)));
+  protected int[] getModelToView() {
+    if (Objects.isNull(modelToView)) {
+      int[] rows = getViewToModel();
+      int[] a = new int[rows.length];
+      for (int i = 0; i < rows.length; i++) {
+        a[rows[i]] = i;
+      }
+      modelToView = a;
     }
     return modelToView;
   }
 
+  /**
+   * Returns the time in nanoseconds from the sorting request to the new row order.
+   */
+  public long getSortNanos() {
+    return sortNanos;
+  }
+
+  /**
+   * Returns the time in nanoseconds the last sort spent on the event dispatch thread.
+   */
+  public long getEdtBlockedNanos() {
+    return edtBlockedNanos;
+  }
+
+  // Sort keys are read from the model once, so the comparison does not
+  // call tableModel.getValueAt(...) O(n log n) times.
+  @SuppressWarnings("unchecked")
+  private SortKeys createSortKeys(int rowCount) {
+    int size = sortingColumns.size();
+    Object[][] keys = new Object[size][];
+    int[] columns = new int[size];
+    int[] directions = new int[size];
+    List<Comparator<Object>> comparators = new ArrayList<>(size);
+    for (int i = 0; i < size; i++) {
+      Directive directive = sortingColumns.get(i);
+      int column = directive.column;
+      Object[] values = new Object[rowCount];
+      for (int row = 0; row < rowCount; row++) {
+        values[row] = tableModel.getValueAt(row, column);
+      }
+      keys[i] = values;
+      columns[i] = column;
+      directions[i] = directive.direction;
+      comparators.add(Comparator.nullsFirst(getComparator(column)));
+    }
+    return new SortKeys(keys, columns, directions, comparators);
+  }
+
+  private void startSortWorker() {
+    Optional.ofNullable(sortWorker).ifPresent(w -> w.cancel(true));
+    long start = System.nanoTime();
+    sortWorker = new SortWorker(createSortKeys(tableModel.getRowCount()), start);
+    edtBlockedNanos = System.nanoTime() - start;
+    sortWorker.execute();
+  }
+
+  private int[] sortedRange(int firstRow, int lastRow) {
+    int[] rows = IntStream.rangeClosed(firstRow, lastRow).toArray();
+    sortKeys.sort(rows, new int[rows.length], 0, rows.length);
+    return rows;
+  }
+
+  // Incremental updates of the sorted mapping: the changed rows are sorted
+  // on their own and merged with the rows that are already in order.
+  private boolean rowsInserted(int firstRow, int lastRow) {
+    int count = lastRow - firstRow + 1;
+    int size = viewToModel.length;
+    if (firstRow > size || size + count != tableModel.getRowCount()) {
+      return false;
+    }
+    Object[][] sortValues = sortKeys.keys;
+    for (int i = 0; i < sortValues.length; i++) {
+      int column = sortKeys.columns[i];
+      Object[] keys = new Object[size + count];
+      System.arraycopy(sortValues[i], 0, keys, 0, firstRow);
+      System.arraycopy(sortValues[i], firstRow, keys, lastRow + 1, size - firstRow);
+      for (int row = firstRow; row <= lastRow; row++) {
+        keys[row] = tableModel.getValueAt(row, column);
+      }
+      sortValues[i] = keys;
+    }
+    int[] rows = new int[size];
+    for (int i = 0; i < size; i++) {
+      int m = viewToModel[i];
+      rows[i] = m >= firstRow ? m + count : m;
+    }
+    viewToModel = sortKeys.merge(rows, sortedRange(firstRow, lastRow));
+    return true;
+  }
+
+  private boolean rowsDeleted(int firstRow, int lastRow) {
+    int count = lastRow - firstRow + 1;
+    int size = viewToModel.length;
+    if (lastRow >= size || size - count != tableModel.getRowCount()) {
+      return false;
+    }
+    Object[][] sortValues = sortKeys.keys;
+    for (int i = 0; i < sortValues.length; i++) {
+      Object[] keys = new Object[size - count];
+      System.arraycopy(sortValues[i], 0, keys, 0, firstRow);
+      System.arraycopy(sortValues[i], lastRow + 1, keys, firstRow, size - lastRow - 1);
+      sortValues[i] = keys;
+    }
+    int[] rows = new int[size - count];
+    int j = 0;
+    for (int m: viewToModel) {
+      if (m < firstRow) {
+        rows[j++] = m;
+      } else if (m > lastRow) {
+        rows[j++] = m - count;
+      }
+    }
+    viewToModel = rows;
+    return true;
+  }
+
+  private boolean rowsUpdated(int firstRow, int lastRow) {
+    int count = lastRow - firstRow + 1;
+    int size = viewToModel.length;
+    if (lastRow >= size || size != tableModel.getRowCount()) {
+      return false;
+    }
+    Object[][] sortValues = sortKeys.keys;
+    for (int i = 0; i < sortValues.length; i++) {
+      int column = sortKeys.columns[i];
+      for (int row = firstRow; row <= lastRow; row++) {
+        sortValues[i][row] = tableModel.getValueAt(row, column);
+      }
+    }
+    int[] rows = new int[size - count];
+    int j = 0;
+    for (int m: viewToModel) {
+      if (m < firstRow || m > lastRow) {
+        rows[j++] = m;
+      }
+    }
+    viewToModel = sortKeys.merge(rows, sortedRange(firstRow, lastRow));
+    return true;
+  }
+
+  private boolean updateSortingState(TableModelEvent e) {
+    int fr = e.getFirstRow();
+    int lr = e.getLastRow();
+    if (Objects.isNull(viewToModel) || Objects.isNull(sortKeys) || fr < 0 || lr == Integer.MAX_VALUE) {
+      return false;
+    }
+    boolean updated;
+    switch (e.getType()) {
+      case TableModelEvent.INSERT:
+        updated = rowsInserted(fr, lr);
+        break;
+      case TableModelEvent.DELETE:
+        updated = rowsDeleted(fr, lr);
+        break;
+      default:
+        updated = rowsUpdated(fr, lr);
+        break;
+    }
+    modelToView = null;
+    return updated;
+  }
+
   // TableModel interface methods
 
   @Override public int getRowCount() {
@@ -355,43 +524,54 @@ public class TableSorter extends AbstractTableModel {
   }
 
   // Helper classes
-  private class RowComparator<E extends Row> implements Comparator<E> {
-    @Override public int compare(Row r1, Row r2) {
-      int row1 = r1.modelIndex;
-      int row2 = r2.modelIndex;
-      for (Directive directive: sortingColumns) {
-        int column = directive.column;
-        Object o1 = tableModel.getValueAt(row1, column);
-        Object o2 = tableModel.getValueAt(row2, column);
-        // int comparison;
-        // // Define null less than everything, except null.
-        // if (o1 == null && o2 == null) {
-        //   comparison = 0;
-        // } else if (o1 == null) {
-        //   comparison = -1;
-        // } else if (o2 == null) {
-        //   comparison = 1;
-        // } else {
-        //   @SuppressWarnings("unchecked")
-        //   Comparator<Object> comparator = getComparator(column);
-        //   comparison = comparator.compare(o1, o2);
-        // }
-        // if (comparison != 0) {
-        //   return directive.direction == DESCENDING ? -comparison : comparison;
-        // }
-        @SuppressWarnings("unchecked")
-        Comparator<Object> comparator = getComparator(column);
-        int comparison = Objects.compare(o1, o2, Comparator.nullsFirst(comparator));
-        if (comparison != 0) {
-          return directive.direction == DESCENDING ? ~comparison + 1 : comparison;
-        }
+  private final class SortWorker extends SwingWorker<int[], Void> {
+    private final SortKeys keys;
+    private final long startTime;
+
+    protected SortWorker(SortKeys keys, long startTime) {
+      super();
+      this.keys = keys;
+      this.startTime = startTime;
+    }
+
+    @Override protected int[] doInBackground() {
+      int rowCount = keys.rowCount();
+      int[] rows = IntStream.range(0, rowCount).toArray();
+      ForkJoinPool.commonPool().invoke(new RowSortTask(keys, rows, new int[rowCount], 0, rowCount, this::isCancelled));
+      return rows;
+    }
+
+    @Override protected void done() {
+      if (isCancelled() || !Objects.equals(sortWorker, this)) {
+        return;
+      }
+      sortWorker = null;
+      long start = System.nanoTime();
+      try {
+        viewToModel = get();
+        modelToView = null;
+        sortKeys = keys;
+      } catch (InterruptedException ex) {
+        Thread.currentThread().interrupt();
+        clearSortingState();
+      } catch (ExecutionException ex) {
+        ex.printStackTrace();
+        clearSortingState();
       }
-      return row1 - row2;
+      fireTableDataChanged();
+      long end = System.nanoTime();
+      edtBlockedNanos += end - start;
+      sortNanos = end - startTime;
     }
   }
 
   private class TableModelHandler implements TableModelListener {
     @Override public void tableChanged(TableModelEvent e) {
+      // A pending background sort is based on a stale snapshot of the model.
+      if (Objects.nonNull(sortWorker)) {
+        clearSortingState();
+      }
+
       // If we're not sorting by anything, just pass the event along.
       if (!isSorting()) {
         clearSortingState();
@@ -430,13 +610,17 @@ public class TableSorter extends AbstractTableModel {
       int fr = e.getFirstRow();
       int lr = e.getLastRow();
       if (fr == lr && column != TableModelEvent.ALL_COLUMNS && getSortingStatus(column) == NOT_SORTED) {
-        int viewIndex = getModelToView().get(fr);
+        int viewIndex = getModelToView()[fr];
         fireTableChanged(new TableModelEvent(TableSorter.this, viewIndex, viewIndex, column, e.getType()));
         return;
       }
 
       // Something has happened to the data that may have invalidated the row order.
-      clearSortingState();
+      // Rows that were inserted, deleted or updated are merged into the
+      // current order; anything else (e.g. fireTableDataChanged()) resorts.
+      if (!updateSortingState(e)) {
+        clearSortingState();
+      }
       fireTableDataChanged();
       // return;
     }
@@ -455,7 +639,8 @@ public class TableSorter extends AbstractTableModel {
       if (column != -1) {
         int status = getSortingStatus(column) + (e.isShiftDown() ? -1 : 1);
         if (!e.isControlDown()) {
-          cancelSorting();
+          // Clear without firing, setSortingStatus(...) below resorts only once.
+          sortingColumns.clear();
         }
         // Cycle the sorting states through {NOT_SORTED, ASCENDING, DESCENDING} or
         // {NOT_SORTED, DESCENDING, ASCENDING} depending on whether shift is pressed.
@@ -587,12 +772,115 @@ class Directive implements Serializable {
   }
 }
 
-@SuppressWarnings("PMD.ShortClassName")
-class Row implements Serializable {
+class SortKeys {
+  // keys[i][modelIndex]: cached value of the i-th sorting column
+  public final Object[][] keys;
+  public final int[] columns;
+  private final int[] directions;
+  private final List<Comparator<Object>> comparators;
+
+  protected SortKeys(Object[][] keys, int[] columns, int[] directions, List<Comparator<Object>> comparators) {
+    this.keys = keys;
+    this.columns = columns;
+    this.directions = directions;
+    this.comparators = comparators;
+  }
+
+  public int rowCount() {
+    return keys.length == 0 ? 0 : keys[0].length;
+  }
+
+  public int compare(int row1, int row2) {
+    for (int i = 0; i < keys.length; i++) {
+      int comparison = comparators.get(i).compare(keys[i][row1], keys[i][row2]);
+      if (comparison != 0) {
+        return directions[i] == TableSorter.DESCENDING ? ~comparison + 1 : comparison;
+      }
+    }
+    return row1 - row2;
+  }
+
+  public void sort(int[] a, int[] tmp, int lo, int hi) {
+    if (hi - lo < 16) {
+      for (int i = lo + 1; i < hi; i++) {
+        int v = a[i];
+        int j = i;
+        for (; j > lo && compare(a[j - 1], v) > 0; j--) {
+          a[j] = a[j - 1];
+        }
+        a[j] = v;
+      }
+      return;
+    }
+    int mid = (lo + hi) >>> 1;
+    sort(a, tmp, lo, mid);
+    sort(a, tmp, mid, hi);
+    mergeRuns(a, tmp, lo, mid, hi);
+  }
+
+  public void mergeRuns(int[] a, int[] tmp, int lo, int mid, int hi) {
+    if (compare(a[mid - 1], a[mid]) <= 0) {
+      return;
+    }
+    System.arraycopy(a, lo, tmp, lo, hi - lo);
+    int i = lo;
+    int j = mid;
+    for (int k = lo; k < hi; k++) {
+      if (j >= hi || i < mid && compare(tmp[i], tmp[j]) <= 0) {
+        a[k] = tmp[i++];
+      } else {
+        a[k] = tmp[j++];
+      }
+    }
+  }
+
+  public int[] merge(int[] a, int[] b) {
+    int[] c = new int[a.length + b.length];
+    int i = 0;
+    int j = 0;
+    for (int k = 0; k < c.length; k++) {
+      if (j >= b.length || i < a.length && compare(a[i], b[j]) <= 0) {
+        c[k] = a[i++];
+      } else {
+        c[k] = b[j++];
+      }
+    }
+    return c;
+  }
+}
+
+class RowSortTask extends RecursiveAction {
   private static final long serialVersionUID = 1L;
-  public final int modelIndex;
+  private static final int THRESHOLD = 1 << 13;
+  private final transient SortKeys keys;
+  private final int[] rows;
+  private final int[] tmp;
+  private final int lo;
+  private final int hi;
+  private final transient BooleanSupplier cancelled;
+
+  protected RowSortTask(SortKeys keys, int[] rows, int[] tmp, int lo, int hi, BooleanSupplier cancelled) {
+    super();
+    this.keys = keys;
+    this.rows = rows;
+    this.tmp = tmp;
+    this.lo = lo;
+    this.hi = hi;
+    this.cancelled = cancelled;
+  }
 
-  protected Row(int index) {
-    this.modelIndex = index;
+  @Override protected void compute() {
+    if (cancelled.getAsBoolean()) {
+      return;
+    }
+    if (hi - lo <= THRESHOLD) {
+      keys.sort(rows, tmp, lo, hi);
+      return;
+    }
+    int mid = (lo + hi) >>> 1;
+    invokeAll(new RowSortTask(keys, rows, tmp, lo, mid, cancelled), new RowSortTask(keys, rows, tmp, mid, hi, cancelled));
+    if (!cancelled.getAsBoolean()) {
+      keys.mergeRuns(rows, tmp, lo, mid, hi);
+    }
   }
 }
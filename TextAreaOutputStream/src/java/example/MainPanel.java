@@ -6,18 +6,23 @@ package example;
 
 import java.awt.*;
 import java.awt.event.ActionEvent;
-import java.io.ByteArrayOutputStream;
-import java.io.IOException;
-import java.io.OutputStream;
 import java.lang.invoke.MethodHandles;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.ErrorManager;
+import java.util.logging.Handler;
 import java.util.logging.Level;
 import java.util.logging.LogRecord;
 import java.util.logging.Logger;
 import java.util.logging.SimpleFormatter;
-import java.util.logging.StreamHandler;
 import javax.swing.*;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Document;
+import javax.swing.text.Element;
+import javax.swing.text.JTextComponent;
 
 public final class MainPanel extends JPanel {
   public static final String LOGGER_NAME = MethodHandles.lookup().lookupClass().getName();
@@ -32,7 +37,8 @@ public final class MainPanel extends JPanel {
 
     LOGGER.setUseParentHandlers(false);
     LOGGER.setLevel(Level.ALL);
-    LOGGER.addHandler(new TextAreaHandler(new TextAreaOutputStream(textArea)));
+    TextAreaHandler handler = new TextAreaHandler(textArea, 10_000);
+    LOGGER.addHandler(handler);
 
     // // TEST:
     // try {
@@ -52,6 +58,22 @@ public final class MainPanel extends JPanel {
     button.addActionListener(e -> textArea.setText(""));
     JTextField textField = new JTextField("aaa");
 
+    JLabel label = new JLabel(" ");
+    JButton burst = new JButton("Burst");
+    burst.addActionListener(e -> {
+      for (int i = 0; i < 4; i++) {
+        int id = i;
+        new Thread(() -> {
+          for (int j = 0; j < 10_000; j++) {
+            int n = j;
+            LOGGER.fine(() -> String.format("thread %d: %d", id, n));
+          }
+        }).start();
+      }
+    });
+    new Timer(500, e -> label.setText(String.format(
+        "dropped: %d, coalesced: %d", handler.getDroppedCount(), handler.getCoalescedCount()))).start();
+
     Box box = Box.createHorizontalBox();
     box.setBorder(BorderFactory.createEmptyBorder(5, 5, 5, 5));
     box.add(Box.createHorizontalGlue());
@@ -59,10 +81,16 @@ public final class MainPanel extends JPanel {
     box.add(Box.createHorizontalStrut(5));
     box.add(new JButton(new EnterAction(textField)));
     box.add(Box.createHorizontalStrut(5));
+    box.add(burst);
+    box.add(Box.createHorizontalStrut(5));
     box.add(button);
 
+    JPanel p = new JPanel(new BorderLayout());
+    p.add(label, BorderLayout.NORTH);
+    p.add(box);
+
     add(new JScrollPane(textArea));
-    add(box, BorderLayout.SOUTH);
+    add(p, BorderLayout.SOUTH);
     setPreferredSize(new Dimension(320, 240));
   }
 
@@ -169,60 +197,104 @@ class EnterAction extends AbstractAction {
 //   }
 // }
 
-class TextAreaOutputStream extends OutputStream {
-  private final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
-  private final JTextArea textArea;
-
-  protected TextAreaOutputStream(JTextArea textArea) {
+// Logging threads only claim a slot in a bounded ring buffer; the EDT drains
+// it once per frame and appends all pending records with one insertString(...).
+class TextAreaHandler extends Handler {
+  private static final int CAPACITY = 1 << 16;
+  private static final int FRAME_DELAY = 16;
+  private final AtomicReferenceArray<String> ring = new AtomicReferenceArray<>(CAPACITY);
+  private final AtomicLong tail = new AtomicLong();
+  private final AtomicLong head = new AtomicLong();
+  private final LongAdder dropped = new LongAdder();
+  private final LongAdder coalesced = new LongAdder();
+  private final StringBuilder batch = new StringBuilder();
+  private final JTextComponent textComponent;
+  private final int maxLines;
+  private final Timer timer;
+
+  protected TextAreaHandler(JTextComponent textComponent, int maxLines) {
     super();
-    this.textArea = textArea;
-  }
-
-  @Override public void flush() throws IOException {
-    textArea.append(buffer.toString("UTF-8"));
-    buffer.reset();
-  }
-
-  @Override public void write(int b) {
-    buffer.write(b);
+    this.textComponent = textComponent;
+    this.maxLines = maxLines;
+    setFormatter(new SimpleFormatter());
+    timer = new Timer(FRAME_DELAY, e -> drain());
+    timer.start();
   }
 
-  @Override public void write(byte[] b, int off, int len) {
-    buffer.write(b, off, len);
+  @Override public void publish(LogRecord record) {
+    if (!isLoggable(record)) {
+      return;
+    }
+    String msg;
+    try {
+      msg = getFormatter().format(record);
+    } catch (RuntimeException ex) {
+      reportError(null, ex, ErrorManager.FORMAT_FAILURE);
+      return;
+    }
+    long t;
+    do {
+      t = tail.get();
+      if (t - head.get() >= CAPACITY) {
+        dropped.increment();
+        return;
+      }
+    } while (!tail.compareAndSet(t, t + 1));
+    ring.set((int) (t & (CAPACITY - 1)), msg);
   }
-}
 
-class TextAreaHandler extends StreamHandler {
-  private void configure() {
-    setFormatter(new SimpleFormatter());
+  // single consumer: called only on the EDT
+  private void drain() {
+    long h = head.get();
+    long t = tail.get();
+    int count = 0;
+    while (h < t) {
+      int idx = (int) (h & (CAPACITY - 1));
+      String msg = ring.get(idx);
+      if (msg == null) {
+        break; // the producer has claimed the slot but not yet stored the record
+      }
+      ring.set(idx, null);
+      batch.append(msg);
+      h++;
+      count++;
+    }
+    head.set(h);
+    if (count == 0) {
+      return;
+    }
+    coalesced.add(count - 1L);
+    Document doc = textComponent.getDocument();
     try {
-      setEncoding("UTF-8");
-    } catch (IOException ex) {
-      try {
-        setEncoding(null);
-      } catch (IOException ex2) {
-        // doing a setEncoding with null should always work.
-        assert false;
+      doc.insertString(doc.getLength(), batch.toString(), null);
+      Element root = doc.getDefaultRootElement();
+      int over = root.getElementCount() - maxLines;
+      if (over > 0) {
+        doc.remove(0, root.getElement(over - 1).getEndOffset());
       }
+    } catch (BadLocationException ex) {
+      reportError(null, ex, ErrorManager.WRITE_FAILURE);
     }
+    batch.setLength(0);
+    textComponent.setCaretPosition(doc.getLength());
   }
 
-  protected TextAreaHandler(OutputStream os) {
-    super();
-    configure();
-    setOutputStream(os);
+  public long getDroppedCount() {
+    return dropped.sum();
   }
 
-  // [UnsynchronizedOverridesSynchronized] Unsynchronized method publish overrides synchronized method in StreamHandler
-  @SuppressWarnings("PMD.AvoidSynchronizedAtMethodLevel")
-  @Override public synchronized void publish(LogRecord record) {
-    super.publish(record);
-    flush();
+  public long getCoalescedCount() {
+    return coalesced.sum();
+  }
+
+  @Override public void flush() {
+    if (EventQueue.isDispatchThread()) {
+      drain();
+    }
   }
 
-  // [UnsynchronizedOverridesSynchronized] Unsynchronized method close overrides synchronized method in StreamHandler
-  @SuppressWarnings("PMD.AvoidSynchronizedAtMethodLevel")
-  @Override public synchronized void close() {
+  @Override public void close() {
+    timer.stop();
     flush();
   }
 }
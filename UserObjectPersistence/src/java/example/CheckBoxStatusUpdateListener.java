@@ -7,13 +7,14 @@ package example;
 import java.awt.*;
 import java.awt.event.ActionListener;
 import java.awt.event.MouseEvent;
-import java.util.Collections;
-import java.util.Enumeration;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
 import java.util.EventObject;
-import java.util.List;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
-import java.util.stream.Collectors;
 import javax.swing.*;
 import javax.swing.event.TreeModelEvent;
 import javax.swing.event.TreeModelListener;
@@ -22,94 +23,229 @@ import javax.swing.tree.DefaultTreeCellRenderer;
 import javax.swing.tree.DefaultTreeModel;
 import javax.swing.tree.TreeCellEditor;
 import javax.swing.tree.TreeCellRenderer;
+import javax.swing.tree.TreeNode;
 import javax.swing.tree.TreePath;
 
 public final class CheckBoxStatusUpdateListener implements TreeModelListener {
+  // The number of SELECTED and INDETERMINATE children of each parent node counted so far,
+  // and the status each of those children had when it was counted. A toggle only
+  // updates the counters of its ancestors instead of enumerating all their children.
+  private final Map<TreeNode, int[]> childCounts = new HashMap<>();
+  private final Map<TreeNode, Status> countedStatus = new HashMap<>();
   private boolean adjusting;
+  private long lastUpdateNanos;
 
   @Override public void treeNodesChanged(TreeModelEvent e) {
     if (adjusting) {
       return;
     }
     adjusting = true;
-    Object[] children = e.getChildren();
-    DefaultTreeModel model = (DefaultTreeModel) e.getSource();
+    long start = System.nanoTime();
 
-    DefaultMutableTreeNode node;
-    CheckBoxNode c; // = (CheckBoxNode) node.getUserObject();
-    boolean isNotRootAndOnlyOneNodeChanged = Objects.nonNull(children) && children.length == 1;
-    if (isNotRootAndOnlyOneNodeChanged) {
-      node = (DefaultMutableTreeNode) children[0];
-      c = (CheckBoxNode) node.getUserObject();
-      TreePath parent = e.getTreePath();
-      DefaultMutableTreeNode n = (DefaultMutableTreeNode) parent.getLastPathComponent();
-      while (Objects.nonNull(n)) {
-        updateParentUserObject(n);
-        DefaultMutableTreeNode tmp = (DefaultMutableTreeNode) n.getParent();
-        if (Objects.nonNull(tmp)) {
-          n = tmp;
-        } else {
-          break;
+    DefaultTreeModel model = (DefaultTreeModel) e.getSource();
+    // https://docs.oracle.com/javase/8/docs/api/javax/swing/event/TreeModelListener.html#treeNodesChanged-javax.swing.event.TreeModelEvent-
+    // To indicate the root has changed, childIndices and children will be null.
+    Object[] children = e.getChildren();
+    Object[] changed = Objects.isNull(children) ? new Object[] {model.getRoot()} : children;
+    for (Object o: changed) {
+      if (o instanceof DefaultMutableTreeNode) {
+        DefaultMutableTreeNode node = (DefaultMutableTreeNode) o;
+        Object c = node.getUserObject();
+        if (c instanceof CheckBoxNode) {
+          Status status = ((CheckBoxNode) c).getStatus();
+          // If the parent node exists, update its status
+          updateParentUserObject(model, node, status);
+          // Update the status of all child nodes to be the same as the current node status
+          updateAllChildrenUserObject(model, node, status);
         }
       }
-      model.nodeChanged(n);
-    } else { // if (Objects.isNull(children)) {
-      // https://docs.oracle.com/javase/8/docs/api/javax/swing/event/TreeModelListener.html#treeNodesChanged-javax.swing.event.TreeModelEvent-
-      // To indicate the root has changed, childIndices and children will be null.
-      node = (DefaultMutableTreeNode) model.getRoot();
-      c = (CheckBoxNode) node.getUserObject();
-    }
-    updateAllChildrenUserObject(node, c.getStatus());
-    model.nodeChanged(node);
+    }
+
+    lastUpdateNanos = System.nanoTime() - start;
     adjusting = false;
   }
 
-  private void updateParentUserObject(DefaultMutableTreeNode parent) {
-    // Java 9: Collections.list(parent.children()).stream()
-    List<Status> list = Collections.list((Enumeration<?>) parent.children()).stream()
-        .filter(DefaultMutableTreeNode.class::isInstance)
-        .map(DefaultMutableTreeNode.class::cast)
-        .map(DefaultMutableTreeNode::getUserObject)
-        .filter(CheckBoxNode.class::isInstance)
-        .map(CheckBoxNode.class::cast)
-        .map(CheckBoxNode::getStatus)
-        .collect(Collectors.toList());
+  public long getLastUpdateNanos() {
+    return lastUpdateNanos;
+  }
 
-    Object o = parent.getUserObject();
-    if (o instanceof CheckBoxNode) {
-      String label = ((CheckBoxNode) o).getLabel();
-      if (list.stream().allMatch(s -> s == Status.DESELECTED)) {
-        parent.setUserObject(new CheckBoxNode(label, Status.DESELECTED));
-      } else if (list.stream().allMatch(s -> s == Status.SELECTED)) {
-        parent.setUserObject(new CheckBoxNode(label, Status.SELECTED));
+  // Walks up while the status of the parent changes, O(depth).
+  private void updateParentUserObject(DefaultTreeModel model, DefaultMutableTreeNode node, Status status) {
+    DefaultMutableTreeNode child = node;
+    Status before = getCountedStatus(child);
+    Status after = status;
+    TreeNode p = child.getParent();
+    while (p instanceof DefaultMutableTreeNode) {
+      DefaultMutableTreeNode parent = (DefaultMutableTreeNode) p;
+      Object o = parent.getUserObject();
+      if (!(o instanceof CheckBoxNode)) {
+        break;
+      }
+      int[] counts = childCounts.get(parent);
+      if (Objects.isNull(counts) || Objects.isNull(before)) {
+        counts = countChildren(parent);
       } else {
-        parent.setUserObject(new CheckBoxNode(label, Status.INDETERMINATE));
+        addCount(counts, before, -1);
+        addCount(counts, after, 1);
+        countedStatus.put(child, after);
+      }
+      CheckBoxNode check = (CheckBoxNode) o;
+      Status s = getStatus(counts, parent.getChildCount());
+      if (s == check.getStatus()) {
+        break;
       }
+      before = getCountedStatus(parent);
+      after = s;
+      parent.setUserObject(withStatus(check, s));
+      model.nodeChanged(parent);
+      child = parent;
+      p = parent.getParent();
+    }
+  }
+
+  // Visits the changed subtree once, with one nodesChanged event for the changed children of each node.
+  // A child that already has the new status is skipped with its subtree, all its descendants have it too.
+  // The counters of the visited nodes are dropped, they are counted again when one of their children is toggled.
+  private void updateAllChildrenUserObject(DefaultTreeModel model, DefaultMutableTreeNode node, Status status) {
+    Deque<DefaultMutableTreeNode> stack = new ArrayDeque<>();
+    stack.push(node);
+    while (!stack.isEmpty()) {
+      DefaultMutableTreeNode parent = stack.pop();
+      childCounts.remove(parent);
+      int count = parent.getChildCount();
+      int[] indices = new int[count];
+      int changed = 0;
+      for (int i = 0; i < count; i++) {
+        TreeNode child = parent.getChildAt(i);
+        Object o = child instanceof DefaultMutableTreeNode ? ((DefaultMutableTreeNode) child).getUserObject() : null;
+        if (o instanceof CheckBoxNode) {
+          CheckBoxNode check = (CheckBoxNode) o;
+          if (check.getStatus() != status || status == Status.INDETERMINATE) {
+            DefaultMutableTreeNode n = (DefaultMutableTreeNode) child;
+            n.setUserObject(withStatus(check, status));
+            indices[changed++] = i;
+            stack.push(n);
+          }
+        }
+      }
+      if (changed > 0) {
+        model.nodesChanged(parent, Arrays.copyOf(indices, changed));
+      }
+    }
+    model.nodeChanged(node);
+  }
+
+  // The status of the child as it is counted by its parent, or null if the parent has no counters yet.
+  private Status getCountedStatus(TreeNode child) {
+    return childCounts.containsKey(child.getParent()) ? countedStatus.get(child) : null;
+  }
+
+  private int[] countChildren(TreeNode parent) {
+    int[] counts = new int[2];
+    for (int i = 0; i < parent.getChildCount(); i++) {
+      TreeNode child = parent.getChildAt(i);
+      Status s = getChildStatus(child);
+      addCount(counts, s, 1);
+      countedStatus.put(child, s);
     }
+    childCounts.put(parent, counts);
+    return counts;
   }
 
-  private void updateAllChildrenUserObject(DefaultMutableTreeNode parent, Status status) {
-    // Java 9: Collections.list(parent.breadthFirstEnumeration()).stream()
-    Collections.list((Enumeration<?>) parent.breadthFirstEnumeration()).stream()
-        .filter(DefaultMutableTreeNode.class::isInstance)
-        .map(DefaultMutableTreeNode.class::cast)
-        .filter(node -> !Objects.equals(parent, node))
-        .forEach(node -> {
-          CheckBoxNode check = (CheckBoxNode) node.getUserObject();
-          node.setUserObject(new CheckBoxNode(check.getLabel(), status));
-        });
+  private static Status getChildStatus(TreeNode child) {
+    Object o = child instanceof DefaultMutableTreeNode ? ((DefaultMutableTreeNode) child).getUserObject() : null;
+    return o instanceof CheckBoxNode ? ((CheckBoxNode) o).getStatus() : Status.DESELECTED;
   }
 
+  private static void addCount(int[] counts, Status status, int delta) {
+    if (status == Status.SELECTED) {
+      counts[0] += delta;
+    } else if (status == Status.INDETERMINATE) {
+      counts[1] += delta;
+    }
+  }
+
+  private static Status getStatus(int[] counts, int childCount) {
+    if (counts[0] == childCount) {
+      return Status.SELECTED;
+    } else if (counts[0] == 0 && counts[1] == 0) {
+      return Status.DESELECTED;
+    } else {
+      return Status.INDETERMINATE;
+    }
+  }
+
+  private static CheckBoxNode withStatus(CheckBoxNode node, Status status) {
+    return new CheckBoxNode(node.getLabel(), status);
+  }
+
+  private void forget(TreeNode node) {
+    Deque<TreeNode> stack = new ArrayDeque<>();
+    stack.push(node);
+    while (!stack.isEmpty()) {
+      TreeNode n = stack.pop();
+      childCounts.remove(n);
+      countedStatus.remove(n);
+      for (int i = 0; i < n.getChildCount(); i++) {
+        stack.push(n.getChildAt(i));
+      }
+    }
+  }
+
+  // The counters of the parent are kept up to date, and the status of the parent and its
+  // ancestors is derived again, since it may depend on the inserted children now.
   @Override public void treeNodesInserted(TreeModelEvent e) {
-    /* not needed */
+    TreeNode parent = (TreeNode) e.getTreePath().getLastPathComponent();
+    int[] counts = childCounts.get(parent);
+    if (Objects.isNull(counts)) {
+      counts = countChildren(parent);
+    } else {
+      for (Object child: e.getChildren()) {
+        Status s = getChildStatus((TreeNode) child);
+        addCount(counts, s, 1);
+        countedStatus.put((TreeNode) child, s);
+      }
+    }
+    updateFromChildren((DefaultTreeModel) e.getSource(), parent, counts);
   }
 
   @Override public void treeNodesRemoved(TreeModelEvent e) {
-    /* not needed */
+    TreeNode parent = (TreeNode) e.getTreePath().getLastPathComponent();
+    int[] counts = childCounts.get(parent);
+    for (Object child: e.getChildren()) {
+      Status s = countedStatus.get(child);
+      if (Objects.nonNull(counts) && Objects.nonNull(s)) {
+        addCount(counts, s, -1);
+      } else {
+        counts = null;
+      }
+      forget((TreeNode) child);
+    }
+    if (Objects.isNull(counts)) {
+      counts = countChildren(parent);
+    }
+    updateFromChildren((DefaultTreeModel) e.getSource(), parent, counts);
+  }
+
+  private void updateFromChildren(DefaultTreeModel model, TreeNode p, int[] counts) {
+    if (adjusting || !(p instanceof DefaultMutableTreeNode) || p.getChildCount() == 0) {
+      return;
+    }
+    DefaultMutableTreeNode parent = (DefaultMutableTreeNode) p;
+    Object o = parent.getUserObject();
+    Status s = getStatus(counts, parent.getChildCount());
+    if (o instanceof CheckBoxNode && s != ((CheckBoxNode) o).getStatus()) {
+      adjusting = true;
+      parent.setUserObject(withStatus((CheckBoxNode) o, s));
+      model.nodeChanged(parent);
+      updateParentUserObject(model, parent, s);
+      adjusting = false;
+    }
   }
 
   @Override public void treeStructureChanged(TreeModelEvent e) {
-    /* not needed */
+    childCounts.clear();
+    countedStatus.clear();
   }
 }
 
@@ -9,16 +9,28 @@ import java.awt.event.HierarchyEvent;
 import java.io.IOException;
 import java.io.UncheckedIOException;
 import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
 import java.nio.file.StandardWatchEventKinds;
 import java.nio.file.WatchEvent;
 import java.nio.file.WatchKey;
 import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
-import java.util.TreeSet;
+import java.util.Vector;
+import java.util.concurrent.ConcurrentHashMap;
 import javax.swing.*;
 import javax.swing.table.DefaultTableModel;
 import javax.swing.table.TableColumn;
@@ -29,7 +41,13 @@ public final class MainPanel extends JPanel {
   private final JTextArea logger = new JTextArea();
   private final FileModel model = new FileModel();
   private final transient TableRowSorter<? extends TableModel> sorter = new TableRowSorter<>(model);
-  public final Set<Integer> deleteRowSet = new TreeSet<>();
+  // WatchEvents coalesced per path by the watcher thread, applied to the table once per frame
+  private final Map<Path, WatchEvent.Kind<?>> pendingEvents = new LinkedHashMap<>();
+  private final Map<Path, Set<Path>> pendingRescans = new LinkedHashMap<>();
+  private final Map<WatchKey, Path> watchKeys = new ConcurrentHashMap<>();
+  // the directories registered so far, a delete of one of them drops the rows under it
+  private final Set<Path> watchedDirs = ConcurrentHashMap.newKeySet();
+  private final Timer flushTimer = new Timer(16, e -> flushEvents());
 
   private MainPanel() {
     super(new BorderLayout());
@@ -48,9 +66,9 @@ public final class MainPanel extends JPanel {
     SecondaryLoop loop = Toolkit.getDefaultToolkit().getSystemEventQueue().createSecondaryLoop();
     Thread worker = new Thread(() -> {
       try (WatchService watcher = FileSystems.getDefault().newWatchService()) {
-        dir.register(watcher, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_DELETE);
-        append("register: " + dir);
-        processEvents(dir, watcher);
+        registerAll(dir, watcher, null);
+        EventQueue.invokeLater(() -> append("register: " + dir));
+        processEvents(watcher);
         loop.exit();
       } catch (IOException ex) {
         throw new UncheckedIOException(ex);
@@ -61,10 +79,12 @@ public final class MainPanel extends JPanel {
       append("Error");
     }
 
+    flushTimer.start();
     addHierarchyListener(e -> {
       boolean isDisplayableChanged = (e.getChangeFlags() & HierarchyEvent.DISPLAYABILITY_CHANGED) != 0;
       if (isDisplayableChanged && !e.getComponent().isDisplayable()) {
         worker.interrupt();
+        flushTimer.stop();
       }
     });
 
@@ -91,10 +111,38 @@ public final class MainPanel extends JPanel {
     setPreferredSize(new Dimension(320, 240));
   }
 
+  // Register the given directory, and all its sub-directories, with the WatchService.
+  // The regular files found under a newly created directory are collected into createdFiles.
+  private void registerAll(Path start, WatchService watcher, Set<Path> createdFiles) throws IOException {
+    Files.walkFileTree(start, new SimpleFileVisitor<Path>() {
+      @Override public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+        WatchKey key = dir.register(
+            watcher,
+            StandardWatchEventKinds.ENTRY_CREATE,
+            StandardWatchEventKinds.ENTRY_DELETE,
+            StandardWatchEventKinds.ENTRY_MODIFY);
+        watchKeys.put(key, dir);
+        watchedDirs.add(dir.toAbsolutePath());
+        return FileVisitResult.CONTINUE;
+      }
+
+      @Override public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+        if (Objects.nonNull(createdFiles) && attrs.isRegularFile()) {
+          createdFiles.add(file.toAbsolutePath());
+        }
+        return FileVisitResult.CONTINUE;
+      }
+
+      @Override public FileVisitResult visitFileFailed(Path file, IOException ex) {
+        return FileVisitResult.CONTINUE;
+      }
+    });
+  }
+
   // Watching a Directory for Changes (The Java™ Tutorials > Essential Classes > Basic I/O)
   // https://docs.oracle.com/javase/tutorial/essential/io/notification.html
   // Process all events for keys queued to the watcher
-  public void processEvents(Path dir, WatchService watcher) {
+  public void processEvents(WatchService watcher) {
     for (;;) {
       // wait for key to be signaled
       WatchKey key;
@@ -105,57 +153,126 @@ public final class MainPanel extends JPanel {
         Thread.currentThread().interrupt();
         return;
       }
+      Path dir = watchKeys.get(key);
+      if (Objects.isNull(dir)) {
+        key.cancel();
+        continue;
+      }
 
       for (WatchEvent<?> event: key.pollEvents()) {
         WatchEvent.Kind<?> kind = event.kind();
 
-        // This key is registered only for ENTRY_CREATE events,
-        // but an OVERFLOW event can occur regardless if events
-        // are lost or discarded.
+        // An OVERFLOW event can occur regardless if events are lost or discarded,
+        // list the directory again and let the EDT reconcile the table.
         if (kind == StandardWatchEventKinds.OVERFLOW) {
+          rescan(dir, watcher);
           continue;
         }
 
         // The filename is the context of the event.
         @SuppressWarnings("unchecked")
         WatchEvent<Path> ev = (WatchEvent<Path>) event;
-        Path filename = ev.context();
-
-        Path child = dir.resolve(filename);
-        EventQueue.invokeLater(() -> {
-          append(String.format("%s: %s", kind, child));
-          updateTable(kind, child);
-        });
+        Path child = dir.resolve(ev.context()).toAbsolutePath();
+        if (kind == StandardWatchEventKinds.ENTRY_CREATE && Files.isDirectory(child)) {
+          Set<Path> files = new HashSet<>();
+          try {
+            registerAll(child, watcher, files);
+          } catch (IOException ex) {
+            continue;
+          }
+          files.forEach(f -> addPendingEvent(f, StandardWatchEventKinds.ENTRY_CREATE));
+        } else if (kind != StandardWatchEventKinds.ENTRY_MODIFY || Files.isRegularFile(child)) {
+          addPendingEvent(child, kind);
+        }
       }
 
       // Reset the key -- this step is critical if you want to
       // receive further watch events.  If the key is no longer valid,
-      // the directory is inaccessible so exit the loop.
+      // the directory is inaccessible or was deleted.
       boolean valid = key.reset();
       if (!valid) {
-        break;
+        watchKeys.remove(key);
+        if (watchKeys.isEmpty()) {
+          break;
+        }
       }
     }
   }
 
-  public void updateTable(WatchEvent.Kind<?> kind, Path child) {
+  private void rescan(Path dir, WatchService watcher) {
+    Set<Path> files = new HashSet<>();
+    try {
+      registerAll(dir, watcher, files);
+    } catch (IOException ex) {
+      return;
+    }
+    synchronized (pendingEvents) {
+      pendingRescans.put(dir.toAbsolutePath(), files);
+    }
+  }
+
+  // Coalesces the events of the same path, e.g. a file created and deleted
+  // within one frame never reaches the table.
+  private void addPendingEvent(Path path, WatchEvent.Kind<?> kind) {
+    synchronized (pendingEvents) {
+      WatchEvent.Kind<?> prev = pendingEvents.remove(path);
+      if (prev == StandardWatchEventKinds.ENTRY_CREATE) {
+        if (kind == StandardWatchEventKinds.ENTRY_DELETE) {
+          return;
+        }
+        pendingEvents.put(path, prev);
+      } else {
+        pendingEvents.put(path, kind);
+      }
+    }
+  }
+
+  private void flushEvents() {
+    Map<Path, WatchEvent.Kind<?>> events;
+    Map<Path, Set<Path>> rescans;
+    synchronized (pendingEvents) {
+      if (pendingEvents.isEmpty() && pendingRescans.isEmpty()) {
+        return;
+      }
+      events = new LinkedHashMap<>(pendingEvents);
+      rescans = new LinkedHashMap<>(pendingRescans);
+      pendingEvents.clear();
+      pendingRescans.clear();
+    }
+    boolean bulk = events.size() + rescans.size() > FileModel.BULK_THRESHOLD;
+    List<String> log = new ArrayList<>();
+    rescans.forEach((dir, files) -> {
+      log.add(String.format("OVERFLOW: %s", dir));
+      model.retainPaths(dir, files, !bulk);
+      files.forEach(f -> model.addPath(f, !bulk));
+    });
+    events.forEach((child, kind) -> {
+      log.add(String.format("%s: %s", kind, child));
+      updateTable(kind, child, !bulk);
+    });
+    if (bulk) {
+      model.fireTableDataChanged();
+    }
+    int max = 20;
+    StringBuilder sb = new StringBuilder();
+    log.stream().limit(max).forEach(l -> sb.append(l).append('\n'));
+    if (log.size() > max) {
+      sb.append(String.format("... %d more events%n", log.size() - max));
+    }
+    logger.append(sb.toString());
+  }
+
+  public void updateTable(WatchEvent.Kind<?> kind, Path child, boolean fire) {
     if (kind == StandardWatchEventKinds.ENTRY_CREATE) {
-      model.addPath(child);
+      model.addPath(child, fire);
     } else if (kind == StandardWatchEventKinds.ENTRY_DELETE) {
-      for (int i = 0; i < model.getRowCount(); i++) {
-        Object value = model.getValueAt(i, 2);
-        String path = Objects.toString(value, "");
-        if (path.equals(child.toString())) {
-          deleteRowSet.add(i);
-          // model.removeRow(i);
-          break;
-        }
+      if (!model.removePath(child, fire) && watchedDirs.remove(child)) {
+        // a deleted or moved out directory has no row, drop the rows of the files under it
+        watchedDirs.removeIf(d -> d.startsWith(child));
+        model.retainPaths(child, Collections.emptySet(), fire);
       }
-      sorter.setRowFilter(new RowFilter<TableModel, Integer>() {
-        @Override public boolean include(Entry<? extends TableModel, ? extends Integer> entry) {
-          return !deleteRowSet.contains(entry.getIdentifier());
-        }
-      });
+    } else if (kind == StandardWatchEventKinds.ENTRY_MODIFY) {
+      model.updatePath(child, fire);
     }
   }
 
@@ -190,12 +307,70 @@ class FileModel extends DefaultTableModel {
     new ColumnContext("Name", String.class, false),
     new ColumnContext("Full Path", String.class, false)
   };
+  public static final int BULK_THRESHOLD = 100;
+  // full path -> model row, rows are removed by moving the last row into the hole
+  private final Map<Path, Integer> rowIndex = new HashMap<>();
   private int number;
 
-  public void addPath(Path path) {
-    Object[] obj = {number, path.getFileName(), path.toAbsolutePath()};
-    super.addRow(obj);
+  public void addPath(Path path, boolean fire) {
+    Path key = path.toAbsolutePath();
+    if (rowIndex.containsKey(key)) {
+      updatePath(key, fire);
+      return;
+    }
+    int row = getRowCount();
+    rowIndex.put(key, row);
+    Object[] obj = {number, key.getFileName(), key};
+    getRows().add(new Vector<>(Arrays.asList(obj)));
     number++;
+    if (fire) {
+      fireTableRowsInserted(row, row);
+    }
+  }
+
+  public void updatePath(Path path, boolean fire) {
+    Integer row = rowIndex.get(path.toAbsolutePath());
+    if (Objects.nonNull(row) && fire) {
+      fireTableRowsUpdated(row, row);
+    }
+  }
+
+  public boolean removePath(Path path, boolean fire) {
+    Integer row = rowIndex.remove(path.toAbsolutePath());
+    if (Objects.isNull(row)) {
+      return false;
+    }
+    List<Object> rows = getRows();
+    int last = rows.size() - 1;
+    if (row != last) {
+      Object moved = rows.get(last);
+      rows.set(row, moved);
+      rowIndex.put((Path) ((Vector<?>) moved).get(2), row);
+      if (fire) {
+        fireTableRowsUpdated(row, row);
+      }
+    }
+    rows.remove(last);
+    if (fire) {
+      fireTableRowsDeleted(last, last);
+    }
+    return true;
+  }
+
+  // Removes the rows under the directory that are not in the given set.
+  public void retainPaths(Path dir, Set<Path> files, boolean fire) {
+    List<Path> removed = new ArrayList<>();
+    rowIndex.keySet().forEach(p -> {
+      if (p.startsWith(dir) && !files.contains(p)) {
+        removed.add(p);
+      }
+    });
+    removed.forEach(p -> removePath(p, fire));
+  }
+
+  @SuppressWarnings("unchecked")
+  private List<Object> getRows() {
+    return (List<Object>) (List<?>) getDataVector();
   }
 
   @Override public boolean isCellEditable(int row, int col) {
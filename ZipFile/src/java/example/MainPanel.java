@@ -12,20 +12,14 @@ import java.lang.invoke.MethodHandles;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.nio.file.StandardCopyOption;
-import java.util.Enumeration;
-import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.logging.LogRecord;
 import java.util.logging.Logger;
 import java.util.logging.SimpleFormatter;
 import java.util.logging.StreamHandler;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipFile;
-import java.util.zip.ZipOutputStream;
 import javax.swing.*;
 
 public final class MainPanel extends JPanel {
@@ -77,13 +71,7 @@ public final class MainPanel extends JPanel {
           return;
         }
       }
-      try {
-        ZipUtil.zip(path, tgt);
-      } catch (IOException ex) {
-        // ex.printStackTrace();
-        LOGGER.info(() -> String.format("Cant zip! : %s", path));
-        Toolkit.getDefaultToolkit().beep();
-      }
+      execute(button1, "zip", path, progress -> ZipUtil.zip(path, tgt, progress));
     });
 
     JPanel p = new JPanel(new BorderLayout(5, 2));
@@ -122,7 +110,7 @@ public final class MainPanel extends JPanel {
             LOGGER.info(() -> String.format("mkdir0: %s", destDir));
             Files.createDirectories(destDir);
           }
-          ZipUtil.unzip(path, destDir);
+          execute(button1, "unzip", path, progress -> ZipUtil.unzip(path, destDir, progress));
         } catch (IOException ex) {
           // ex.printStackTrace();
           LOGGER.info(() -> String.format("Cant unzip! : %s", path));
@@ -139,6 +127,42 @@ public final class MainPanel extends JPanel {
     return p;
   }
 
+  // Runs the task in the background and logs the throughput once a second.
+  private static void execute(JButton button, String title, Path path, ArchiveTask task) {
+    LongAdder progress = new LongAdder();
+    long start = System.nanoTime();
+    Timer timer = new Timer(1000, e -> LOGGER.info(() -> formatProgress(title, progress.sum(), start)));
+    button.setEnabled(false);
+    new SwingWorker<Void, Void>() {
+      @Override protected Void doInBackground() throws IOException {
+        task.run(progress);
+        return null;
+      }
+
+      @Override protected void done() {
+        timer.stop();
+        button.setEnabled(true);
+        try {
+          get();
+          LOGGER.info(() -> formatProgress(title + " done", progress.sum(), start));
+        } catch (InterruptedException ex) {
+          Thread.currentThread().interrupt();
+        } catch (ExecutionException ex) {
+          // ex.printStackTrace();
+          LOGGER.info(() -> String.format("Cant %s! : %s (%s)", title, path, ex.getCause().getMessage()));
+          Toolkit.getDefaultToolkit().beep();
+        }
+      }
+    }.execute();
+    timer.start();
+  }
+
+  private static String formatProgress(String title, long bytes, long start) {
+    double sec = Math.max(1e-3, (System.nanoTime() - start) / 1_000_000_000d);
+    double mb = bytes / 1024d / 1024d;
+    return String.format("%s: %.1f MB, %.1f MB/s", title, mb, mb / sec);
+  }
+
   private static Optional<Path> makeDestDirPath(String text) {
     Path path = Paths.get(text);
     // if (str.isEmpty() || Files.notExists(path)) { // noticeably poor performance in JDK 8
@@ -173,55 +197,6 @@ public final class MainPanel extends JPanel {
   }
 }
 
-final class ZipUtil {
-  private static final Logger LOGGER = Logger.getLogger(MainPanel.LOGGER_NAME);
-
-  private ZipUtil() {
-    /* HideUtilityClassConstructor */
-  }
-
-  @SuppressWarnings("PMD.AvoidInstantiatingObjectsInLoops")
-  public static void zip(Path srcDir, Path zip) throws IOException {
-    // try (Stream<Path> s = Files.walk(srcDir).filter(Files::isRegularFile)) { // noticeably poor performance in JDK 8
-    try (Stream<Path> s = Files.walk(srcDir).filter(f -> f.toFile().isFile())) {
-      List<Path> files = s.collect(Collectors.toList());
-      try (ZipOutputStream zos = new ZipOutputStream(Files.newOutputStream(zip))) {
-        for (Path path: files) {
-          String relativePath = srcDir.relativize(path).toString().replace('\\', '/');
-          LOGGER.info(() -> String.format("zip: %s", relativePath));
-          zos.putNextEntry(new ZipEntry(relativePath));
-          Files.copy(path, zos);
-          zos.closeEntry();
-        }
-      }
-    }
-  }
-
-  public static void unzip(Path zipFilePath, Path destDir) throws IOException {
-    try (ZipFile zipFile = new ZipFile(zipFilePath.toString())) {
-      Enumeration<? extends ZipEntry> e = zipFile.entries();
-      while (e.hasMoreElements()) {
-        ZipEntry zipEntry = e.nextElement();
-        String name = zipEntry.getName();
-        Path path = destDir.resolve(name);
-        if (name.endsWith("/")) { // if (Files.isDirectory(path)) {
-          LOGGER.info(() -> String.format("mkdir1: %s", path));
-          Files.createDirectories(path);
-        } else {
-          Path parent = path.getParent();
-          // if (Objects.nonNull(parent) && Files.notExists(parent)) { // noticeably poor performance in JDK 8
-          if (Objects.nonNull(parent) && !parent.toFile().exists()) {
-            LOGGER.info(() -> String.format("mkdir2: %s", parent));
-            Files.createDirectories(parent);
-          }
-          LOGGER.info(() -> String.format("copy: %s", path));
-          Files.copy(zipFile.getInputStream(zipEntry), path, StandardCopyOption.REPLACE_EXISTING);
-        }
-      }
-    }
-  }
-}
-
 class TextAreaOutputStream extends OutputStream {
   private final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
   private final JTextArea textArea;
@@ -279,3 +254,8 @@ class TextAreaHandler extends StreamHandler {
     flush();
   }
 }
+
+@FunctionalInterface
+interface ArchiveTask {
+  void run(LongAdder progress) throws IOException;
+}
@@ -0,0 +1,454 @@
+// -*- mode:java; encoding:utf-8 -*-
+// vim:set fileencoding=utf-8:
+// @homepage@
+
+package example;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+// Zips a directory with the files deflated on all cores while the archive is written in order.
+// A large file is split into chunks that are deflated separately (each one primed with the last
+// 32KB of the previous chunk) and joined with a sync flush, the CRC-32 values of the chunks are
+// combined. Already compressed files are stored. Unzip extracts the entries in parallel.
+// The progress is the number of uncompressed bytes read or written so far.
+final class ZipUtil {
+  private static final int CHUNK_SIZE = 1 << 20;
+  private static final int DICTIONARY_SIZE = 1 << 15;
+  private static final int THREADS = Runtime.getRuntime().availableProcessors();
+  private static final int WINDOW = THREADS * 4;
+  private static final long ZIP64_MAGIC = 0xFFFF_FFFFL;
+  // bigger files get a ZIP64 local header, the deflated data may be a little larger than the file
+  private static final long ZIP64_THRESHOLD = 0xF000_0000L;
+  private static final int FLAG_UTF8 = 1 << 11;
+  private static final Set<String> STORED_EXTENSIONS = new ConcurrentHashMap<String, Boolean>().keySet(Boolean.TRUE);
+
+  static {
+    STORED_EXTENSIONS.addAll(Arrays.asList(
+        "zip", "jar", "war", "gz", "tgz", "bz2", "xz", "7z", "rar", "zst",
+        "png", "jpg", "jpeg", "gif", "webp", "mp3", "mp4", "mkv", "mov", "avi", "ogg"));
+  }
+
+  private ZipUtil() {
+    /* HideUtilityClassConstructor */
+  }
+
+  public static void zip(Path srcDir, Path zip, LongAdder progress) throws IOException {
+    ExecutorService executor = Executors.newFixedThreadPool(THREADS, r -> {
+      Thread t = new Thread(r, "ZipUtil");
+      t.setDaemon(true);
+      return t;
+    });
+    // try (Stream<Path> s = Files.walk(srcDir).filter(Files::isRegularFile)) { // noticeably poor performance in JDK 8
+    try (Stream<Path> s = Files.walk(srcDir).filter(f -> f.toFile().isFile());
+         FileChannel out = FileChannel.open(zip, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+      ArchiveWriter writer = new ArchiveWriter(out);
+      Deque<Future<Chunk>> window = new ArrayDeque<>();
+      Iterator<Path> files = s.iterator();
+      while (files.hasNext()) {
+        Path path = files.next();
+        String relativePath = srcDir.relativize(path).toString().replace('\\', '/');
+        long size = Files.size(path);
+        FileEntry entry = new FileEntry(relativePath, size, Files.getLastModifiedTime(path).toMillis(), isStored(relativePath));
+        int chunks = (int) Math.max(1L, (size + CHUNK_SIZE - 1) / CHUNK_SIZE);
+        for (int i = 0; i < chunks; i++) {
+          while (window.size() >= WINDOW) {
+            writer.write(take(window.removeFirst()));
+          }
+          int index = i;
+          window.addLast(executor.submit(() -> compress(path, entry, index, chunks, progress)));
+        }
+      }
+      while (!window.isEmpty()) {
+        writer.write(take(window.removeFirst()));
+      }
+      writer.finish();
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  public static void unzip(Path zipFilePath, Path destDir, LongAdder progress) throws IOException {
+    Path root = destDir.toAbsolutePath().normalize();
+    ExecutorService executor = Executors.newFixedThreadPool(THREADS, r -> {
+      Thread t = new Thread(r, "ZipUtil");
+      t.setDaemon(true);
+      return t;
+    });
+    try (ZipFile zipFile = new ZipFile(zipFilePath.toString())) {
+      List<? extends ZipEntry> entries = Collections.list(zipFile.entries());
+      // create each directory once, instead of checking the parent of every entry
+      Set<Path> dirs = new ConcurrentHashMap<Path, Boolean>().keySet(Boolean.TRUE);
+      List<Future<?>> futures = new ArrayList<>(entries.size());
+      for (ZipEntry zipEntry: entries) {
+        Path path = root.resolve(zipEntry.getName()).normalize();
+        if (!path.startsWith(root)) {
+          throw new IOException("Entry is outside of the target directory: " + zipEntry.getName());
+        }
+        if (zipEntry.isDirectory()) {
+          createDirectories(path, dirs);
+          continue;
+        }
+        createDirectories(path.getParent(), dirs);
+        futures.add(executor.submit(() -> {
+          try (InputStream in = zipFile.getInputStream(zipEntry);
+               FileChannel ch = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            long size = zipEntry.getSize();
+            long n = ch.transferFrom(Channels.newChannel(in), 0, size >= 0 ? size : Long.MAX_VALUE);
+            progress.add(n);
+          }
+          return null;
+        }));
+      }
+      for (Future<?> f: futures) {
+        take(f);
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  private static void createDirectories(Path dir, Set<Path> dirs) throws IOException {
+    if (Objects.nonNull(dir) && dirs.add(dir)) {
+      Files.createDirectories(dir);
+    }
+  }
+
+  private static boolean isStored(String name) {
+    int dot = name.lastIndexOf('.');
+    return dot >= 0 && STORED_EXTENSIONS.contains(name.substring(dot + 1).toLowerCase(Locale.ENGLISH));
+  }
+
+  private static <T> T take(Future<T> future) throws IOException {
+    try {
+      return future.get();
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      throw new IOException(ex);
+    } catch (ExecutionException ex) {
+      Throwable cause = ex.getCause();
+      throw cause instanceof IOException ? (IOException) cause : new IOException(cause);
+    }
+  }
+
+  private static Chunk compress(Path path, FileEntry entry, int index, int chunks, LongAdder progress) throws IOException {
+    long start = (long) index * CHUNK_SIZE;
+    int length = (int) Math.min(CHUNK_SIZE, entry.size - start);
+    boolean last = index == chunks - 1;
+    int dictionaryLength = entry.stored ? 0 : (int) Math.min(DICTIONARY_SIZE, start);
+    ByteBuffer buf = ByteBuffer.allocate(dictionaryLength + length);
+    try (FileChannel ch = FileChannel.open(path, StandardOpenOption.READ)) {
+      long pos = start - dictionaryLength;
+      while (buf.hasRemaining() && ch.read(buf, pos + buf.position()) >= 0) {
+        continue;
+      }
+    }
+    if (buf.hasRemaining()) {
+      throw new IOException("File was truncated while zipping: " + path);
+    }
+    byte[] raw = buf.array();
+    CRC32 crc = new CRC32();
+    crc.update(raw, dictionaryLength, length);
+    progress.add(length);
+    if (entry.stored) {
+      return new Chunk(entry, index, last, raw, raw.length, crc.getValue(), length);
+    }
+    Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+    try {
+      if (dictionaryLength > 0) {
+        deflater.setDictionary(raw, 0, dictionaryLength);
+      }
+      deflater.setInput(raw, dictionaryLength, length);
+      if (last) {
+        deflater.finish();
+      }
+      byte[] out = new byte[length + length / 1000 + 64];
+      int n = 0;
+      while (true) {
+        if (n == out.length) {
+          out = Arrays.copyOf(out, out.length * 2);
+        }
+        n += deflater.deflate(out, n, out.length - n, last ? Deflater.NO_FLUSH : Deflater.SYNC_FLUSH);
+        boolean done = last ? deflater.finished() : deflater.needsInput() && n < out.length;
+        if (done) {
+          break;
+        }
+      }
+      return new Chunk(entry, index, last, out, n, crc.getValue(), length);
+    } finally {
+      deflater.end();
+    }
+  }
+
+  // https://github.com/madler/zlib/blob/master/crc32.c crc32_combine()
+  protected static long combineCrc(long crc1, long crc2, long len2) {
+    if (len2 <= 0) {
+      return crc1;
+    }
+    long[] even = new long[32];
+    long[] odd = new long[32];
+    odd[0] = 0xEDB8_8320L;
+    long row = 1;
+    for (int n = 1; n < 32; n++) {
+      odd[n] = row;
+      row <<= 1;
+    }
+    squareMatrix(even, odd);
+    squareMatrix(odd, even);
+    long crc = crc1;
+    long len = len2;
+    do {
+      squareMatrix(even, odd);
+      if ((len & 1) != 0) {
+        crc = timesMatrix(even, crc);
+      }
+      len >>= 1;
+      if (len == 0) {
+        break;
+      }
+      squareMatrix(odd, even);
+      if ((len & 1) != 0) {
+        crc = timesMatrix(odd, crc);
+      }
+      len >>= 1;
+    } while (len != 0);
+    return crc ^ crc2;
+  }
+
+  private static long timesMatrix(long[] mat, long vec) {
+    long sum = 0;
+    long v = vec;
+    for (int i = 0; v != 0; i++, v >>>= 1) {
+      if ((v & 1) != 0) {
+        sum ^= mat[i];
+      }
+    }
+    return sum;
+  }
+
+  private static void squareMatrix(long[] square, long[] mat) {
+    for (int n = 0; n < 32; n++) {
+      square[n] = timesMatrix(mat, mat[n]);
+    }
+  }
+
+  private static final class FileEntry {
+    protected final String name;
+    protected final long size;
+    protected final long lastModified;
+    protected final boolean stored;
+    protected long offset;
+    protected long compressedSize;
+    protected long crc;
+    protected boolean zip64;
+
+    protected FileEntry(String name, long size, long lastModified, boolean stored) {
+      this.name = name;
+      this.size = size;
+      this.lastModified = lastModified;
+      this.stored = stored;
+    }
+  }
+
+  private static final class Chunk {
+    protected final FileEntry entry;
+    protected final int index;
+    protected final boolean last;
+    protected final byte[] data;
+    protected final int length;
+    protected final long crc;
+    protected final long rawLength;
+
+    protected Chunk(FileEntry entry, int index, boolean last, byte[] data, int length, long crc, long rawLength) {
+      this.entry = entry;
+      this.index = index;
+      this.last = last;
+      this.data = data;
+      this.length = length;
+      this.crc = crc;
+      this.rawLength = rawLength;
+    }
+  }
+
+  // Writes the chunks in order. The CRC and the sizes of an entry are only known after
+  // its last chunk, they are written into the local header afterwards.
+  private static final class ArchiveWriter {
+    private final FileChannel out;
+    private final List<FileEntry> entries = new ArrayList<>();
+    private long position;
+
+    protected ArchiveWriter(FileChannel out) {
+      this.out = out;
+    }
+
+    protected void write(Chunk chunk) throws IOException {
+      FileEntry entry = chunk.entry;
+      if (chunk.index == 0) {
+        entry.offset = position;
+        entry.zip64 = entry.size >= ZIP64_THRESHOLD;
+        writeLocalHeader(entry);
+      }
+      write(ByteBuffer.wrap(chunk.data, 0, chunk.length));
+      entry.compressedSize += chunk.length;
+      entry.crc = chunk.index == 0 ? chunk.crc : combineCrc(entry.crc, chunk.crc, chunk.rawLength);
+      if (chunk.last) {
+        if (!entry.zip64 && entry.compressedSize >= ZIP64_MAGIC) {
+          throw new IOException("Entry is too large for a 32 bit header: " + entry.name);
+        }
+        patchLocalHeader(entry);
+        entries.add(entry);
+      }
+    }
+
+    private void writeLocalHeader(FileEntry entry) throws IOException {
+      byte[] name = entry.name.getBytes(StandardCharsets.UTF_8);
+      ByteBuffer b = allocate(30 + name.length + (entry.zip64 ? 20 : 0));
+      int dosTime = toDosTime(entry.lastModified);
+      b.putInt(0x0403_4B50).putShort((short) (entry.zip64 ? 45 : 20)).putShort((short) FLAG_UTF8)
+          .putShort((short) (entry.stored ? ZipEntry.STORED : ZipEntry.DEFLATED))
+          .putShort((short) dosTime).putShort((short) (dosTime >>> 16))
+          .putInt(0).putInt(0).putInt(0) // crc, sizes: patched later
+          .putShort((short) name.length).putShort((short) (entry.zip64 ? 20 : 0)).put(name);
+      if (entry.zip64) {
+        b.putShort((short) 1).putShort((short) 16).putLong(0).putLong(0);
+      }
+      b.flip();
+      write(b);
+    }
+
+    private void patchLocalHeader(FileEntry entry) throws IOException {
+      ByteBuffer b = allocate(12);
+      b.putInt((int) entry.crc);
+      if (entry.zip64) {
+        b.putInt((int) ZIP64_MAGIC).putInt((int) ZIP64_MAGIC).flip();
+        writeAt(b, entry.offset + 14);
+        int nameLength = entry.name.getBytes(StandardCharsets.UTF_8).length;
+        ByteBuffer extra = allocate(16).putLong(entry.size).putLong(entry.compressedSize);
+        extra.flip();
+        writeAt(extra, entry.offset + 30 + nameLength + 4);
+      } else {
+        b.putInt((int) entry.compressedSize).putInt((int) entry.size).flip();
+        writeAt(b, entry.offset + 14);
+      }
+    }
+
+    protected void finish() throws IOException {
+      long cdOffset = position;
+      for (FileEntry entry: entries) {
+        writeCentralHeader(entry);
+      }
+      long cdSize = position - cdOffset;
+      int count = entries.size();
+      boolean zip64 = count >= 0xFFFF || cdOffset >= ZIP64_MAGIC || cdSize >= ZIP64_MAGIC;
+      if (zip64) {
+        long recordOffset = position;
+        ByteBuffer b = allocate(56 + 20);
+        b.putInt(0x0606_4B50).putLong(44).putShort((short) 45).putShort((short) 45).putInt(0).putInt(0)
+            .putLong(count).putLong(count).putLong(cdSize).putLong(cdOffset);
+        b.putInt(0x0706_4B50).putInt(0).putLong(recordOffset).putInt(1).flip();
+        write(b);
+      }
+      ByteBuffer b = allocate(22);
+      b.putInt(0x0605_4B50).putShort((short) 0).putShort((short) 0)
+          .putShort((short) Math.min(count, 0xFFFF)).putShort((short) Math.min(count, 0xFFFF))
+          .putInt((int) Math.min(cdSize, ZIP64_MAGIC)).putInt((int) Math.min(cdOffset, ZIP64_MAGIC))
+          .putShort((short) 0).flip();
+      write(b);
+    }
+
+    private void writeCentralHeader(FileEntry entry) throws IOException {
+      byte[] name = entry.name.getBytes(StandardCharsets.UTF_8);
+      boolean bigSize = entry.size >= ZIP64_MAGIC;
+      boolean bigCompressedSize = entry.compressedSize >= ZIP64_MAGIC;
+      boolean bigOffset = entry.offset >= ZIP64_MAGIC;
+      int extraLength = (bigSize ? 8 : 0) + (bigCompressedSize ? 8 : 0) + (bigOffset ? 8 : 0);
+      if (extraLength > 0) {
+        extraLength += 4;
+      }
+      boolean zip64 = extraLength > 0 || entry.zip64;
+      ByteBuffer b = allocate(46 + name.length + extraLength);
+      int dosTime = toDosTime(entry.lastModified);
+      b.putInt(0x0201_4B50).putShort((short) (zip64 ? 45 : 20)).putShort((short) (zip64 ? 45 : 20))
+          .putShort((short) FLAG_UTF8).putShort((short) (entry.stored ? ZipEntry.STORED : ZipEntry.DEFLATED))
+          .putShort((short) dosTime).putShort((short) (dosTime >>> 16))
+          .putInt((int) entry.crc)
+          .putInt((int) Math.min(entry.compressedSize, ZIP64_MAGIC))
+          .putInt((int) Math.min(entry.size, ZIP64_MAGIC))
+          .putShort((short) name.length).putShort((short) extraLength).putShort((short) 0)
+          .putShort((short) 0).putShort((short) 0).putInt(0)
+          .putInt((int) Math.min(entry.offset, ZIP64_MAGIC)).put(name);
+      if (extraLength > 0) {
+        b.putShort((short) 1).putShort((short) (extraLength - 4));
+        if (bigSize) {
+          b.putLong(entry.size);
+        }
+        if (bigCompressedSize) {
+          b.putLong(entry.compressedSize);
+        }
+        if (bigOffset) {
+          b.putLong(entry.offset);
+        }
+      }
+      b.flip();
+      write(b);
+    }
+
+    private void write(ByteBuffer b) throws IOException {
+      while (b.hasRemaining()) {
+        position += out.write(b, position);
+      }
+    }
+
+    private void writeAt(ByteBuffer b, long pos) throws IOException {
+      long p = pos;
+      while (b.hasRemaining()) {
+        p += out.write(b, p);
+      }
+    }
+
+    private static ByteBuffer allocate(int size) {
+      return ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    private static int toDosTime(long millis) {
+      LocalDateTime d = LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneId.systemDefault());
+      if (d.getYear() < 1980) {
+        return 1 << 21 | 1 << 16;
+      }
+      return d.getYear() - 1980 << 25 | d.getMonthValue() << 21 | d.getDayOfMonth() << 16
+          | d.getHour() << 11 | d.getMinute() << 5 | d.getSecond() >> 1;
+    }
+  }
+}